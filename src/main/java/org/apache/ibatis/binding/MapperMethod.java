@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.ibatis.annotations.Flush;
 import org.apache.ibatis.annotations.MapKey;
@@ -34,9 +35,14 @@ import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ParamNameResolver;
 import org.apache.ibatis.reflection.TypeParameterResolver;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.Deadline;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
 
 /**
  * @author Clinton Begin
@@ -52,12 +58,44 @@ public class MapperMethod {
 
     private final MethodSignature method;
 
+    // opens the sessions of methods returning a CompletableFuture
+    private final SqlSessionFactory asyncSessionFactory;
+
     public MapperMethod(Class<?> mapperInterface, Method method, Configuration config) {
         this.command = new SqlCommand(config, mapperInterface, method);
         this.method = new MethodSignature(config, mapperInterface, method);
+        this.asyncSessionFactory = this.method.returnsFuture() ? new DefaultSqlSessionFactory(config) : null;
     }
 
     public Object execute(SqlSession sqlSession, Object[] args) {
+        if (method.returnsFuture()) {
+            return executeAsync(sqlSession, args);
+        }
+        return executeSync(sqlSession, args);
+    }
+
+    /**
+     * Executes the statement on {@link Configuration#getAsyncExecutor()}, in a session of its own that is committed and
+     * closed once the result is available. The session uses the executor type of the calling session and the
+     * {@link Deadline#current() current deadline}, but as a connection must not be shared between threads, the
+     * statement is not part of the transaction of the calling session.
+     */
+    private CompletableFuture<Object> executeAsync(SqlSession callingSession, Object[] args) {
+        Configuration configuration = callingSession.getConfiguration();
+        ExecutorType executorType = callingSession instanceof DefaultSqlSession
+                ? ((DefaultSqlSession) callingSession).getExecutorType() : configuration.getDefaultExecutorType();
+        Deadline deadline = Deadline.current();
+        return CompletableFuture.supplyAsync(() -> {
+            try (Deadline.Scope scope = deadline == null ? null : deadline.bind();
+                    SqlSession sqlSession = asyncSessionFactory.openSession(executorType)) {
+                Object result = executeSync(sqlSession, args);
+                sqlSession.commit();
+                return result;
+            }
+        }, configuration.getAsyncExecutor());
+    }
+
+    private Object executeSync(SqlSession sqlSession, Object[] args) {
         Object result;
         switch (command.getType()) { // 判断SQL语句的类型
             case INSERT: {
@@ -315,6 +353,7 @@ public class MapperMethod {
         private final boolean returnsVoid;
         private final boolean returnsCursor;
         private final boolean returnsOptional;
+        private final boolean returnsFuture;
         private final Class<?> returnType;
         private final String mapKey;
         private final Integer resultHandlerIndex;
@@ -324,21 +363,32 @@ public class MapperMethod {
         public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
             // 通过TypeParameterResolver工具类解析方法的返回值类型，初始化returnType字段值
             Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+            // 返回值为CompletableFuture时，按照其类型参数处理查询结果
+            this.returnsFuture = CompletableFuture.class.equals(method.getReturnType());
+            if (returnsFuture) {
+                resolvedReturnType = resolvedReturnType instanceof ParameterizedType
+                        ? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0] : Object.class;
+            }
             if (resolvedReturnType instanceof Class<?>) {
                 this.returnType = (Class<?>) resolvedReturnType;
             } else if (resolvedReturnType instanceof ParameterizedType) {
                 this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
             } else {
-                this.returnType = method.getReturnType();
+                this.returnType = returnsFuture ? Object.class : method.getReturnType();
             }
             // 根据返回值类型，初始化returnsVoid、returnsMany、returnsCursor、
             // returnsMap、returnsOptional这五个与方法返回值类型的相关的字段
-            this.returnsVoid = void.class.equals(this.returnType);
+            this.returnsVoid = void.class.equals(this.returnType) || (returnsFuture && Void.class.equals(this.returnType));
             this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
             this.returnsCursor = Cursor.class.equals(this.returnType);
             this.returnsOptional = Optional.class.equals(this.returnType);
+            if (returnsFuture && returnsCursor) {
+                // 游标依赖的会话在异步执行结束时已经关闭
+                throw new BindingException("Mapper method '" + mapperInterface.getName() + "." + method.getName()
+                        + "' cannot return a Cursor through a CompletableFuture.");
+            }
             // 如果返回值为Map类型，则从方法的@MapKey注解中获取Map中为key的字段名称
-            this.mapKey = getMapKey(method);
+            this.mapKey = getMapKey(method, returnsFuture ? this.returnType : method.getReturnType());
             this.returnsMap = this.mapKey != null;
             // 解析方法中RowBounds类型参数以及ResultHandler类型参数的下标索引位置，
             // 初始化rowBoundsIndex和resultHandlerIndex字段
@@ -389,6 +439,16 @@ public class MapperMethod {
             return returnsCursor;
         }
 
+        /**
+         * return whether return type is {@code java.util.concurrent.CompletableFuture}. The other properties of the
+         * signature then describe the type argument of the future.
+         *
+         * @return return {@code true}, if return type is {@code java.util.concurrent.CompletableFuture}
+         */
+        public boolean returnsFuture() {
+            return returnsFuture;
+        }
+
         /**
          * return whether return type is {@code java.util.Optional}.
          *
@@ -418,9 +478,9 @@ public class MapperMethod {
             return mapKey;
         }
 
-        private String getMapKey(Method method) {
+        private String getMapKey(Method method, Class<?> returnType) {
             String mapKey = null;
-            if (Map.class.isAssignableFrom(method.getReturnType())) {
+            if (Map.class.isAssignableFrom(returnType)) {
                 final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
                 if (mapKeyAnnotation != null) {
                     mapKey = mapKeyAnnotation.value();
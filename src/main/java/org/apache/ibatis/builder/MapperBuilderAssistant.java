@@ -413,6 +413,26 @@ public class MapperBuilderAssistant extends BaseBuilder {
             String resultSet,
             String foreignColumn,
             boolean lazy) {
+        return buildResultMapping(resultType, property, column, javaType, jdbcType, nestedSelect, nestedResultMap,
+                notNullColumn, columnPrefix, typeHandler, flags, resultSet, foreignColumn, lazy, 0);
+    }
+
+    public ResultMapping buildResultMapping(
+            Class<?> resultType,
+            String property,
+            String column,
+            Class<?> javaType,
+            JdbcType jdbcType,
+            String nestedSelect,
+            String nestedResultMap,
+            String notNullColumn,
+            String columnPrefix,
+            Class<? extends TypeHandler<?>> typeHandler,
+            List<ResultFlag> flags,
+            String resultSet,
+            String foreignColumn,
+            boolean lazy,
+            int batchSize) {
         // 解析type中的property属性的类型，也就是<resultMap>转换后的Java对象中property属性的类型
         Class<?> javaTypeClass = resolveResultJavaType(resultType, property, javaType);
         // 解析typeHandler属性指定的TypeHandler对象
@@ -438,6 +458,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
                 .columnPrefix(columnPrefix)
                 .foreignColumn(foreignColumn)
                 .lazy(lazy)
+                .batchSize(batchSize)
                 .build();
     }
 
@@ -31,6 +31,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.Properties;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -410,6 +411,16 @@ public class MapperAnnotationBuilder {
     private Class<?> getReturnType(Method method) {
         Class<?> returnType = method.getReturnType();
         Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, type);
+        if (CompletableFuture.class.equals(returnType)) {
+            // the result type of an asynchronous method is the one of its future
+            returnType = Object.class;
+            if (resolvedReturnType instanceof ParameterizedType) {
+                resolvedReturnType = ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0];
+                if (resolvedReturnType instanceof ParameterizedType) {
+                    returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
+                }
+            }
+        }
         if (resolvedReturnType instanceof Class) {
             returnType = (Class<?>) resolvedReturnType;
             if (returnType.isArray()) {
@@ -17,6 +17,7 @@ package org.apache.ibatis.builder.xml;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.HashSet;
 import java.util.Properties;
 
 import javax.sql.DataSource;
@@ -286,10 +287,17 @@ public class XMLConfigBuilder extends BaseBuilder {
         configuration.setDefaultExecutorType(ExecutorType.valueOf(props.getProperty("defaultExecutorType", "SIMPLE")));
         configuration.setDefaultStatementTimeout(integerValueOf(props.getProperty("defaultStatementTimeout"), null));
         configuration.setDefaultFetchSize(integerValueOf(props.getProperty("defaultFetchSize"), null));
+        configuration.setAdaptiveFetchSize(booleanValueOf(props.getProperty("adaptiveFetchSize"), false));
+        configuration.setAdaptiveFetchSizeMin(integerValueOf(props.getProperty("adaptiveFetchSizeMin"), 10));
+        configuration.setAdaptiveFetchSizeMax(integerValueOf(props.getProperty("adaptiveFetchSizeMax"), 1000));
+        configuration.setUseCompiledRowMappers(booleanValueOf(props.getProperty("useCompiledRowMappers"), false));
+        configuration.setCacheResultSetLayouts(booleanValueOf(props.getProperty("cacheResultSetLayouts"), false));
         configuration.setDefaultResultSetType(resolveResultSetType(props.getProperty("defaultResultSetType")));
         configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
         configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
         configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));
+        configuration.setLocalCacheMaxEntries(integerValueOf(props.getProperty("localCacheMaxEntries"), 0));
+        configuration.setLocalCacheMaxRows(integerValueOf(props.getProperty("localCacheMaxRows"), 0));
         configuration.setJdbcTypeForNull(JdbcType.valueOf(props.getProperty("jdbcTypeForNull", "OTHER")));
         configuration.setLazyLoadTriggerMethods(stringSetValueOf(props.getProperty("lazyLoadTriggerMethods"), "equals,clone,hashCode,toString"));
         configuration.setSafeResultHandlerEnabled(booleanValueOf(props.getProperty("safeResultHandlerEnabled"), true));
@@ -302,6 +310,16 @@ public class XMLConfigBuilder extends BaseBuilder {
         configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
         configuration.setShrinkWhitespacesInSql(booleanValueOf(props.getProperty("shrinkWhitespacesInSql"), false));
         configuration.setDefaultSqlProviderType(resolveClass(props.getProperty("defaultSqlProviderType")));
+        configuration.setWarmUpConnections(integerValueOf(props.getProperty("warmUpConnections"), 0));
+        String warmUpStatements = props.getProperty("warmUpStatements");
+        configuration.setWarmUpStatements(warmUpStatements == null ? new HashSet<>() : stringSetValueOf(warmUpStatements, null));
+        configuration.setBatchFlushStatementCount(integerValueOf(props.getProperty("batchFlushStatementCount"), 0));
+        configuration.setBatchFlushRowCount(integerValueOf(props.getProperty("batchFlushRowCount"), 0));
+        configuration.setBatchFlushByteSize(integerValueOf(props.getProperty("batchFlushByteSize"), 0));
+        configuration.setRetainBatchParameterObjects(booleanValueOf(props.getProperty("retainBatchParameterObjects"), true));
+        configuration.setRetainFlushedBatchResults(booleanValueOf(props.getProperty("retainFlushedBatchResults"), true));
+        configuration.setGroupBatchStatements(booleanValueOf(props.getProperty("groupBatchStatements"), false));
+        configuration.setMultiRowInsertParameterLimit(integerValueOf(props.getProperty("multiRowInsertParameterLimit"), 0));
     }
 
     private void environmentsElement(XNode context) throws Exception {
@@ -0,0 +1,249 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.cursor.defaults.DefaultCursor;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+
+/**
+ * Publishes the results of a select statement to a single subscriber, fetching rows from the database only as the
+ * subscriber requests them.
+ * <p>
+ * The nested {@link Subscriber} and {@link Subscription} interfaces have the same methods as their
+ * <code>java.util.concurrent.Flow</code> and Reactive Streams counterparts, so adapting them takes a few lines on Java 9
+ * and later.
+ * <p>
+ * The statement is executed and rows are fetched on the given executor, never on the thread calling
+ * {@link Subscription#request(long)}. The demand becomes the fetch size of the result set, capped by the fetch size the
+ * statement was configured with, and no row is read ahead of the demand. The session is closed once the subscription
+ * ends by completion, error or cancellation, which closes the statement and releases the connection; it must not be
+ * used for anything else in the meantime.
+ *
+ * @param <T>
+ *          the type of the mapped objects
+ * @see SqlSession#selectPublisher(String, Object, RowBounds)
+ */
+public class CursorPublisher<T> {
+
+  private final SqlSession sqlSession;
+  private final String statement;
+  private final Object parameter;
+  private final RowBounds rowBounds;
+  private final Executor executor;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  public CursorPublisher(SqlSession sqlSession, String statement, Object parameter, RowBounds rowBounds,
+      Executor executor) {
+    this.sqlSession = sqlSession;
+    this.statement = statement;
+    this.parameter = parameter;
+    this.rowBounds = rowBounds;
+    this.executor = executor;
+  }
+
+  /**
+   * Subscribes to the results. The statement is executed on the first request.
+   *
+   * @param subscriber
+   *          the subscriber, which is signalled an error if this publisher already had one
+   */
+  public void subscribe(Subscriber<? super T> subscriber) {
+    Objects.requireNonNull(subscriber, "subscriber");
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new Subscription() {
+        @Override
+        public void request(long n) {
+          // already terminated
+        }
+
+        @Override
+        public void cancel() {
+          // already terminated
+        }
+      });
+      subscriber.onError(new IllegalStateException("A CursorPublisher can be subscribed only once."));
+      return;
+    }
+    subscriber.onSubscribe(new CursorSubscription(subscriber));
+  }
+
+  /**
+   * Receives the mapped objects, see <code>java.util.concurrent.Flow.Subscriber</code>.
+   *
+   * @param <T>
+   *          the type of the mapped objects
+   */
+  public interface Subscriber<T> {
+
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+  }
+
+  /**
+   * Links a subscriber to the publisher, see <code>java.util.concurrent.Flow.Subscription</code>.
+   */
+  public interface Subscription {
+
+    /**
+     * Requests more objects.
+     *
+     * @param n
+     *          the number of additional objects, <code>Long.MAX_VALUE</code> for all of them
+     */
+    void request(long n);
+
+    /**
+     * Stops the publication and closes the session. Objects already on their way may still be delivered.
+     */
+    void cancel();
+  }
+
+  private final class CursorSubscription implements Subscription, Runnable {
+
+    private final Subscriber<? super T> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    // number of signals not seen yet by the drain loop, which runs while it is positive
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile IllegalArgumentException invalidRequest;
+
+    // only accessed by the drain loop
+    private boolean done;
+    private Cursor<T> cursor;
+    private Iterator<T> iterator;
+    private int fetchSize;
+
+    CursorSubscription(Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("The number of requested objects must be positive but was " + n + ".");
+      } else {
+        demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (pending.getAndIncrement() == 0) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          pending.set(0);
+          done = true;
+          close();
+          subscriber.onError(e);
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        drain();
+        missed = pending.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void drain() {
+      if (done) {
+        return;
+      }
+      try {
+        long requested = demand.get();
+        while (!cancelled && invalidRequest == null && requested > 0) {
+          if (iterator == null) {
+            cursor = sqlSession.selectCursor(statement, parameter, rowBounds);
+            iterator = cursor.iterator();
+          }
+          adjustFetchSize(requested);
+          long emitted = 0;
+          while (emitted < requested && !cancelled) {
+            if (!iterator.hasNext()) {
+              done = true;
+              close();
+              subscriber.onComplete();
+              return;
+            }
+            subscriber.onNext(iterator.next());
+            emitted++;
+          }
+          requested = requested == Long.MAX_VALUE ? requested : demand.addAndGet(-emitted);
+        }
+      } catch (RuntimeException e) {
+        done = true;
+        close();
+        subscriber.onError(e);
+        return;
+      }
+      if (cancelled) {
+        done = true;
+        close();
+      } else if (invalidRequest != null) {
+        done = true;
+        close();
+        subscriber.onError(invalidRequest);
+      }
+    }
+
+    private void adjustFetchSize(long requested) {
+      if (requested != Long.MAX_VALUE && cursor instanceof DefaultCursor) {
+        int rows = (int) Math.min(requested, Integer.MAX_VALUE);
+        if (rows != fetchSize) {
+          fetchSize = rows;
+          ((DefaultCursor<T>) cursor).setFetchSize(rows);
+        }
+      }
+    }
+
+    private void close() {
+      try {
+        if (cursor != null) {
+          cursor.close();
+        }
+      } catch (Exception e) {
+        // ignore, the session is closed anyway
+      } finally {
+        sqlSession.close();
+      }
+    }
+  }
+
+}
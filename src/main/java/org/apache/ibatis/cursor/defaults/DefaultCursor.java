@@ -48,6 +48,7 @@ public class DefaultCursor<T> implements Cursor<T> {
 
   private CursorStatus status = CursorStatus.CREATED;
   private int indexWithRowBound = -1;
+  private int statementFetchSize = -1;
 
   private enum CursorStatus {
 
@@ -121,6 +122,28 @@ public class DefaultCursor<T> implements Cursor<T> {
     }
   }
 
+  /**
+   * Gives the driver a hint on the number of rows to fetch with the next round trip to the database. The hint is capped
+   * by the fetch size the statement was configured with, if any, and ignored by drivers that do not support it.
+   *
+   * @param rows
+   *          the number of rows
+   */
+  public void setFetchSize(int rows) {
+    if (isClosed()) {
+      return;
+    }
+    try {
+      ResultSet rs = rsw.getResultSet();
+      if (statementFetchSize < 0) {
+        statementFetchSize = rs.getFetchSize();
+      }
+      rs.setFetchSize(statementFetchSize > 0 ? Math.min(rows, statementFetchSize) : rows);
+    } catch (SQLException e) {
+      // ignore, it is only a hint
+    }
+  }
+
   protected T fetchNextUsingRowBound() {
     T result = fetchNextObjectFromDatabase();
     while (objectWrapperResultHandler.fetched && indexWithRowBound < rowBounds.getOffset()) {
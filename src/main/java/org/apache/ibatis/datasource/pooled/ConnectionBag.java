@@ -0,0 +1,417 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free container of pooled connections used when {@link PooledDataSource#isPoolConnectionBagEnabled()} is on.
+ * <p>
+ * Borrowing first tries the connection last returned by the calling thread, then scans the shared list, claiming an
+ * entry with a CAS on its state. Threads that find nothing register as waiters and receive returned connections
+ * through a fair hand-off queue. Asynchronous waiters are queued separately and served first, since completing their
+ * future never blocks the returning thread. When a connection is removed and its slot freed, one waiter is woken up
+ * with {@link #SLOT_FREED} so that it can open a new connection instead of sleeping until its timeout.
+ */
+class ConnectionBag {
+
+  static final int STATE_REMOVED = -1;
+  static final int STATE_IDLE = 0;
+  static final int STATE_IN_USE = 1;
+  static final int STATE_RESERVED = 2;
+
+  /**
+   * Handed to a waiter instead of an entry when a slot was freed; the waiter should try to reserve it.
+   */
+  static final Entry SLOT_FREED = new Entry(null, STATE_REMOVED);
+
+  private final CopyOnWriteArrayList<Entry> sharedList = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<WeakReference<Entry>> threadLastUsed = new ThreadLocal<>();
+  private final SynchronousQueue<Entry> handoffQueue = new SynchronousQueue<>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final ConcurrentLinkedQueue<CompletableFuture<Entry>> asyncWaiters = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger totalConnections = new AtomicInteger();
+  // the number of entries in each state, maintained on every state change so that counting needs no scan
+  private final AtomicIntegerArray stateCounts = new AtomicIntegerArray(3);
+
+  /**
+   * Claims an idle entry without blocking.
+   *
+   * @return the claimed entry, or <code>null</code> if no entry is idle
+   */
+  Entry poll() {
+    WeakReference<Entry> reference = threadLastUsed.get();
+    if (reference != null) {
+      Entry entry = reference.get();
+      if (entry != null && entry.compareAndSetState(STATE_IDLE, STATE_IN_USE)) {
+        return entry;
+      }
+    }
+    for (Entry entry : sharedList) {
+      if (entry.compareAndSetState(STATE_IDLE, STATE_IN_USE)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Waits for an entry to be handed off by a returning thread, or for a slot to be freed.
+   *
+   * @param maximum
+   *          the maximum number of connections the bag may hold
+   * @param timeout
+   *          the maximum time to wait
+   * @param unit
+   *          the unit of the timeout
+   * @return the claimed entry, {@link #SLOT_FREED} if a slot was freed, or <code>null</code> if the timeout elapsed
+   * @throws InterruptedException
+   *           if the current thread was interrupted while waiting
+   */
+  Entry await(int maximum, long timeout, TimeUnit unit) throws InterruptedException {
+    waiters.incrementAndGet();
+    try {
+      // an entry may have been returned or a slot freed before this thread was registered as a waiter
+      Entry entry = poll();
+      if (entry != null) {
+        return entry;
+      }
+      if (totalConnections.get() < maximum) {
+        return SLOT_FREED;
+      }
+      long remaining = unit.toNanos(timeout);
+      final long deadline = System.nanoTime() + remaining;
+      while (remaining > 0) {
+        entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null || entry == SLOT_FREED) {
+          return entry;
+        }
+        if (entry.compareAndSetState(STATE_IDLE, STATE_IN_USE)) {
+          return entry;
+        }
+        remaining = deadline - System.nanoTime();
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Registers an asynchronous waiter. The returned future is completed with a borrowed entry once one is returned to
+   * the bag, or with {@link #SLOT_FREED} once a slot is freed. Whoever gives up waiting should complete it with
+   * <code>null</code>; if that fails, an entry has been handed off or a slot freed.
+   *
+   * @param maximum
+   *          the maximum number of connections the bag may hold
+   * @return the waiter
+   */
+  CompletableFuture<Entry> registerAsyncWaiter(int maximum) {
+    CompletableFuture<Entry> waiter = new CompletableFuture<>();
+    asyncWaiters.add(waiter);
+    // an entry may have been returned or a slot freed before the waiter was registered
+    Entry entry = poll();
+    if (entry != null) {
+      if (!waiter.complete(entry)) {
+        requite(entry);
+      }
+    } else if (totalConnections.get() < maximum && waiter.complete(SLOT_FREED)) {
+      asyncWaiters.remove(waiter);
+    }
+    return waiter;
+  }
+
+  void removeAsyncWaiter(CompletableFuture<Entry> waiter) {
+    asyncWaiters.remove(waiter);
+  }
+
+  /**
+   * Returns a borrowed entry to the bag, handing it directly to a waiting thread if there is one.
+   *
+   * @param entry
+   *          the entry to return
+   */
+  void requite(Entry entry) {
+    release(entry, STATE_IN_USE);
+  }
+
+  /**
+   * Reserves an idle entry so that it cannot be borrowed, e.g. while it is validated by the housekeeper.
+   *
+   * @param entry
+   *          the entry to reserve
+   * @return true if the entry was idle and is now reserved
+   */
+  boolean reserve(Entry entry) {
+    return entry.compareAndSetState(STATE_IDLE, STATE_RESERVED);
+  }
+
+  /**
+   * Makes a reserved entry available again.
+   *
+   * @param entry
+   *          the entry to release
+   */
+  void unreserve(Entry entry) {
+    release(entry, STATE_RESERVED);
+  }
+
+  private void release(Entry entry, int fromState) {
+    if (!asyncWaiters.isEmpty() && entry.compareAndSetState(fromState, STATE_IN_USE)) {
+      CompletableFuture<Entry> waiter;
+      while ((waiter = asyncWaiters.poll()) != null) {
+        if (waiter.complete(entry)) {
+          return;
+        }
+      }
+      fromState = STATE_IN_USE;
+    }
+    if (!entry.compareAndSetState(fromState, STATE_IDLE)) {
+      // removed while it was checked out or reserved
+      return;
+    }
+    while (waiters.get() > 0) {
+      if (entry.getState() != STATE_IDLE || handoffQueue.offer(entry)) {
+        return;
+      }
+      Thread.yield();
+    }
+    threadLastUsed.set(new WeakReference<>(entry));
+  }
+
+  /**
+   * Reserves capacity for a new connection.
+   *
+   * @param maximum
+   *          the maximum number of connections the bag may hold
+   * @return true if a slot was reserved and the caller must either {@link #add(Entry)} an entry or
+   *         {@link #releaseSlot()}
+   */
+  boolean tryReserveSlot(int maximum) {
+    for (;;) {
+      int current = totalConnections.get();
+      if (current >= maximum) {
+        return false;
+      }
+      if (totalConnections.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  void releaseSlot() {
+    totalConnections.decrementAndGet();
+    signalSlotFreed();
+  }
+
+  /**
+   * Wakes up one waiter so that it can reserve the slot just freed.
+   */
+  private void signalSlotFreed() {
+    CompletableFuture<Entry> waiter;
+    while ((waiter = asyncWaiters.poll()) != null) {
+      if (waiter.complete(SLOT_FREED)) {
+        return;
+      }
+    }
+    while (waiters.get() > 0) {
+      if (handoffQueue.offer(SLOT_FREED)) {
+        return;
+      }
+      Thread.yield();
+    }
+  }
+
+  /**
+   * Adds an entry into a previously reserved slot. The entry keeps its current state.
+   *
+   * @param entry
+   *          the entry to add
+   */
+  void add(Entry entry) {
+    entry.bag = this;
+    stateChanged(STATE_REMOVED, entry.getState());
+    sharedList.add(entry);
+  }
+
+  /**
+   * Removes an entry from the bag and frees its slot.
+   *
+   * @param entry
+   *          the entry to remove
+   * @return true if this call removed the entry
+   */
+  boolean remove(Entry entry) {
+    int state;
+    do {
+      state = entry.getState();
+      if (state == STATE_REMOVED) {
+        return false;
+      }
+    } while (!entry.compareAndSetState(state, STATE_REMOVED));
+    if (sharedList.remove(entry)) {
+      releaseSlot();
+    }
+    return true;
+  }
+
+  List<Entry> values() {
+    return sharedList;
+  }
+
+  int getCount(int state) {
+    return stateCounts.get(state);
+  }
+
+  private void stateChanged(int from, int to) {
+    if (from != STATE_REMOVED) {
+      stateCounts.decrementAndGet(from);
+    }
+    if (to != STATE_REMOVED) {
+      stateCounts.incrementAndGet(to);
+    }
+  }
+
+  int getWaiterCount() {
+    return waiters.get() + asyncWaiters.size();
+  }
+
+  boolean hasWaiters() {
+    return waiters.get() > 0 || !asyncWaiters.isEmpty();
+  }
+
+  /**
+   * A physical connection held by the bag. A new {@link PooledConnection} is wrapped around it for every checkout, and
+   * ownership is tracked so that a wrapper claimed as overdue can no longer return the connection.
+   */
+  static final class Entry {
+
+    private final AtomicInteger state;
+    private final AtomicReference<PooledConnection> owner = new AtomicReference<>();
+    private final Connection realConnection;
+    private volatile long createdTimestamp;
+    private volatile long lastUsedTimestamp;
+    private volatile long checkoutTimestamp;
+    private volatile long lastValidatedTimestamp;
+    private volatile PreparedStatementCache statementCache;
+    // the bag the entry was added to, whose state counts it keeps up to date
+    private volatile ConnectionBag bag;
+
+    Entry(Connection realConnection, int initialState) {
+      this.realConnection = realConnection;
+      this.state = new AtomicInteger(initialState);
+      this.createdTimestamp = System.currentTimeMillis();
+      this.lastUsedTimestamp = createdTimestamp;
+    }
+
+    Connection getRealConnection() {
+      return realConnection;
+    }
+
+    int getState() {
+      return state.get();
+    }
+
+    void setState(int newState) {
+      int oldState = state.getAndSet(newState);
+      ConnectionBag container = bag;
+      if (container != null) {
+        container.stateChanged(oldState, newState);
+      }
+    }
+
+    boolean compareAndSetState(int expect, int update) {
+      if (!state.compareAndSet(expect, update)) {
+        return false;
+      }
+      ConnectionBag container = bag;
+      if (container != null) {
+        container.stateChanged(expect, update);
+      }
+      return true;
+    }
+
+    PooledConnection getOwner() {
+      return owner.get();
+    }
+
+    void setOwner(PooledConnection conn) {
+      owner.set(conn);
+    }
+
+    boolean compareAndSetOwner(PooledConnection expect, PooledConnection update) {
+      return owner.compareAndSet(expect, update);
+    }
+
+    long getCreatedTimestamp() {
+      return createdTimestamp;
+    }
+
+    void setCreatedTimestamp(long createdTimestamp) {
+      this.createdTimestamp = createdTimestamp;
+    }
+
+    long getLastUsedTimestamp() {
+      return lastUsedTimestamp;
+    }
+
+    void setLastUsedTimestamp(long lastUsedTimestamp) {
+      this.lastUsedTimestamp = lastUsedTimestamp;
+    }
+
+    long getCheckoutTimestamp() {
+      return checkoutTimestamp;
+    }
+
+    void setCheckoutTimestamp(long checkoutTimestamp) {
+      this.checkoutTimestamp = checkoutTimestamp;
+    }
+
+    long getLastValidatedTimestamp() {
+      return lastValidatedTimestamp;
+    }
+
+    void setLastValidatedTimestamp(long lastValidatedTimestamp) {
+      this.lastValidatedTimestamp = lastValidatedTimestamp;
+    }
+
+    PreparedStatementCache getStatementCache() {
+      return statementCache;
+    }
+
+    void setStatementCache(PreparedStatementCache statementCache) {
+      this.statementCache = statementCache;
+    }
+
+    long getAge() {
+      return System.currentTimeMillis() - createdTimestamp;
+    }
+
+    long getCheckoutTime() {
+      return System.currentTimeMillis() - checkoutTimestamp;
+    }
+  }
+}
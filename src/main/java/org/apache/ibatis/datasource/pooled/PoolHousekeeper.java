@@ -0,0 +1,69 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Periodically runs {@link PooledDataSource#housekeep()} on a daemon thread.
+ * <p>
+ * The data source is only weakly referenced so that an abandoned pool can still be garbage collected. The housekeeper
+ * stops itself once that happens.
+ */
+class PoolHousekeeper implements Runnable {
+
+  private static final Log log = LogFactory.getLog(PoolHousekeeper.class);
+  private static final AtomicInteger threadNumber = new AtomicInteger();
+
+  private final WeakReference<PooledDataSource> dataSource;
+  private final ScheduledExecutorService executor;
+
+  PoolHousekeeper(PooledDataSource dataSource, long intervalMillis) {
+    this.dataSource = new WeakReference<>(dataSource);
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-pool-housekeeper-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor.scheduleWithFixedDelay(this, 0, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void run() {
+    PooledDataSource ds = dataSource.get();
+    if (ds == null) {
+      executor.shutdown();
+      return;
+    }
+    try {
+      ds.housekeep();
+    } catch (Exception e) {
+      log.warn("Pool housekeeping failed. Cause: " + e);
+    }
+  }
+
+  void shutdown() {
+    executor.shutdown();
+  }
+
+}
@@ -0,0 +1,66 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * Receives timing events from a {@link PooledDataSource}, e.g. to publish them to a metrics library.
+ * <p>
+ * Callbacks are invoked on the thread that checks out or returns the connection, so implementations must be
+ * thread-safe and should not block. Gauges such as the number of active and idle connections can be read from
+ * {@link PoolState} at any time.
+ *
+ * @see PooledDataSource#setPoolMetricsTracker(PoolMetricsTracker)
+ */
+public interface PoolMetricsTracker {
+
+  /**
+   * Called when a connection has been checked out.
+   *
+   * @param nanos
+   *          the time the request waited for the connection, including opening and validating it
+   */
+  default void recordWaitTime(long nanos) {
+  }
+
+  /**
+   * Called when a connection is returned to the pool, or claimed back because it was overdue.
+   *
+   * @param nanos
+   *          the time the connection was checked out
+   */
+  default void recordCheckoutTime(long nanos) {
+  }
+
+  /**
+   * Called when a physical connection has been opened.
+   *
+   * @param nanos
+   *          the time it took to open the connection
+   */
+  default void recordConnectionCreationTime(long nanos) {
+  }
+
+  /**
+   * Called when a connection has been validated with the ping query or {@link java.sql.Connection#isValid(int)},
+   * whether or not it turned out to be good.
+   *
+   * @param nanos
+   *          the time it took to validate the connection
+   */
+  default void recordValidationTime(long nanos) {
+  }
+
+}
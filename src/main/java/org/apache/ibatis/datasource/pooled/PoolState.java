@@ -15,100 +15,403 @@
  */
 package org.apache.ibatis.datasource.pooled;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author Clinton Begin
  */
-public class PoolState {
+public class PoolState implements PoolStateMXBean {
 
   protected PooledDataSource dataSource;
 
+  // the pool lock, a ReentrantLock rather than a monitor so that virtual threads doing JDBC calls while holding it
+  // do not pin their carrier thread
+  final ReentrantLock lock = new ReentrantLock();
+
   protected final List<PooledConnection> idleConnections = new ArrayList<>();
   protected final List<PooledConnection> activeConnections = new ArrayList<>();
-  protected long requestCount = 0;
-  protected long accumulatedRequestTime = 0;
-  protected long accumulatedCheckoutTime = 0;
-  protected long claimedOverdueConnectionCount = 0;
-  protected long accumulatedCheckoutTimeOfOverdueConnections = 0;
-  protected long accumulatedWaitTime = 0;
-  protected long hadToWaitCount = 0;
-  protected long badConnectionCount = 0;
+  // idle connections taken out of the idle list while the housekeeper pings them
+  final List<PooledConnection> validatingConnections = new ArrayList<>();
+  // requests waiting for a connection, in arrival order
+  final Deque<CompletableFuture<PooledConnection>> waiters = new ArrayDeque<>();
+  // the sizes of the collections above, published by unlock() so that the gauges are read without the pool lock
+  private volatile int idleConnectionCount;
+  private volatile int activeConnectionCount;
+  private volatile int waiterCount;
+  // written while holding the pool lock, read without it
+  protected volatile long requestCount = 0;
+  protected volatile long accumulatedRequestTime = 0;
+  protected volatile long accumulatedCheckoutTime = 0;
+  protected volatile long claimedOverdueConnectionCount = 0;
+  protected volatile long accumulatedCheckoutTimeOfOverdueConnections = 0;
+  protected volatile long accumulatedWaitTime = 0;
+  protected volatile long hadToWaitCount = 0;
+  protected volatile long badConnectionCount = 0;
+
+  final ConnectionBag connectionBag = new ConnectionBag();
+  // statistics of the connection bag mode, updated without holding the pool lock
+  private final LongAdder bagRequestCount = new LongAdder();
+  private final LongAdder bagAccumulatedRequestTime = new LongAdder();
+  private final LongAdder bagAccumulatedCheckoutTime = new LongAdder();
+  private final LongAdder bagClaimedOverdueConnectionCount = new LongAdder();
+  private final LongAdder bagAccumulatedCheckoutTimeOfOverdueConnections = new LongAdder();
+  private final LongAdder bagAccumulatedWaitTime = new LongAdder();
+  private final LongAdder bagHadToWaitCount = new LongAdder();
+  private final LongAdder bagBadConnectionCount = new LongAdder();
+
+  // statistics of the prepared statement caches of all connections
+  private final LongAdder statementCacheHitCount = new LongAdder();
+  private final LongAdder statementCacheMissCount = new LongAdder();
+  private final LongAdder statementCacheEvictionCount = new LongAdder();
+
+  // latency distributions in nanoseconds, recorded without holding the pool lock
+  private final LatencyHistogram waitTimeHistogram = new LatencyHistogram();
+  private final LatencyHistogram checkoutTimeHistogram = new LatencyHistogram();
+  private final LatencyHistogram connectionCreationTimeHistogram = new LatencyHistogram();
+  private final LatencyHistogram validationTimeHistogram = new LatencyHistogram();
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
-    return requestCount;
+  /**
+   * Publishes the sizes of the connection lists and the wait queue, then releases the pool lock.
+   */
+  void unlock() {
+    idleConnectionCount = idleConnections.size();
+    activeConnectionCount = activeConnections.size();
+    waiterCount = waiters.size();
+    lock.unlock();
+  }
+
+  void recordBagRequest(long requestTime) {
+    bagRequestCount.increment();
+    bagAccumulatedRequestTime.add(requestTime);
+  }
+
+  void recordBagCheckout(long checkoutTime) {
+    bagAccumulatedCheckoutTime.add(checkoutTime);
+    recordCheckoutTime(checkoutTime);
+  }
+
+  void recordBagOverdueClaim(long checkoutTime) {
+    bagClaimedOverdueConnectionCount.increment();
+    bagAccumulatedCheckoutTimeOfOverdueConnections.add(checkoutTime);
+    bagAccumulatedCheckoutTime.add(checkoutTime);
+    recordCheckoutTime(checkoutTime);
+  }
+
+  void recordBagHadToWait() {
+    bagHadToWaitCount.increment();
+  }
+
+  void recordBagWait(long waitTime) {
+    bagAccumulatedWaitTime.add(waitTime);
+  }
+
+  void recordBagBadConnection() {
+    bagBadConnectionCount.increment();
+  }
+
+  void recordStatementCacheHit() {
+    statementCacheHitCount.increment();
+  }
+
+  void recordStatementCacheMiss() {
+    statementCacheMissCount.increment();
+  }
+
+  void recordStatementCacheEviction() {
+    statementCacheEvictionCount.increment();
+  }
+
+  void recordWaitTime(long nanos) {
+    waitTimeHistogram.record(nanos);
+    PoolMetricsTracker tracker = dataSource.poolMetricsTracker;
+    if (tracker != null) {
+      tracker.recordWaitTime(nanos);
+    }
+  }
+
+  void recordCheckoutTime(long millis) {
+    long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    checkoutTimeHistogram.record(nanos);
+    PoolMetricsTracker tracker = dataSource.poolMetricsTracker;
+    if (tracker != null) {
+      tracker.recordCheckoutTime(nanos);
+    }
+  }
+
+  void recordConnectionCreationTime(long nanos) {
+    connectionCreationTimeHistogram.record(nanos);
+    PoolMetricsTracker tracker = dataSource.poolMetricsTracker;
+    if (tracker != null) {
+      tracker.recordConnectionCreationTime(nanos);
+    }
+  }
+
+  void recordValidationTime(long nanos) {
+    validationTimeHistogram.record(nanos);
+    PoolMetricsTracker tracker = dataSource.poolMetricsTracker;
+    if (tracker != null) {
+      tracker.recordValidationTime(nanos);
+    }
+  }
+
+  /**
+   * Gets the distribution of the time requests waited for a connection, including opening and validating it.
+   *
+   * @return the histogram, in nanoseconds
+   */
+  public LatencyHistogram getWaitTimeHistogram() {
+    return waitTimeHistogram;
+  }
+
+  /**
+   * Gets the distribution of the time connections were checked out.
+   *
+   * @return the histogram, in nanoseconds
+   */
+  public LatencyHistogram getCheckoutTimeHistogram() {
+    return checkoutTimeHistogram;
+  }
+
+  /**
+   * Gets the distribution of the time it took to open physical connections.
+   *
+   * @return the histogram, in nanoseconds
+   */
+  public LatencyHistogram getConnectionCreationTimeHistogram() {
+    return connectionCreationTimeHistogram;
+  }
+
+  /**
+   * Gets the distribution of the time it took to validate connections with the ping query or
+   * {@link java.sql.Connection#isValid(int)}.
+   *
+   * @return the histogram, in nanoseconds
+   */
+  public LatencyHistogram getValidationTimeHistogram() {
+    return validationTimeHistogram;
+  }
+
+  @Override
+  public double getWaitTime50thPercentile() {
+    return toMillis(waitTimeHistogram.getPercentile(50));
+  }
+
+  @Override
+  public double getWaitTime95thPercentile() {
+    return toMillis(waitTimeHistogram.getPercentile(95));
+  }
+
+  @Override
+  public double getWaitTime99thPercentile() {
+    return toMillis(waitTimeHistogram.getPercentile(99));
+  }
+
+  @Override
+  public double getWaitTimeMax() {
+    return toMillis(waitTimeHistogram.getMax());
+  }
+
+  @Override
+  public double getCheckoutTime50thPercentile() {
+    return toMillis(checkoutTimeHistogram.getPercentile(50));
+  }
+
+  @Override
+  public double getCheckoutTime95thPercentile() {
+    return toMillis(checkoutTimeHistogram.getPercentile(95));
+  }
+
+  @Override
+  public double getCheckoutTime99thPercentile() {
+    return toMillis(checkoutTimeHistogram.getPercentile(99));
+  }
+
+  @Override
+  public double getCheckoutTimeMax() {
+    return toMillis(checkoutTimeHistogram.getMax());
+  }
+
+  @Override
+  public double getConnectionCreationTime50thPercentile() {
+    return toMillis(connectionCreationTimeHistogram.getPercentile(50));
+  }
+
+  @Override
+  public double getConnectionCreationTime95thPercentile() {
+    return toMillis(connectionCreationTimeHistogram.getPercentile(95));
+  }
+
+  @Override
+  public double getConnectionCreationTime99thPercentile() {
+    return toMillis(connectionCreationTimeHistogram.getPercentile(99));
   }
 
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  @Override
+  public double getConnectionCreationTimeMax() {
+    return toMillis(connectionCreationTimeHistogram.getMax());
   }
 
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  @Override
+  public double getValidationTime50thPercentile() {
+    return toMillis(validationTimeHistogram.getPercentile(50));
+  }
+
+  @Override
+  public double getValidationTime95thPercentile() {
+    return toMillis(validationTimeHistogram.getPercentile(95));
+  }
 
+  @Override
+  public double getValidationTime99thPercentile() {
+    return toMillis(validationTimeHistogram.getPercentile(99));
   }
 
-  public synchronized long getHadToWaitCount() {
-    return hadToWaitCount;
+  @Override
+  public double getValidationTimeMax() {
+    return toMillis(validationTimeHistogram.getMax());
   }
 
-  public synchronized long getBadConnectionCount() {
-    return badConnectionCount;
+  private static double toMillis(long nanos) {
+    return nanos / 1_000_000.0;
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
-    return claimedOverdueConnectionCount;
+  @Override
+  public long getRequestCount() {
+    return requestCount + bagRequestCount.sum();
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  @Override
+  public long getAverageRequestTime() {
+    long count = getRequestCount();
+    return count == 0 ? 0 : (accumulatedRequestTime + bagAccumulatedRequestTime.sum()) / count;
   }
 
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  @Override
+  public long getAverageWaitTime() {
+    long count = getHadToWaitCount();
+    return count == 0 ? 0 : (accumulatedWaitTime + bagAccumulatedWaitTime.sum()) / count;
   }
 
-  public synchronized int getIdleConnectionCount() {
-    return idleConnections.size();
+  @Override
+  public long getHadToWaitCount() {
+    return hadToWaitCount + bagHadToWaitCount.sum();
   }
 
-  public synchronized int getActiveConnectionCount() {
-    return activeConnections.size();
+  @Override
+  public long getBadConnectionCount() {
+    return badConnectionCount + bagBadConnectionCount.sum();
+  }
+
+  @Override
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCount + bagClaimedOverdueConnectionCount.sum();
+  }
+
+  public long getAverageOverdueCheckoutTime() {
+    long count = getClaimedOverdueConnectionCount();
+    return count == 0 ? 0 : (accumulatedCheckoutTimeOfOverdueConnections + bagAccumulatedCheckoutTimeOfOverdueConnections.sum()) / count;
+  }
+
+  @Override
+  public long getAverageCheckoutTime() {
+    long count = getRequestCount();
+    return count == 0 ? 0 : (accumulatedCheckoutTime + bagAccumulatedCheckoutTime.sum()) / count;
+  }
+
+  @Override
+  public long getStatementCacheHitCount() {
+    return statementCacheHitCount.sum();
+  }
+
+  @Override
+  public long getStatementCacheMissCount() {
+    return statementCacheMissCount.sum();
+  }
+
+  @Override
+  public long getStatementCacheEvictionCount() {
+    return statementCacheEvictionCount.sum();
+  }
+
+  @Override
+  public int getIdleConnectionCount() {
+    return idleConnectionCount + connectionBag.getCount(ConnectionBag.STATE_IDLE);
+  }
+
+  @Override
+  public int getActiveConnectionCount() {
+    return activeConnectionCount + connectionBag.getCount(ConnectionBag.STATE_IN_USE);
+  }
+
+  @Override
+  public int getPendingRequestCount() {
+    return waiterCount + connectionBag.getWaiterCount();
   }
 
   @Override
-  public synchronized String toString() {
-    StringBuilder builder = new StringBuilder();
-    builder.append("\n===CONFINGURATION==============================================");
-    builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
-    builder.append("\n jdbcUrl                        ").append(dataSource.getUrl());
-    builder.append("\n jdbcUsername                   ").append(dataSource.getUsername());
-    builder.append("\n jdbcPassword                   ").append(dataSource.getPassword() == null ? "NULL" : "************");
-    builder.append("\n poolMaxActiveConnections       ").append(dataSource.poolMaximumActiveConnections);
-    builder.append("\n poolMaxIdleConnections         ").append(dataSource.poolMaximumIdleConnections);
-    builder.append("\n poolMaxCheckoutTime            ").append(dataSource.poolMaximumCheckoutTime);
-    builder.append("\n poolTimeToWait                 ").append(dataSource.poolTimeToWait);
-    builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
-    builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
-    builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
-    builder.append("\n ---STATUS-----------------------------------------------------");
-    builder.append("\n activeConnections              ").append(getActiveConnectionCount());
-    builder.append("\n idleConnections                ").append(getIdleConnectionCount());
-    builder.append("\n requestCount                   ").append(getRequestCount());
-    builder.append("\n averageRequestTime             ").append(getAverageRequestTime());
-    builder.append("\n averageCheckoutTime            ").append(getAverageCheckoutTime());
-    builder.append("\n claimedOverdue                 ").append(getClaimedOverdueConnectionCount());
-    builder.append("\n averageOverdueCheckoutTime     ").append(getAverageOverdueCheckoutTime());
-    builder.append("\n hadToWait                      ").append(getHadToWaitCount());
-    builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
-    builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
-    builder.append("\n===============================================================");
-    return builder.toString();
+  public String toString() {
+    lock.lock();
+    try {
+      StringBuilder builder = new StringBuilder();
+      builder.append("\n===CONFINGURATION==============================================");
+      builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
+      builder.append("\n jdbcUrl                        ").append(dataSource.getUrl());
+      builder.append("\n jdbcUsername                   ").append(dataSource.getUsername());
+      builder.append("\n jdbcPassword                   ").append(dataSource.getPassword() == null ? "NULL" : "************");
+      builder.append("\n poolMaxActiveConnections       ").append(dataSource.poolMaximumActiveConnections);
+      builder.append("\n poolMaxIdleConnections         ").append(dataSource.poolMaximumIdleConnections);
+      builder.append("\n poolMaxCheckoutTime            ").append(dataSource.poolMaximumCheckoutTime);
+      builder.append("\n poolTimeToWait                 ").append(dataSource.poolTimeToWait);
+      builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
+      builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
+      builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+      builder.append("\n poolPingUseIsValid             ").append(dataSource.poolPingUseIsValid);
+      builder.append("\n poolPingTimeout                ").append(dataSource.poolPingTimeout);
+      builder.append("\n poolPingSkipWindow             ").append(dataSource.poolPingSkipWindow);
+      builder.append("\n poolConnectionBagEnabled       ").append(dataSource.poolConnectionBagEnabled);
+      builder.append("\n poolMinIdleConnections         ").append(dataSource.poolMinimumIdleConnections);
+      builder.append("\n poolMaxIdleTime                ").append(dataSource.poolMaximumIdleTime);
+      builder.append("\n poolMaxLifetime                ").append(dataSource.poolMaximumLifetime);
+      builder.append("\n poolHousekeepingInterval       ").append(dataSource.poolHousekeepingInterval);
+      builder.append("\n poolPreparedStatementCacheSize ").append(dataSource.poolPreparedStatementCacheSize);
+      builder.append("\n ---STATUS-----------------------------------------------------");
+      builder.append("\n activeConnections              ").append(getActiveConnectionCount());
+      builder.append("\n idleConnections                ").append(getIdleConnectionCount());
+      builder.append("\n requestCount                   ").append(getRequestCount());
+      builder.append("\n averageRequestTime             ").append(getAverageRequestTime());
+      builder.append("\n averageCheckoutTime            ").append(getAverageCheckoutTime());
+      builder.append("\n claimedOverdue                 ").append(getClaimedOverdueConnectionCount());
+      builder.append("\n averageOverdueCheckoutTime     ").append(getAverageOverdueCheckoutTime());
+      builder.append("\n hadToWait                      ").append(getHadToWaitCount());
+      builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
+      builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+      builder.append("\n pendingRequests                ").append(getPendingRequestCount());
+      builder.append("\n statementCache hit/miss/evict  ").append(getStatementCacheHitCount()).append(" / ")
+          .append(getStatementCacheMissCount()).append(" / ").append(getStatementCacheEvictionCount());
+      builder.append("\n waitTime p50/p99/max (ms)      ").append(getWaitTime50thPercentile()).append(" / ")
+          .append(getWaitTime99thPercentile()).append(" / ").append(getWaitTimeMax());
+      builder.append("\n checkoutTime p50/p99/max (ms)  ").append(getCheckoutTime50thPercentile()).append(" / ")
+          .append(getCheckoutTime99thPercentile()).append(" / ").append(getCheckoutTimeMax());
+      builder.append("\n creationTime p50/p99/max (ms)  ").append(getConnectionCreationTime50thPercentile()).append(" / ")
+          .append(getConnectionCreationTime99thPercentile()).append(" / ").append(getConnectionCreationTimeMax());
+      builder.append("\n validationTime p50/p99/max    ").append(getValidationTime50thPercentile()).append(" / ")
+          .append(getValidationTime99thPercentile()).append(" / ").append(getValidationTimeMax());
+      builder.append("\n===============================================================");
+      return builder.toString();
+    } finally {
+      lock.unlock();
+    }
   }
 
 }
@@ -0,0 +1,82 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * The management interface of a {@link PoolState}, registered with the platform MBean server when
+ * {@link PooledDataSource#setPoolJmxName(String)} is set. Latencies are in milliseconds.
+ */
+public interface PoolStateMXBean {
+
+  int getActiveConnectionCount();
+
+  int getIdleConnectionCount();
+
+  int getPendingRequestCount();
+
+  long getRequestCount();
+
+  long getHadToWaitCount();
+
+  long getBadConnectionCount();
+
+  long getClaimedOverdueConnectionCount();
+
+  long getStatementCacheHitCount();
+
+  long getStatementCacheMissCount();
+
+  long getStatementCacheEvictionCount();
+
+  long getAverageRequestTime();
+
+  long getAverageWaitTime();
+
+  long getAverageCheckoutTime();
+
+  double getWaitTime50thPercentile();
+
+  double getWaitTime95thPercentile();
+
+  double getWaitTime99thPercentile();
+
+  double getWaitTimeMax();
+
+  double getCheckoutTime50thPercentile();
+
+  double getCheckoutTime95thPercentile();
+
+  double getCheckoutTime99thPercentile();
+
+  double getCheckoutTimeMax();
+
+  double getConnectionCreationTime50thPercentile();
+
+  double getConnectionCreationTime95thPercentile();
+
+  double getConnectionCreationTime99thPercentile();
+
+  double getConnectionCreationTimeMax();
+
+  double getValidationTime50thPercentile();
+
+  double getValidationTime95thPercentile();
+
+  double getValidationTime99thPercentile();
+
+  double getValidationTimeMax();
+
+}
@@ -0,0 +1,50 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A daemon timer shared by all pools, used to time out asynchronous connection requests. Its tasks only schedule the
+ * work; retries and completions run on {@link PooledDataSource#getPoolAsyncExecutor()}.
+ */
+final class PoolTimer {
+
+  private PoolTimer() {
+    // Prevent Instantiation
+  }
+
+  static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+    return Holder.EXECUTOR.schedule(task, delay, unit);
+  }
+
+  private static class Holder {
+    private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private static ScheduledThreadPoolExecutor createExecutor() {
+      ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "mybatis-pool-timer");
+        thread.setDaemon(true);
+        return thread;
+      });
+      executor.setRemoveOnCancelPolicy(true);
+      return executor;
+    }
+  }
+
+}
@@ -38,8 +38,11 @@ class PooledConnection implements InvocationHandler {
     private long checkoutTimestamp;
     private long createdTimestamp;
     private long lastUsedTimestamp;
+    private long lastValidatedTimestamp;
     private int connectionTypeCode;
     private boolean valid;
+    private ConnectionBag.Entry bagEntry;
+    private PreparedStatementCache statementCache;
 
     /**
      * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
@@ -75,6 +78,32 @@ class PooledConnection implements InvocationHandler {
         return valid && realConnection != null && dataSource.pingConnection(this);
     }
 
+    /**
+     * Getter for the connection bag entry this connection was checked out from.
+     *
+     * @return The entry, or null if the connection is not managed by a connection bag
+     */
+    ConnectionBag.Entry getBagEntry() {
+        return bagEntry;
+    }
+
+    void setBagEntry(ConnectionBag.Entry bagEntry) {
+        this.bagEntry = bagEntry;
+    }
+
+    /**
+     * Getter for the prepared statement cache of the real connection.
+     *
+     * @return The cache, or null if no statement has been cached yet
+     */
+    PreparedStatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    void setStatementCache(PreparedStatementCache statementCache) {
+        this.statementCache = statementCache;
+    }
+
     /**
      * Getter for the *real* connection that this wraps.
      *
@@ -159,6 +188,25 @@ class PooledConnection implements InvocationHandler {
         this.lastUsedTimestamp = lastUsedTimestamp;
     }
 
+    /**
+     * Getter for the time that the connection was last validated in the background.
+     *
+     * @return - the timestamp, or 0 if the connection has never been validated in the background
+     */
+    public long getLastValidatedTimestamp() {
+        return lastValidatedTimestamp;
+    }
+
+    /**
+     * Setter for the time that the connection was last validated in the background.
+     *
+     * @param lastValidatedTimestamp
+     *          - the timestamp
+     */
+    public void setLastValidatedTimestamp(long lastValidatedTimestamp) {
+        this.lastValidatedTimestamp = lastValidatedTimestamp;
+    }
+
     /**
      * Getter for the time since this connection was last used.
      *
@@ -251,6 +299,12 @@ class PooledConnection implements InvocationHandler {
             if (!Object.class.equals(method.getDeclaringClass())) {
                 // 只要不是Object的方法，都需要检测当前PooledConnection是否可用
                 checkConnection();
+                if (dataSource.poolPreparedStatementCacheSize > 0 && PreparedStatementCache.isCacheable(method)) {
+                    if (statementCache == null) {
+                        statementCache = new PreparedStatementCache(dataSource.poolPreparedStatementCacheSize, dataSource.getPoolState());
+                    }
+                    return statementCache.prepareStatement(realConnection, args);
+                }
             }
             // 调用realConnection的对应方法
             return method.invoke(realConnection, args);
@@ -16,20 +16,40 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 import javax.sql.DataSource;
 
+import org.apache.ibatis.datasource.DataSourceException;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.session.Deadline;
 
 /**
  * This is a simple, synchronous, thread-safe database connection pool.
@@ -53,8 +73,21 @@ public class PooledDataSource implements DataSource {
     protected String poolPingQuery = "NO PING QUERY SET";
     protected boolean poolPingEnabled;
     protected int poolPingConnectionsNotUsedFor;
+    protected boolean poolPingUseIsValid;
+    protected int poolPingTimeout;
+    protected int poolPingSkipWindow;
+    protected boolean poolConnectionBagEnabled;
+    protected int poolMinimumIdleConnections;
+    protected int poolMaximumIdleTime;
+    protected int poolMaximumLifetime;
+    protected int poolHousekeepingInterval;
+    protected int poolPreparedStatementCacheSize;
+    protected PoolMetricsTracker poolMetricsTracker;
+    protected String poolJmxName;
+    protected Executor poolAsyncExecutor;
 
     private int expectedConnectionTypeCode;
+    private volatile PoolHousekeeper housekeeper;
 
     public PooledDataSource() {
         dataSource = new UnpooledDataSource();
@@ -94,6 +127,32 @@ public class PooledDataSource implements DataSource {
         return popConnection(username, password).getProxyConnection();
     }
 
+    /**
+     * Checks out a connection without blocking the calling thread while the pool is exhausted. Requests are served in
+     * arrival order together with threads blocked in {@link #getConnection()}, and each returned connection is handed
+     * to exactly one waiter. If the request has to wait, the future is completed on the
+     * {@link #getPoolAsyncExecutor() async executor}.
+     *
+     * @param timeout
+     *          the maximum time to wait for a connection
+     * @return a future completed with the connection, or exceptionally with a {@link SQLTimeoutException} if none
+     *         became available in time
+     */
+    public CompletableFuture<Connection> getConnectionAsync(Duration timeout) {
+        if (poolHousekeepingInterval > 0 && housekeeper == null) {
+            startHousekeeper();
+        }
+        CompletableFuture<Connection> result = new CompletableFuture<>();
+        Checkout checkout = new Checkout(dataSource.getUsername(), dataSource.getPassword());
+        long deadline = System.nanoTime() + timeout.toNanos();
+        if (poolConnectionBagEnabled) {
+            popConnectionFromBagAsync(checkout, null, deadline, result);
+        } else {
+            popConnectionAsync(checkout, null, deadline, result);
+        }
+        return result;
+    }
+
     @Override
     public void setLoginTimeout(int loginTimeout) {
         DriverManager.setLoginTimeout(loginTimeout);
@@ -244,6 +303,159 @@ public class PooledDataSource implements DataSource {
         forceCloseAll();
     }
 
+    /**
+     * Determines if connections are checked with the JDBC 4 {@link Connection#isValid(int)} method instead of the
+     * ping query. Most drivers implement it with a lightweight protocol-level ping.
+     *
+     * @param poolPingUseIsValid True if {@link Connection#isValid(int)} should be used instead of the ping query
+     */
+    public void setPoolPingUseIsValid(boolean poolPingUseIsValid) {
+        this.poolPingUseIsValid = poolPingUseIsValid;
+        forceCloseAll();
+    }
+
+    /**
+     * The timeout passed to {@link Connection#isValid(int)}. Zero means no timeout.
+     *
+     * @param seconds The timeout in seconds
+     */
+    public void setPoolPingTimeout(int seconds) {
+        this.poolPingTimeout = seconds;
+        forceCloseAll();
+    }
+
+    /**
+     * A connection that has been successfully checked within this many milliseconds is trusted without another check,
+     * even if {@link #setPoolPingConnectionsNotUsedFor(int)} would ping it. Zero disables the window.
+     *
+     * @param milliseconds The time a successful check is trusted for
+     */
+    public void setPoolPingSkipWindow(int milliseconds) {
+        this.poolPingSkipWindow = milliseconds;
+        forceCloseAll();
+    }
+
+    /**
+     * Determines if connections are checked out of a lock-free connection bag instead of the synchronized idle and
+     * active lists. The bag prefers the connection last used by the calling thread and hands returned connections
+     * directly to waiting threads.
+     *
+     * @param poolConnectionBagEnabled True to use the connection bag
+     */
+    public void setPoolConnectionBagEnabled(boolean poolConnectionBagEnabled) {
+        this.poolConnectionBagEnabled = poolConnectionBagEnabled;
+        forceCloseAll();
+    }
+
+    /**
+     * The number of idle connections the housekeeper keeps open, as long as the maximum number of active connections
+     * allows it. Only takes effect when a housekeeping interval is set.
+     *
+     * @param poolMinimumIdleConnections The minimum number of idle connections
+     */
+    public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+        this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+    }
+
+    /**
+     * The time after which the housekeeper closes a connection that has not been used, unless it is needed to keep the
+     * minimum number of idle connections. Zero disables idle eviction.
+     *
+     * @param milliseconds The maximum idle time in milliseconds
+     */
+    public void setPoolMaximumIdleTime(int milliseconds) {
+        this.poolMaximumIdleTime = milliseconds;
+    }
+
+    /**
+     * The time after which a connection is retired. Idle connections are closed by the housekeeper and checked out
+     * connections are closed when they are returned. Zero means connections live forever.
+     *
+     * @param milliseconds The maximum lifetime in milliseconds
+     */
+    public void setPoolMaximumLifetime(int milliseconds) {
+        this.poolMaximumLifetime = milliseconds;
+    }
+
+    /**
+     * The interval at which a background thread evicts idle and expired connections, pings idle connections when
+     * {@link #setPoolPingEnabled(boolean) ping} is enabled and tops the pool up to the minimum number of idle connections.
+     * The housekeeper is started by the first checkout. Zero disables housekeeping.
+     *
+     * @param milliseconds The housekeeping interval in milliseconds
+     */
+    public void setPoolHousekeepingInterval(int milliseconds) {
+        this.poolHousekeepingInterval = milliseconds;
+        stopHousekeeper();
+    }
+
+    /**
+     * The number of prepared statements cached per physical connection. Statements closed by the application are kept
+     * open and handed out again when the same SQL is prepared on the same connection, even after the connection has
+     * been returned to the pool and checked out by another session. Zero disables the cache.
+     *
+     * @param poolPreparedStatementCacheSize The maximum number of cached statements per connection
+     */
+    public void setPoolPreparedStatementCacheSize(int poolPreparedStatementCacheSize) {
+        this.poolPreparedStatementCacheSize = poolPreparedStatementCacheSize;
+        forceCloseAll();
+    }
+
+    /**
+     * Sets a tracker that is notified of wait, checkout and connection creation times, in addition to the histograms
+     * kept by {@link PoolState}.
+     *
+     * @param poolMetricsTracker The tracker, or null to disable it
+     */
+    public void setPoolMetricsTracker(PoolMetricsTracker poolMetricsTracker) {
+        this.poolMetricsTracker = poolMetricsTracker;
+    }
+
+    /**
+     * Sets the executor on which asynchronous connection requests are retried and completed, so that neither the
+     * thread returning a connection nor the shared pool timer runs them or the continuations of their futures. Unless
+     * one is set, a shared executor is used that starts a virtual thread per task on Java 21 and later, and a daemon
+     * thread from a cached pool on earlier versions.
+     *
+     * @param poolAsyncExecutor The executor, or null to use the shared one
+     */
+    public void setPoolAsyncExecutor(Executor poolAsyncExecutor) {
+        this.poolAsyncExecutor = poolAsyncExecutor;
+    }
+
+    /**
+     * Registers the {@link PoolState} of this data source with the platform MBean server under
+     * <code>org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=&lt;poolJmxName&gt;</code>. Setting another
+     * name re-registers it, setting null unregisters it.
+     *
+     * @param poolJmxName The name of the pool
+     */
+    public void setPoolJmxName(String poolJmxName) {
+        unregisterMBean();
+        this.poolJmxName = poolJmxName;
+        if (poolJmxName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(state, objectNameOf(poolJmxName));
+            } catch (JMException e) {
+                throw new DataSourceException("Error registering MBean for pool '" + poolJmxName + "'. Cause: " + e, e);
+            }
+        }
+    }
+
+    private void unregisterMBean() {
+        if (poolJmxName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectNameOf(poolJmxName));
+            } catch (JMException e) {
+                log.debug("Error unregistering MBean for pool '" + poolJmxName + "'. Cause: " + e);
+            }
+        }
+    }
+
+    private static ObjectName objectNameOf(String poolJmxName) throws MalformedObjectNameException {
+        return new ObjectName("org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=" + ObjectName.quote(poolJmxName));
+    }
+
     public String getDriver() {
         return dataSource.getDriver();
     }
@@ -314,16 +526,67 @@ public class PooledDataSource implements DataSource {
         return poolPingConnectionsNotUsedFor;
     }
 
+    public boolean isPoolPingUseIsValid() {
+        return poolPingUseIsValid;
+    }
+
+    public int getPoolPingTimeout() {
+        return poolPingTimeout;
+    }
+
+    public int getPoolPingSkipWindow() {
+        return poolPingSkipWindow;
+    }
+
+    public boolean isPoolConnectionBagEnabled() {
+        return poolConnectionBagEnabled;
+    }
+
+    public int getPoolMinimumIdleConnections() {
+        return poolMinimumIdleConnections;
+    }
+
+    public int getPoolMaximumIdleTime() {
+        return poolMaximumIdleTime;
+    }
+
+    public int getPoolMaximumLifetime() {
+        return poolMaximumLifetime;
+    }
+
+    public int getPoolHousekeepingInterval() {
+        return poolHousekeepingInterval;
+    }
+
+    public int getPoolPreparedStatementCacheSize() {
+        return poolPreparedStatementCacheSize;
+    }
+
+    public PoolMetricsTracker getPoolMetricsTracker() {
+        return poolMetricsTracker;
+    }
+
+    public Executor getPoolAsyncExecutor() {
+        return poolAsyncExecutor == null ? DefaultAsyncExecutorHolder.INSTANCE : poolAsyncExecutor;
+    }
+
+    public String getPoolJmxName() {
+        return poolJmxName;
+    }
+
     /**
      * Closes all active and idle connections in the pool.
      */
     public void forceCloseAll() {
-        synchronized (state) {
+        List<CompletableFuture<PooledConnection>> waiters;
+        state.lock.lock();
+        try {
             expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
             for (int i = state.activeConnections.size(); i > 0; i--) {
                 try {
                     PooledConnection conn = state.activeConnections.remove(i - 1);
                     conn.invalidate();
+                    closeStatements(conn);
 
                     Connection realConn = conn.getRealConnection();
                     if (!realConn.getAutoCommit()) {
@@ -338,6 +601,7 @@ public class PooledDataSource implements DataSource {
                 try {
                     PooledConnection conn = state.idleConnections.remove(i - 1);
                     conn.invalidate();
+                    closeStatements(conn);
 
                     Connection realConn = conn.getRealConnection();
                     if (!realConn.getAutoCommit()) {
@@ -348,6 +612,32 @@ public class PooledDataSource implements DataSource {
                     // ignore
                 }
             }
+            for (PooledConnection conn : state.validatingConnections) {
+                conn.invalidate();
+                closeStatements(conn);
+                closeQuietly(conn.getRealConnection());
+            }
+            state.validatingConnections.clear();
+            ConnectionBag bag = state.connectionBag;
+            for (ConnectionBag.Entry entry : bag.values()) {
+                if (bag.remove(entry)) {
+                    PooledConnection owner = entry.getOwner();
+                    if (owner != null && entry.compareAndSetOwner(owner, null)) {
+                        owner.invalidate();
+                        closeStatements(owner);
+                    }
+                    closeStatements(entry);
+                    closeQuietly(entry.getRealConnection());
+                }
+            }
+            waiters = new ArrayList<>(state.waiters);
+            state.waiters.clear();
+        } finally {
+            state.unlock();
+        }
+        // the pool is empty now, let waiting requests try to open new connections
+        for (CompletableFuture<PooledConnection> waiter : waiters) {
+            waiter.complete(null);
         }
         if (log.isDebugEnabled()) {
             log.debug("PooledDataSource forcefully closed/removed all connections.");
@@ -358,52 +648,106 @@ public class PooledDataSource implements DataSource {
         return state;
     }
 
+    private Connection openConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection realConn = dataSource.getConnection();
+        state.recordConnectionCreationTime(System.nanoTime() - start);
+        return realConn;
+    }
+
+    private void closeQuietly(Connection realConn) {
+        try {
+            if (!realConn.getAutoCommit()) {
+                realConn.rollback();
+            }
+            realConn.close();
+        } catch (Exception e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Closes the cached statements of a connection that is discarded, or whose statement cache is.
+     */
+    private static void closeStatements(PooledConnection conn) {
+        if (conn.getStatementCache() != null) {
+            conn.getStatementCache().closeAll();
+            conn.setStatementCache(null);
+        }
+    }
+
+    private static void closeStatements(ConnectionBag.Entry entry) {
+        if (entry.getStatementCache() != null) {
+            entry.getStatementCache().closeAll();
+            entry.setStatementCache(null);
+        }
+    }
+
     private int assembleConnectionTypeCode(String url, String username, String password) {
         return ("" + url + username + password).hashCode();
     }
 
     protected void pushConnection(PooledConnection conn) throws SQLException {
-        synchronized (state) {
+        if (conn.getBagEntry() != null) {
+            pushConnectionToBag(conn, conn.getBagEntry());
+            return;
+        }
+        CompletableFuture<PooledConnection> waiter;
+        PooledConnection newConn = null;
+        long checkoutTime = -1;
+        state.lock.lock();
+        try {
             state.activeConnections.remove(conn); // 步骤1：从活跃连接集合中删除该连接
             if (conn.isValid()) {// 步骤2：检测该 PooledConnection 对象是否可用
-                // 步骤3：检测当前PooledDataSource连接池中的空闲连接是否已经达到上限值
-                if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+                // 步骤3：检测是否有线程在等待，或者当前PooledDataSource连接池中的空闲连接是否已经达到上限值
+                if ((!state.waiters.isEmpty() || state.idleConnections.size() < poolMaximumIdleConnections)
+                        && conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isExpired(conn.getAge())) {
                     // 累计增加accumulatedCheckoutTime
-                    state.accumulatedCheckoutTime += conn.getCheckoutTime();
+                    checkoutTime = conn.getCheckoutTime();
+                    state.accumulatedCheckoutTime += checkoutTime;
                     if (!conn.getRealConnection().getAutoCommit()) {
                         // 回滚未提交的事务
                         conn.getRealConnection().rollback();
                     }
-                    // 将底层连接重新封装成PooledConnection对象，
-                    // 并添加到空闲连接集合（也就是前面提到的 idleConnections 集合）
-                    PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
-                    state.idleConnections.add(newConn);
+                    // 将底层连接重新封装成PooledConnection对象
+                    newConn = new PooledConnection(conn.getRealConnection(), this);
+                    // 收回未关闭的语句，语句缓存随底层连接转移到新PooledConnection对象
+                    if (conn.getStatementCache() != null) {
+                        conn.getStatementCache().releaseAll();
+                        newConn.setStatementCache(conn.getStatementCache());
+                    }
                     // 设置新PooledConnection对象的创建时间戳和最后使用时间戳
                     newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
                     newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+                    newConn.setLastValidatedTimestamp(conn.getLastValidatedTimestamp());
                     conn.invalidate(); // 丢弃旧PooledConnection对象
+                    // 将新PooledConnection对象直接移交给等待时间最长的线程，
+                    // 没有线程等待时添加到空闲连接集合（也就是前面提到的 idleConnections 集合）
+                    waiter = handOffOrIdle(newConn);
                     if (log.isDebugEnabled()) {
                         log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
                     }
-                    // 唤醒所有阻塞等待空闲连接的线程
-                    state.notifyAll();
                 } else {
                     // 当前PooledDataSource连接池中的空闲连接已经达到上限值
                     // 当前数据库连接无法放回到池中
 
                     // 累计增加accumulatedCheckoutTime
-                    state.accumulatedCheckoutTime += conn.getCheckoutTime();
+                    checkoutTime = conn.getCheckoutTime();
+                    state.accumulatedCheckoutTime += checkoutTime;
                     if (!conn.getRealConnection().getAutoCommit()) {
                         // 回滚未提交的事务
                         conn.getRealConnection().rollback();
                     }
-                    // 关闭真正的数据库连接
+                    // 关闭缓存的语句和真正的数据库连接
+                    closeStatements(conn);
                     conn.getRealConnection().close();
                     if (log.isDebugEnabled()) {
                         log.debug("Closed connection " + conn.getRealHashCode() + ".");
                     }
                     // 将PooledConnection对象设置为无效
                     conn.invalidate();
+                    // 腾出了位置，唤醒一个等待线程重新尝试获取连接
+                    waiter = state.waiters.pollFirst();
                 }
             } else {
                 if (log.isDebugEnabled()) {
@@ -411,123 +755,541 @@ public class PooledDataSource implements DataSource {
                 }
                 // 统计无效PooledConnection对象个数
                 state.badConnectionCount++;
+                closeStatements(conn);
+                waiter = state.waiters.pollFirst();
+            }
+        } finally {
+            state.unlock();
+            // 在锁外通知PoolMetricsTracker，避免外部代码拖慢持有锁的线程
+            if (checkoutTime >= 0) {
+                state.recordCheckoutTime(checkoutTime);
             }
         }
+        if (waiter != null) {
+            // 在锁外唤醒等待线程，null表示没有移交连接，需要重新尝试获取
+            waiter.complete(newConn);
+        }
     }
 
-    private PooledConnection popConnection(String username, String password) throws SQLException {
-        boolean countedWait = false;
-        PooledConnection conn = null;
-        long t = System.currentTimeMillis();
-        int localBadConnectionCount = 0;
+    /**
+     * Gives a connection that became available to the thread that has been waiting longest, or puts it into the idle
+     * list if no one is waiting. Must be called while holding the pool lock. A handed off connection is counted as
+     * active right away; the returned waiter has to be completed with it once the lock is released.
+     */
+    private CompletableFuture<PooledConnection> handOffOrIdle(PooledConnection conn) {
+        CompletableFuture<PooledConnection> waiter = state.waiters.pollFirst();
+        if (waiter == null) {
+            state.idleConnections.add(conn);
+        } else {
+            conn.setCheckoutTimestamp(System.currentTimeMillis());
+            state.activeConnections.add(conn);
+        }
+        return waiter;
+    }
+
+    private void returnHandedOffConnection(PooledConnection conn) {
+        CompletableFuture<PooledConnection> waiter;
+        state.lock.lock();
+        try {
+            state.activeConnections.remove(conn);
+            waiter = handOffOrIdle(conn);
+        } finally {
+            state.unlock();
+        }
+        if (waiter != null) {
+            waiter.complete(conn);
+        }
+    }
 
+    private boolean removeWaiter(CompletableFuture<PooledConnection> waiter) {
+        state.lock.lock();
+        try {
+            return state.waiters.remove(waiter);
+        } finally {
+            state.unlock();
+        }
+    }
+
+    private void pushConnectionToBag(PooledConnection conn, ConnectionBag.Entry entry) throws SQLException {
+        final ConnectionBag bag = state.connectionBag;
+        if (!entry.compareAndSetOwner(conn, null)) {
+            // the connection was claimed as overdue or closed by forceCloseAll()
+            if (log.isDebugEnabled()) {
+                log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+            }
+            state.recordBagBadConnection();
+            return;
+        }
+        state.recordBagCheckout(conn.getCheckoutTime());
+        if (conn.isValid()) {
+            try {
+                if (!conn.getRealConnection().getAutoCommit()) {
+                    conn.getRealConnection().rollback();
+                }
+            } catch (SQLException e) {
+                conn.invalidate();
+                closeStatements(conn);
+                bag.remove(entry);
+                throw e;
+            }
+            entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+            entry.setLastValidatedTimestamp(conn.getLastValidatedTimestamp());
+            if (conn.getStatementCache() != null) {
+                conn.getStatementCache().releaseAll();
+                entry.setStatementCache(conn.getStatementCache());
+            }
+            conn.invalidate();
+            if (conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isExpired(entry.getAge())
+                    && (bag.hasWaiters() || bag.getCount(ConnectionBag.STATE_IDLE) < poolMaximumIdleConnections)) {
+                bag.requite(entry);
+                if (log.isDebugEnabled()) {
+                    log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+                }
+            } else {
+                bag.remove(entry);
+                closeStatements(entry);
+                conn.getRealConnection().close();
+                if (log.isDebugEnabled()) {
+                    log.debug("Closed connection " + conn.getRealHashCode() + ".");
+                }
+            }
+        } else {
+            if (log.isDebugEnabled()) {
+                log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+            }
+            bag.remove(entry);
+            closeStatements(conn);
+            state.recordBagBadConnection();
+        }
+    }
+
+    private PooledConnection popConnection(String username, String password) throws SQLException {
+        if (poolHousekeepingInterval > 0 && housekeeper == null) {
+            startHousekeeper();
+        }
+        Checkout checkout = new Checkout(username, password);
+        if (poolConnectionBagEnabled) {
+            return popConnectionFromBag(checkout);
+        }
+        PooledConnection conn = tryPopConnection(checkout, null);
+        Deadline deadline = Deadline.current();
         while (conn == null) {
-            synchronized (state) { // 加锁同步
-                // 步骤1：检测空闲连接集合
-                if (!state.idleConnections.isEmpty()) {
+            // 步骤4：无空闲连接、无法创建新连接且无超时连接，则只能阻塞等待，
+            // 直到其他线程将连接直接移交过来或者等待超时
+            long waitNanos = waitNanos(deadline);
+            if (log.isDebugEnabled()) {
+                log.debug("Waiting as long as " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + " milliseconds for connection.");
+            }
+            PooledConnection handedOff = awaitHandOff(checkout.waiter, waitNanos, deadline);
+            conn = tryPopConnection(checkout, handedOff);
+        }
+        return conn;
+    }
+
+    /**
+     * Gets how long a blocked thread waits before looking for overdue connections again: {@link #getPoolTimeToWait()}
+     * capped by the remaining time of the {@link Deadline} of the calling thread.
+     */
+    private long waitNanos(Deadline deadline) {
+        long nanos = poolTimeToWait > 0 ? TimeUnit.MILLISECONDS.toNanos(poolTimeToWait) : Long.MAX_VALUE;
+        return deadline == null ? nanos : Math.max(0, Math.min(nanos, deadline.remaining(TimeUnit.NANOSECONDS)));
+    }
+
+    /**
+     * Checks out a connection without waiting. If none is available, a waiter is appended to the FIFO wait queue and
+     * stored in the checkout; the waiter is completed with a handed off connection, or with <code>null</code> when the
+     * caller should simply try again.
+     */
+    private PooledConnection tryPopConnection(Checkout checkout, PooledConnection handedOff) throws SQLException {
+        PooledConnection conn = null;
+        state.lock.lock(); // 加锁同步
+        try {
+            if (checkout.waiter != null) {
+                // 统计累积的等待时间
+                state.accumulatedWaitTime += System.currentTimeMillis() - checkout.waitTimestamp;
+                checkout.waiter = null;
+            }
+            while (conn == null) {
+                if (handedOff != null) {
+                    // 其他线程直接移交过来的连接，移交时已计入活跃连接集合
+                    conn = handedOff;
+                    handedOff = null;
+                    state.activeConnections.remove(conn);
+                } else if (!state.idleConnections.isEmpty()) { // 步骤1：检测空闲连接集合
                     // 获取空闲连接
                     conn = state.idleConnections.remove(0);
                     if (log.isDebugEnabled()) {
                         log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
                     }
-                } else { // 没有空闲连接
-                    // 步骤2：活跃连接数没有到上限值，则创建新连接
-                    if (state.activeConnections.size() < poolMaximumActiveConnections) {
-                        // 创建新数据库连接，并封装成PooledConnection对象
-                        conn = new PooledConnection(dataSource.getConnection(), this);
-                        if (log.isDebugEnabled()) {
-                            log.debug("Created connection " + conn.getRealHashCode() + ".");
-                        }
-                    } else {// 活跃连接数已到上限值，则无法创建新连接
-                        // 步骤3：检测超时连接
-                        // 获取最早的活跃连接
-                        PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-                        long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-                        // 检测该连接是否超时
-                        if (longestCheckoutTime > poolMaximumCheckoutTime) {
-                            // 对超时连接的信息进行统计
-                            state.claimedOverdueConnectionCount++;
-                            state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-                            state.accumulatedCheckoutTime += longestCheckoutTime;
-                            // 将超时连接移出activeConnections集合
-                            state.activeConnections.remove(oldestActiveConnection);
-                            // 如果超时连接上有未提交的事务，则自动回滚
-                            if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
-                                try {
-                                    oldestActiveConnection.getRealConnection().rollback();
-                                } catch (SQLException e) {
-                                    log.debug("Bad connection. Could not roll back");
-                                }
-                            }
-                            // 创建新PooledConnection对象，但是真正的数据库连接并未创建新的
-                            conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
-                            conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
-                            conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
-                            // 将超时PooledConnection设置为无效
-                            oldestActiveConnection.invalidate();
-                            if (log.isDebugEnabled()) {
-                                log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
-                            }
-                        } else {
-                            // 步骤4：无空闲连接、无法创建新连接且无超时连接，则只能阻塞等待
-                            try {
-                                if (!countedWait) { // 统计阻塞等待次数
-                                    state.hadToWaitCount++;
-                                    countedWait = true;
-                                }
-                                if (log.isDebugEnabled()) {
-                                    log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
-                                }
-                                long wt = System.currentTimeMillis();
-                                state.wait(poolTimeToWait);// 阻塞等待
-                                // 统计累积的等待时间
-                                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
-                            } catch (InterruptedException e) {
-                                break;
-                            }
+                } else if (state.activeConnections.size() < poolMaximumActiveConnections) {
+                    // 步骤2：没有空闲连接，活跃连接数没有到上限值，则创建新连接
+                    // 创建新数据库连接，并封装成PooledConnection对象
+                    conn = new PooledConnection(openConnection(), this);
+                    if (log.isDebugEnabled()) {
+                        log.debug("Created connection " + conn.getRealHashCode() + ".");
+                    }
+                } else {// 活跃连接数已到上限值，则无法创建新连接
+                    // 步骤3：检测超时连接
+                    conn = claimOverdueConnection();
+                    if (conn == null) {
+                        // 无空闲连接、无法创建新连接且无超时连接，则加入等待队列
+                        if (!checkout.countedWait) { // 统计阻塞等待次数
+                            state.hadToWaitCount++;
+                            checkout.countedWait = true;
                         }
+                        checkout.waiter = new CompletableFuture<>();
+                        checkout.waitTimestamp = System.currentTimeMillis();
+                        state.waiters.addLast(checkout.waiter);
+                        return null;
                     }
                 }
-                if (conn != null) { // 对连接进行统计
-                    if (conn.isValid()) { // 检测PooledConnection是否有效
-                        if (!conn.getRealConnection().getAutoCommit()) {
-                            conn.getRealConnection().rollback();
-                        }
-                        // 配置PooledConnection的相关属性，设置connectionTypeCode、
-                        // checkoutTimestamp、lastUsedTimestamp字段的值
-                        conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
-                        conn.setCheckoutTimestamp(System.currentTimeMillis());
-                        conn.setLastUsedTimestamp(System.currentTimeMillis());
-                        state.activeConnections.add(conn); // 添加到活跃连接集合
-                        state.requestCount++;
-                        state.accumulatedRequestTime += System.currentTimeMillis() - t;
-                    } else {
+                // 对连接进行统计
+                if (conn.isValid()) { // 检测PooledConnection是否有效
+                    if (!conn.getRealConnection().getAutoCommit()) {
+                        conn.getRealConnection().rollback();
+                    }
+                    // 配置PooledConnection的相关属性，设置connectionTypeCode、
+                    // checkoutTimestamp、lastUsedTimestamp字段的值
+                    conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), checkout.username, checkout.password));
+                    conn.setCheckoutTimestamp(System.currentTimeMillis());
+                    conn.setLastUsedTimestamp(System.currentTimeMillis());
+                    state.activeConnections.add(conn); // 添加到活跃连接集合
+                    state.requestCount++;
+                    state.accumulatedRequestTime += System.currentTimeMillis() - checkout.startTimestamp;
+                } else {
+                    if (log.isDebugEnabled()) {
+                        log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+                    }
+                    state.badConnectionCount++;
+                    checkout.localBadConnectionCount++;
+                    closeStatements(conn);
+                    conn = null;
+                    if (checkout.localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
                         if (log.isDebugEnabled()) {
-                            log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
-                        }
-                        state.badConnectionCount++;
-                        localBadConnectionCount++;
-                        conn = null;
-                        if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
-                            if (log.isDebugEnabled()) {
-                                log.debug("PooledDataSource: Could not get a good connection to the database.");
-                            }
-                            throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+                            log.debug("PooledDataSource: Could not get a good connection to the database.");
                         }
+                        throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
                     }
                 }
             }
+        } finally {
+            state.unlock();
+        }
+        state.recordWaitTime(System.nanoTime() - checkout.startNanos);
+        return conn;
+    }
+
+    /**
+     * Takes over the oldest active connection if it has been checked out for longer than
+     * {@link #getPoolMaximumCheckoutTime()}. Must be called while holding the pool lock.
+     */
+    private PooledConnection claimOverdueConnection() {
+        // 获取最早的活跃连接
+        PooledConnection oldestActiveConnection = state.activeConnections.get(0);
+        long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+        // 检测该连接是否超时
+        if (longestCheckoutTime <= poolMaximumCheckoutTime) {
+            return null;
+        }
+        // 对超时连接的信息进行统计
+        state.claimedOverdueConnectionCount++;
+        state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
+        state.accumulatedCheckoutTime += longestCheckoutTime;
+        state.recordCheckoutTime(longestCheckoutTime);
+        // 将超时连接移出activeConnections集合
+        state.activeConnections.remove(oldestActiveConnection);
+        // 如果超时连接上有未提交的事务，则自动回滚
+        try {
+            if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
+                oldestActiveConnection.getRealConnection().rollback();
+            }
+        } catch (SQLException e) {
+            log.debug("Bad connection. Could not roll back");
+        }
+        // 创建新PooledConnection对象，但是真正的数据库连接并未创建新的
+        PooledConnection conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+        conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
+        conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+        // 将超时PooledConnection设置为无效，并关闭它缓存的语句，新PooledConnection对象从空缓存开始
+        oldestActiveConnection.invalidate();
+        closeStatements(oldestActiveConnection);
+        if (log.isDebugEnabled()) {
+            log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+        }
+        return conn;
+    }
+
+    private PooledConnection awaitHandOff(CompletableFuture<PooledConnection> waiter, long waitNanos, Deadline deadline)
+            throws SQLException {
+        try {
+            return waitNanos < Long.MAX_VALUE ? waiter.get(waitNanos, TimeUnit.NANOSECONDS) : waiter.get();
+        } catch (TimeoutException e) {
+            if (removeWaiter(waiter)) {
+                if (deadline != null) {
+                    deadline.check();
+                }
+                return null;
+            }
+            // a connection was handed off while timing out, it will be available immediately
+            return waiter.join();
+        } catch (InterruptedException e) {
+            if (!removeWaiter(waiter)) {
+                PooledConnection handedOff = waiter.join();
+                if (handedOff != null) {
+                    returnHandedOffConnection(handedOff);
+                }
+            }
+            Thread.currentThread().interrupt();
+            throw new SQLException("PooledDataSource: Interrupted while waiting for a connection.", e);
+        } catch (ExecutionException e) {
+            throw new SQLException("PooledDataSource: Error while waiting for a connection.", e.getCause());
+        }
+    }
+
+    private void popConnectionAsync(Checkout checkout, PooledConnection handedOff, long deadline, CompletableFuture<Connection> result) {
+        PooledConnection conn;
+        try {
+            conn = tryPopConnection(checkout, handedOff);
+        } catch (SQLException | RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        if (conn != null) {
+            completeAsync(result, conn);
+            return;
+        }
+        CompletableFuture<PooledConnection> waiter = checkout.waiter;
+        // wake up at least every poolTimeToWait to look for overdue connections, like blocked threads do
+        ScheduledFuture<?> timer = PoolTimer.schedule(() -> {
+            if (removeWaiter(waiter)) {
+                executeAsync(() -> {
+                    if (deadline - System.nanoTime() > 0) {
+                        popConnectionAsync(checkout, null, deadline, result);
+                    } else {
+                        result.completeExceptionally(newTimeoutException(checkout));
+                    }
+                });
+            }
+        }, nextAsyncWakeUp(deadline), TimeUnit.NANOSECONDS);
+        waiter.thenAccept(c -> {
+            timer.cancel(false);
+            executeAsync(() -> popConnectionAsync(checkout, c, deadline, result));
+        });
+    }
+
+    private void popConnectionFromBagAsync(Checkout checkout, ConnectionBag.Entry handedOff, long deadline,
+            CompletableFuture<Connection> result) {
+        final ConnectionBag bag = state.connectionBag;
+        PooledConnection conn;
+        try {
+            conn = tryPopConnectionFromBag(checkout, handedOff);
+        } catch (SQLException | RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        if (conn != null) {
+            completeAsync(result, conn);
+            return;
+        }
+        if (!checkout.countedWait) {
+            state.recordBagHadToWait();
+            checkout.countedWait = true;
+        }
+        long wt = System.currentTimeMillis();
+        CompletableFuture<ConnectionBag.Entry> waiter = bag.registerAsyncWaiter(poolMaximumActiveConnections);
+        ScheduledFuture<?> timer = PoolTimer.schedule(() -> {
+            if (waiter.complete(null)) {
+                bag.removeAsyncWaiter(waiter);
+                state.recordBagWait(System.currentTimeMillis() - wt);
+                executeAsync(() -> {
+                    if (deadline - System.nanoTime() > 0) {
+                        popConnectionFromBagAsync(checkout, null, deadline, result);
+                    } else {
+                        result.completeExceptionally(newTimeoutException(checkout));
+                    }
+                });
+            }
+        }, nextAsyncWakeUp(deadline), TimeUnit.NANOSECONDS);
+        waiter.thenAccept(entry -> {
+            if (entry != null) {
+                timer.cancel(false);
+                state.recordBagWait(System.currentTimeMillis() - wt);
+                executeAsync(() -> popConnectionFromBagAsync(checkout, entry == ConnectionBag.SLOT_FREED ? null : entry,
+                        deadline, result));
+            }
+        });
+    }
+
+    /**
+     * Runs a retry of an asynchronous request on the {@link #getPoolAsyncExecutor() async executor}, or on the current
+     * thread if the executor rejects it, since a handed off connection must not get lost.
+     */
+    private void executeAsync(Runnable retry) {
+        try {
+            getPoolAsyncExecutor().execute(retry);
+        } catch (RejectedExecutionException e) {
+            retry.run();
+        }
+    }
+
+    private long nextAsyncWakeUp(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        return poolTimeToWait > 0 ? Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(poolTimeToWait)) : remaining;
+    }
+
+    private SQLTimeoutException newTimeoutException(Checkout checkout) {
+        return new SQLTimeoutException("PooledDataSource: Timed out after "
+                + (System.currentTimeMillis() - checkout.startTimestamp) + " milliseconds waiting for a connection.");
+    }
+
+    private void completeAsync(CompletableFuture<Connection> result, PooledConnection conn) {
+        if (!result.complete(conn.getProxyConnection())) {
+            // the request was cancelled in the meantime
+            try {
+                pushConnection(conn);
+            } catch (SQLException e) {
+                log.debug("Could not return connection " + conn.getRealHashCode() + " of a cancelled request: " + e.getMessage());
+            }
+        }
+    }
 
+    private PooledConnection popConnectionFromBag(Checkout checkout) throws SQLException {
+        final ConnectionBag bag = state.connectionBag;
+        final Deadline deadline = Deadline.current();
+        ConnectionBag.Entry handedOff = null;
+        while (true) {
+            PooledConnection conn = tryPopConnectionFromBag(checkout, handedOff);
+            if (conn != null) {
+                return conn;
+            }
+            if (!checkout.countedWait) {
+                state.recordBagHadToWait();
+                checkout.countedWait = true;
+            }
+            long waitNanos = waitNanos(deadline);
+            if (log.isDebugEnabled()) {
+                log.debug("Waiting as long as " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + " milliseconds for connection.");
+            }
+            long wt = System.currentTimeMillis();
+            try {
+                handedOff = bag.await(poolMaximumActiveConnections, waitNanos, TimeUnit.NANOSECONDS);
+                if (handedOff == ConnectionBag.SLOT_FREED) {
+                    // a connection was discarded, try to open a new one in its slot
+                    handedOff = null;
+                } else if (handedOff == null && deadline != null) {
+                    deadline.check();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("PooledDataSource: Interrupted while waiting for a connection.", e);
+            } finally {
+                state.recordBagWait(System.currentTimeMillis() - wt);
+            }
         }
+    }
 
-        if (conn == null) {
+    /**
+     * Checks out a connection from the connection bag without waiting.
+     *
+     * @return the connection, or <code>null</code> if the pool is exhausted
+     */
+    private PooledConnection tryPopConnectionFromBag(Checkout checkout, ConnectionBag.Entry handedOff) throws SQLException {
+        final ConnectionBag bag = state.connectionBag;
+        ConnectionBag.Entry entry = handedOff;
+        while (true) {
+            if (entry == null) {
+                entry = bag.poll();
+            }
+            if (entry == null && bag.tryReserveSlot(poolMaximumActiveConnections)) {
+                try {
+                    entry = new ConnectionBag.Entry(openConnection(), ConnectionBag.STATE_IN_USE);
+                } catch (SQLException | RuntimeException e) {
+                    bag.releaseSlot();
+                    throw e;
+                }
+                bag.add(entry);
+                if (log.isDebugEnabled()) {
+                    log.debug("Created connection " + entry.getRealConnection().hashCode() + ".");
+                }
+            }
+            if (entry == null) {
+                entry = claimOverdueEntry(bag);
+            }
+            if (entry == null) {
+                return null;
+            }
+
+            PooledConnection conn = new PooledConnection(entry.getRealConnection(), this);
+            conn.setBagEntry(entry);
+            conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+            conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+            conn.setLastValidatedTimestamp(entry.getLastValidatedTimestamp());
+            conn.setStatementCache(entry.getStatementCache());
+            if (conn.isValid()) {
+                try {
+                    if (!conn.getRealConnection().getAutoCommit()) {
+                        conn.getRealConnection().rollback();
+                    }
+                } catch (SQLException e) {
+                    bag.remove(entry);
+                    closeStatements(entry);
+                    throw e;
+                }
+                long now = System.currentTimeMillis();
+                conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), checkout.username, checkout.password));
+                conn.setCheckoutTimestamp(now);
+                conn.setLastUsedTimestamp(now);
+                entry.setCheckoutTimestamp(now);
+                entry.setOwner(conn);
+                state.recordBagRequest(now - checkout.startTimestamp);
+                state.recordWaitTime(System.nanoTime() - checkout.startNanos);
+                if (log.isDebugEnabled()) {
+                    log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+                }
+                return conn;
+            }
             if (log.isDebugEnabled()) {
-                log.debug("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+                log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+            }
+            bag.remove(entry);
+            closeStatements(entry);
+            entry = null;
+            state.recordBagBadConnection();
+            checkout.localBadConnectionCount++;
+            if (checkout.localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("PooledDataSource: Could not get a good connection to the database.");
+                }
+                throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
             }
-            throw new SQLException("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
         }
+    }
 
-        return conn;
+    private ConnectionBag.Entry claimOverdueEntry(ConnectionBag bag) {
+        for (ConnectionBag.Entry entry : bag.values()) {
+            PooledConnection owner = entry.getOwner();
+            if (owner != null && entry.getState() == ConnectionBag.STATE_IN_USE
+                    && entry.getCheckoutTime() > poolMaximumCheckoutTime && entry.compareAndSetOwner(owner, null)) {
+                state.recordBagOverdueClaim(entry.getCheckoutTime());
+                owner.invalidate();
+                // the overdue owner may still be using its statements, so they are closed and the new owner starts
+                // with an empty cache
+                closeStatements(owner);
+                closeStatements(entry);
+                try {
+                    if (!entry.getRealConnection().getAutoCommit()) {
+                        entry.getRealConnection().rollback();
+                    }
+                } catch (SQLException e) {
+                    log.debug("Bad connection. Could not roll back");
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Claimed overdue connection " + owner.getRealHashCode() + ".");
+                }
+                return entry;
+            }
+        }
+        return null;
     }
 
     /**
@@ -553,38 +1315,271 @@ public class PooledDataSource implements DataSource {
         // 是否能执行ping操作。另外，ping操作不能频繁执行，只有超过一定是时长
         // (超过poolPingConnectionsNotUsedFor指定的时长)未使用的连接，才需要ping
         // 操作来检测数据库连接是否正常
-        if (result && poolPingEnabled && poolPingConnectionsNotUsedFor >= 0
-                && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
-            try {
-                if (log.isDebugEnabled()) {
-                    log.debug("Testing connection " + conn.getRealHashCode() + " ...");
+        if (result && needsPing(conn.getLastUsedTimestamp(), conn.getLastValidatedTimestamp())) {
+            result = validateConnection(conn.getRealConnection());
+            if (result) {
+                conn.setLastValidatedTimestamp(System.currentTimeMillis());
+            }
+        }
+        return result;
+    }
+
+    private boolean needsPing(long lastUsedTimestamp, long lastValidatedTimestamp) {
+        if (!poolPingEnabled || poolPingConnectionsNotUsedFor < 0) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        // 在跳过窗口内刚校验成功的连接直接信任，不再ping
+        if (poolPingSkipWindow > 0 && now - lastValidatedTimestamp <= poolPingSkipWindow) {
+            return false;
+        }
+        return now - Math.max(lastUsedTimestamp, lastValidatedTimestamp) > poolPingConnectionsNotUsedFor;
+    }
+
+    private boolean validateConnection(Connection realConn) {
+        long startNanos = System.nanoTime();
+        try {
+            if (log.isDebugEnabled()) {
+                log.debug("Testing connection " + realConn.hashCode() + " ...");
+            }
+            if (poolPingUseIsValid) {
+                if (!realConn.isValid(poolPingTimeout)) {
+                    throw new SQLException("Connection.isValid() returned false");
                 }
+            } else {
                 // 执行poolPingQuery字段中记录的测试SQL语句
-                Connection realConn = conn.getRealConnection();
                 try (Statement statement = realConn.createStatement()) {
                     statement.executeQuery(poolPingQuery).close();
                 }
                 if (!realConn.getAutoCommit()) {
                     realConn.rollback();
                 }
-                result = true; // 不抛异常，即为成功
-                if (log.isDebugEnabled()) {
-                    log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
-                }
-            } catch (Exception e) {
+            }
+            // 不抛异常，即为成功
+            if (log.isDebugEnabled()) {
+                log.debug("Connection " + realConn.hashCode() + " is GOOD!");
+            }
+            return true;
+        } catch (Exception e) {
+            if (poolPingUseIsValid) {
+                log.warn("Validation of connection " + realConn.hashCode() + " failed: " + e.getMessage());
+            } else {
                 log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
+            }
+            try {
+                realConn.close();
+            } catch (Exception e2) {
+                // ignore
+            }
+            // 抛异常，即为失败
+            if (log.isDebugEnabled()) {
+                log.debug("Connection " + realConn.hashCode() + " is BAD: " + e.getMessage());
+            }
+            return false;
+        } finally {
+            state.recordValidationTime(System.nanoTime() - startNanos);
+        }
+    }
+
+    private boolean isExpired(long age) {
+        return poolMaximumLifetime > 0 && age > poolMaximumLifetime;
+    }
+
+    private boolean isIdleTooLong(long timeElapsedSinceLastUse) {
+        return poolMaximumIdleTime > 0 && timeElapsedSinceLastUse > poolMaximumIdleTime;
+    }
+
+    private void startHousekeeper() {
+        state.lock.lock();
+        try {
+            if (housekeeper == null && poolHousekeepingInterval > 0) {
+                housekeeper = new PoolHousekeeper(this, poolHousekeepingInterval);
+            }
+        } finally {
+            state.unlock();
+        }
+    }
+
+    private void stopHousekeeper() {
+        state.lock.lock();
+        try {
+            if (housekeeper != null) {
+                housekeeper.shutdown();
+                housekeeper = null;
+            }
+        } finally {
+            state.unlock();
+        }
+    }
+
+    /**
+     * Retires idle connections that exceeded the maximum idle time or lifetime, pings idle connections that have not
+     * been checked recently and opens connections until the minimum number of idle connections is reached. Called
+     * periodically by the housekeeper, so that checkouts rarely have to ping or open a connection themselves.
+     */
+    void housekeep() {
+        if (poolConnectionBagEnabled) {
+            housekeepConnectionBag();
+        } else {
+            housekeepIdleConnections();
+        }
+        fillMinimumIdleConnections();
+    }
+
+    private void housekeepIdleConnections() {
+        List<PooledConnection> retired = new ArrayList<>();
+        List<PooledConnection> unchecked = new ArrayList<>();
+        state.lock.lock();
+        try {
+            int idleCount = state.idleConnections.size();
+            for (Iterator<PooledConnection> it = state.idleConnections.iterator(); it.hasNext();) {
+                PooledConnection conn = it.next();
+                if (isExpired(conn.getAge())
+                        || (idleCount > poolMinimumIdleConnections && isIdleTooLong(conn.getTimeElapsedSinceLastUse()))) {
+                    it.remove();
+                    idleCount--;
+                    retired.add(conn);
+                } else if (needsPing(conn.getLastUsedTimestamp(), conn.getLastValidatedTimestamp())) {
+                    // taken out of the idle list so that no one checks it out while it is pinged
+                    it.remove();
+                    state.validatingConnections.add(conn);
+                    unchecked.add(conn);
+                }
+            }
+        } finally {
+            state.unlock();
+        }
+        for (PooledConnection conn : retired) {
+            conn.invalidate();
+            closeStatements(conn);
+            closeQuietly(conn.getRealConnection());
+            if (log.isDebugEnabled()) {
+                log.debug("Retired idle connection " + conn.getRealHashCode() + ".");
+            }
+        }
+        for (PooledConnection conn : unchecked) {
+            boolean good = validateConnection(conn.getRealConnection());
+            if (good) {
+                conn.setLastValidatedTimestamp(System.currentTimeMillis());
+            }
+            boolean keep = false;
+            CompletableFuture<PooledConnection> waiter = null;
+            state.lock.lock();
+            try {
+                if (!state.validatingConnections.remove(conn)) {
+                    // closed by forceCloseAll() in the meantime
+                    continue;
+                }
+                if (good && (!state.waiters.isEmpty() || state.idleConnections.size() < poolMaximumIdleConnections)) {
+                    keep = true;
+                    waiter = handOffOrIdle(conn);
+                } else if (!good) {
+                    state.badConnectionCount++;
+                }
+            } finally {
+                state.unlock();
+            }
+            if (waiter != null) {
+                waiter.complete(conn);
+            }
+            if (!keep) {
+                conn.invalidate();
+                closeStatements(conn);
+                closeQuietly(conn.getRealConnection());
+            }
+        }
+    }
+
+    private void housekeepConnectionBag() {
+        ConnectionBag bag = state.connectionBag;
+        int idleCount = bag.getCount(ConnectionBag.STATE_IDLE);
+        for (ConnectionBag.Entry entry : bag.values()) {
+            if (!bag.reserve(entry)) {
+                continue;
+            }
+            if (isExpired(entry.getAge())
+                    || (idleCount > poolMinimumIdleConnections && isIdleTooLong(System.currentTimeMillis() - entry.getLastUsedTimestamp()))) {
+                idleCount--;
+                if (bag.remove(entry)) {
+                    closeStatements(entry);
+                    closeQuietly(entry.getRealConnection());
+                    if (log.isDebugEnabled()) {
+                        log.debug("Retired idle connection " + entry.getRealConnection().hashCode() + ".");
+                    }
+                }
+            } else if (needsPing(entry.getLastUsedTimestamp(), entry.getLastValidatedTimestamp())) {
+                if (validateConnection(entry.getRealConnection())) {
+                    entry.setLastValidatedTimestamp(System.currentTimeMillis());
+                    bag.unreserve(entry);
+                } else if (bag.remove(entry)) {
+                    closeStatements(entry);
+                    idleCount--;
+                    state.recordBagBadConnection();
+                }
+            } else {
+                bag.unreserve(entry);
+            }
+        }
+    }
+
+    private void fillMinimumIdleConnections() {
+        while (true) {
+            ConnectionBag bag = state.connectionBag;
+            if (poolConnectionBagEnabled) {
+                if (bag.getCount(ConnectionBag.STATE_IDLE) >= poolMinimumIdleConnections
+                        || !bag.tryReserveSlot(poolMaximumActiveConnections)) {
+                    return;
+                }
+            } else {
+                state.lock.lock();
                 try {
-                    conn.getRealConnection().close();
-                } catch (Exception e2) {
-                    // ignore
+                    if (state.idleConnections.size() >= poolMinimumIdleConnections
+                            || state.idleConnections.size() + state.activeConnections.size() >= poolMaximumActiveConnections) {
+                        return;
+                    }
+                } finally {
+                    state.unlock();
                 }
-                result = false;  // 抛异常，即为失败
-                if (log.isDebugEnabled()) {
-                    log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
+            }
+            Connection realConn;
+            try {
+                realConn = openConnection();
+            } catch (SQLException e) {
+                if (poolConnectionBagEnabled) {
+                    bag.releaseSlot();
+                }
+                log.warn("Could not open a connection to keep the minimum number of idle connections: " + e.getMessage());
+                return;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Created idle connection " + realConn.hashCode() + ".");
+            }
+            if (poolConnectionBagEnabled) {
+                ConnectionBag.Entry entry = new ConnectionBag.Entry(realConn, ConnectionBag.STATE_IN_USE);
+                bag.add(entry);
+                bag.requite(entry);
+            } else {
+                PooledConnection conn = null;
+                CompletableFuture<PooledConnection> waiter = null;
+                state.lock.lock();
+                try {
+                    if (state.idleConnections.size() < poolMaximumIdleConnections
+                            && state.idleConnections.size() + state.activeConnections.size() < poolMaximumActiveConnections) {
+                        conn = new PooledConnection(realConn, this);
+                        waiter = handOffOrIdle(conn);
+                    }
+                } finally {
+                    state.unlock();
+                }
+                if (conn == null) {
+                    closeQuietly(realConn);
+                    return;
+                }
+                if (waiter != null) {
+                    waiter.complete(conn);
                 }
             }
         }
-        return result;
     }
 
     /**
@@ -603,8 +1598,48 @@ public class PooledDataSource implements DataSource {
         return conn;
     }
 
+    /**
+     * The state of a single connection request, kept across retries and hand-offs.
+     */
+    private static final class Checkout {
+        private final String username;
+        private final String password;
+        private final long startTimestamp = System.currentTimeMillis();
+        private final long startNanos = System.nanoTime();
+        private boolean countedWait;
+        private int localBadConnectionCount;
+        private CompletableFuture<PooledConnection> waiter;
+        private long waitTimestamp;
+
+        private Checkout(String username, String password) {
+            this.username = username;
+            this.password = password;
+        }
+    }
+
+    private static final class DefaultAsyncExecutorHolder {
+
+        private static final Executor INSTANCE = createDefaultAsyncExecutor();
+
+        private static Executor createDefaultAsyncExecutor() {
+            try {
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // virtual threads are not available before Java 21
+                AtomicInteger threadNumber = new AtomicInteger();
+                return Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "mybatis-pool-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+
     @Override
     protected void finalize() throws Throwable {
+        stopHousekeeper();
+        unregisterMBean();
         forceCloseAll();
         super.finalize();
     }
@@ -0,0 +1,283 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * A bounded LRU cache of prepared statements that belongs to one physical connection and survives the connection
+ * being returned to the pool.
+ * <p>
+ * Callers get a proxy whose <code>close()</code> resets the statement and gives it back to the cache. A statement that
+ * is still in use is never handed out twice; a second request for the same SQL gets a new, uncached statement. Like
+ * the connection itself, the cache is only ever used by the thread that has checked the connection out.
+ */
+class PreparedStatementCache {
+
+  private static final Class<?>[] IFACES = new Class<?>[] { PreparedStatement.class };
+  // setters of statement properties that are restored when a statement is given back, mapped to their getters
+  private static final Map<Method, Method> RESETTABLE_PROPERTIES = new HashMap<>();
+
+  static {
+    try {
+      for (String property : new String[] { "QueryTimeout", "FetchSize", "FetchDirection", "MaxRows", "MaxFieldSize" }) {
+        RESETTABLE_PROPERTIES.put(Statement.class.getMethod("set" + property, int.class),
+            Statement.class.getMethod("get" + property));
+      }
+    } catch (NoSuchMethodException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final int maxSize;
+  private final PoolState state;
+  private final LinkedHashMap<Key, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+  PreparedStatementCache(int maxSize, PoolState state) {
+    this.maxSize = maxSize;
+    this.state = state;
+  }
+
+  /**
+   * Returns true for the <code>prepareStatement</code> overloads that can be served from the cache.
+   */
+  static boolean isCacheable(Method method) {
+    Class<?>[] types = method.getParameterTypes();
+    return "prepareStatement".equals(method.getName()) && (types.length == 1
+        || (types.length == 3 && types[1] == int.class && types[2] == int.class));
+  }
+
+  PreparedStatement prepareStatement(Connection realConnection, Object[] args) throws SQLException {
+    String sql = (String) args[0];
+    int resultSetType = args.length == 3 ? (Integer) args[1] : ResultSet.TYPE_FORWARD_ONLY;
+    int resultSetConcurrency = args.length == 3 ? (Integer) args[2] : ResultSet.CONCUR_READ_ONLY;
+    Key key = new Key(sql, resultSetType, resultSetConcurrency);
+    CachedStatement cached = statements.get(key);
+    if (cached != null && !cached.isInUse()) {
+      state.recordStatementCacheHit();
+      return cached.checkout();
+    }
+    state.recordStatementCacheMiss();
+    PreparedStatement statement = args.length == 3
+        ? realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency)
+        : realConnection.prepareStatement(sql);
+    if (cached != null) {
+      return statement;
+    }
+    cached = new CachedStatement(statement);
+    statements.put(key, cached);
+    evictIfNecessary();
+    return cached.checkout();
+  }
+
+  private void evictIfNecessary() {
+    Iterator<CachedStatement> iterator = statements.values().iterator();
+    while (statements.size() > maxSize && iterator.hasNext()) {
+      CachedStatement cached = iterator.next();
+      if (!cached.isInUse()) {
+        iterator.remove();
+        cached.closeQuietly();
+        state.recordStatementCacheEviction();
+      }
+    }
+  }
+
+  /**
+   * Takes back all statements when the connection is returned to the pool, including those the caller did not close.
+   */
+  void releaseAll() {
+    List<CachedStatement> broken = new ArrayList<>();
+    for (CachedStatement cached : statements.values()) {
+      if (cached.isInUse() && !cached.release()) {
+        broken.add(cached);
+      }
+    }
+    statements.values().removeAll(broken);
+  }
+
+  /**
+   * Closes all statements, e.g. when the connection has been claimed from an overdue owner.
+   */
+  void closeAll() {
+    for (CachedStatement cached : statements.values()) {
+      cached.closeQuietly();
+    }
+    statements.clear();
+  }
+
+  int size() {
+    return statements.size();
+  }
+
+  private void remove(CachedStatement cached) {
+    statements.values().remove(cached);
+    cached.closeQuietly();
+  }
+
+  private static final class Key {
+    private final String sql;
+    private final int resultSetType;
+    private final int resultSetConcurrency;
+    private final int hashCode;
+
+    Key(String sql, int resultSetType, int resultSetConcurrency) {
+      this.sql = sql;
+      this.resultSetType = resultSetType;
+      this.resultSetConcurrency = resultSetConcurrency;
+      this.hashCode = Objects.hash(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return resultSetType == other.resultSetType && resultSetConcurrency == other.resultSetConcurrency
+          && sql.equals(other.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private final class CachedStatement {
+    private final PreparedStatement statement;
+    private final Map<Method, Object> originalProperties = new HashMap<>();
+    private boolean batched;
+    private Handle current;
+
+    CachedStatement(PreparedStatement statement) {
+      this.statement = statement;
+    }
+
+    boolean isInUse() {
+      return current != null;
+    }
+
+    PreparedStatement checkout() {
+      current = new Handle(this);
+      return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), IFACES, current);
+    }
+
+    /**
+     * Resets the statement for the next caller.
+     *
+     * @return false if the statement cannot be reused
+     */
+    boolean release() {
+      current.closed = true;
+      current = null;
+      try {
+        if (statement.isClosed()) {
+          return false;
+        }
+        statement.clearParameters();
+        if (batched) {
+          statement.clearBatch();
+          batched = false;
+        }
+        for (Map.Entry<Method, Object> property : originalProperties.entrySet()) {
+          property.getKey().invoke(statement, property.getValue());
+        }
+        originalProperties.clear();
+        statement.clearWarnings();
+        return true;
+      } catch (Exception e) {
+        return false;
+      }
+    }
+
+    void closeQuietly() {
+      if (current != null) {
+        current.closed = true;
+        current = null;
+      }
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        // ignore
+      }
+    }
+  }
+
+  private final class Handle implements InvocationHandler {
+    private final CachedStatement cached;
+    private boolean closed;
+
+    Handle(CachedStatement cached) {
+      this.cached = cached;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String methodName = method.getName();
+      if (Object.class.equals(method.getDeclaringClass())) {
+        if ("equals".equals(methodName)) {
+          return proxy == args[0];
+        } else if ("hashCode".equals(methodName)) {
+          return System.identityHashCode(proxy);
+        }
+        return method.invoke(cached.statement, args);
+      }
+      if ("close".equals(methodName)) {
+        if (!closed && !cached.release()) {
+          remove(cached);
+        }
+        closed = true;
+        return null;
+      } else if ("isClosed".equals(methodName)) {
+        return closed || cached.statement.isClosed();
+      } else if (closed) {
+        throw new SQLException("Error accessing PreparedStatement. Statement is closed.");
+      }
+      try {
+        Method setter = Statement.class.equals(method.getDeclaringClass()) ? method : null;
+        Method getter = setter == null ? null : RESETTABLE_PROPERTIES.get(setter);
+        if (getter != null && !cached.originalProperties.containsKey(setter)) {
+          cached.originalProperties.put(setter, getter.invoke(cached.statement));
+        } else if ("addBatch".equals(methodName)) {
+          cached.batched = true;
+        }
+        return method.invoke(cached.statement, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,284 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A data source made of a primary database and any number of read replicas.
+ * <p>
+ * {@link #getConnection()} always returns a primary connection. Read connections are obtained from
+ * {@link #getReadDataSource()}, which picks a replica at random, in proportion to its weight divided by the recent
+ * time it took to get a connection from it. A replica whose connection attempt failed is skipped for
+ * {@link #getReplicaRetryInterval()} milliseconds, and the primary serves reads when no replica is available.
+ * <p>
+ * Together with {@link org.apache.ibatis.transaction.routing.RoutingTransactionFactory}, select statements are sent to
+ * the replicas and everything else to the primary.
+ */
+public class RoutingDataSource implements DataSource {
+
+  private static final Log log = LogFactory.getLog(RoutingDataSource.class);
+
+  // weight of the latest sample in the moving average of the connection latency
+  private static final double LATENCY_SMOOTHING = 0.2;
+
+  private final DataSource primary;
+  private final List<Replica> replicas = new CopyOnWriteArrayList<>();
+  private final DataSource readDataSource = new ReadDataSource();
+  private volatile long replicaRetryInterval = 30000;
+
+  public RoutingDataSource(DataSource primary) {
+    this.primary = primary;
+  }
+
+  /**
+   * Adds a read replica.
+   *
+   * @param replica
+   *          the data source of the replica, usually a {@link org.apache.ibatis.datasource.pooled.PooledDataSource}
+   * @param weight
+   *          the share of reads the replica gets relative to the other replicas when their latencies are equal
+   */
+  public void addReplica(DataSource replica, int weight) {
+    if (weight <= 0) {
+      throw new IllegalArgumentException("The weight of a replica must be positive but was " + weight + ".");
+    }
+    replicas.add(new Replica(replica, weight));
+  }
+
+  public DataSource getPrimary() {
+    return primary;
+  }
+
+  public List<DataSource> getReplicas() {
+    List<DataSource> result = new ArrayList<>();
+    for (Replica replica : replicas) {
+      result.add(replica.dataSource);
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Gets a data source that load balances connections over the replicas.
+   *
+   * @return the read data source
+   */
+  public DataSource getReadDataSource() {
+    return readDataSource;
+  }
+
+  public long getReplicaRetryInterval() {
+    return replicaRetryInterval;
+  }
+
+  /**
+   * Sets how long a replica is skipped after a failed connection attempt.
+   *
+   * @param milliseconds
+   *          the time in milliseconds
+   */
+  public void setReplicaRetryInterval(long milliseconds) {
+    this.replicaRetryInterval = milliseconds;
+  }
+
+  /**
+   * Gets the moving average of the time it took to get a connection from a replica.
+   *
+   * @param replica
+   *          the data source of the replica
+   * @return the latency in nanoseconds, or -1 if the data source is not a replica of this data source
+   */
+  public long getReplicaLatency(DataSource replica) {
+    for (Replica candidate : replicas) {
+      if (candidate.dataSource == replica) {
+        return (long) candidate.latency;
+      }
+    }
+    return -1;
+  }
+
+  private Connection getReadConnection(String username, String password) throws SQLException {
+    long now = System.currentTimeMillis();
+    List<Replica> candidates = new ArrayList<>();
+    for (Replica replica : replicas) {
+      if (replica.downUntil <= now) {
+        candidates.add(replica);
+      }
+    }
+    while (!candidates.isEmpty()) {
+      Replica replica = choose(candidates);
+      long start = System.nanoTime();
+      try {
+        Connection connection = username == null ? replica.dataSource.getConnection()
+            : replica.dataSource.getConnection(username, password);
+        replica.recordLatency(System.nanoTime() - start);
+        return connection;
+      } catch (SQLException e) {
+        replica.downUntil = System.currentTimeMillis() + replicaRetryInterval;
+        log.warn("Could not get a connection from replica " + replica.dataSource + ", skipping it for "
+            + replicaRetryInterval + " ms. Cause: " + e);
+        candidates.remove(replica);
+      }
+    }
+    if (!replicas.isEmpty() && log.isDebugEnabled()) {
+      log.debug("No replica is available, reading from the primary.");
+    }
+    return username == null ? primary.getConnection() : primary.getConnection(username, password);
+  }
+
+  private Replica choose(List<Replica> candidates) {
+    double[] shares = new double[candidates.size()];
+    double total = 0;
+    for (int i = 0; i < shares.length; i++) {
+      Replica replica = candidates.get(i);
+      // a replica that takes a millisecond to hand out a connection gets half of its weight
+      shares[i] = replica.weight / (1.0 + replica.latency / 1_000_000.0);
+      total += shares[i];
+    }
+    double random = ThreadLocalRandom.current().nextDouble(total);
+    for (int i = 0; i < shares.length; i++) {
+      random -= shares[i];
+      if (random < 0) {
+        return candidates.get(i);
+      }
+    }
+    return candidates.get(shares.length - 1);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return primary.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return primary.getConnection(username, password);
+  }
+
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return primary.getLogWriter();
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) throws SQLException {
+    primary.setLogWriter(out);
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    primary.setLoginTimeout(seconds);
+  }
+
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return primary.getLoginTimeout();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    throw new SQLException(getClass().getName() + " is not a wrapper.");
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return false;
+  }
+
+  @Override
+  public Logger getParentLogger() {
+    return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+  }
+
+  private static final class Replica {
+    private final DataSource dataSource;
+    private final int weight;
+    private volatile double latency;
+    private volatile long downUntil;
+
+    Replica(DataSource dataSource, int weight) {
+      this.dataSource = dataSource;
+      this.weight = weight;
+    }
+
+    void recordLatency(long nanos) {
+      // races between threads only lose a sample
+      latency = latency == 0 ? nanos : latency + LATENCY_SMOOTHING * (nanos - latency);
+    }
+  }
+
+  private final class ReadDataSource implements DataSource {
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      return getReadConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+      return getReadConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+      return RoutingDataSource.this.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+      RoutingDataSource.this.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+      RoutingDataSource.this.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+      return RoutingDataSource.this.getLoginTimeout();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+      throw new SQLException(getClass().getName() + " is not a wrapper.");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+      return false;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+      return RoutingDataSource.this.getParentLogger();
+    }
+  }
+
+}
@@ -0,0 +1,41 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.exceptions;
+
+/**
+ * Thrown when work is started or keeps waiting after the {@link org.apache.ibatis.session.Deadline} of the calling
+ * thread has passed.
+ */
+public class DeadlineExceededException extends PersistenceException {
+
+  private static final long serialVersionUID = -2315408463937651387L;
+
+  public DeadlineExceededException() {
+    super();
+  }
+
+  public DeadlineExceededException(String message) {
+    super(message);
+  }
+
+  public DeadlineExceededException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public DeadlineExceededException(Throwable cause) {
+    super(cause);
+  }
+}
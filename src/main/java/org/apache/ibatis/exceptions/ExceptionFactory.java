@@ -15,7 +15,10 @@
  */
 package org.apache.ibatis.exceptions;
 
+import java.sql.SQLTimeoutException;
+
 import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.session.Deadline;
 
 /**
  * @author Clinton Begin
@@ -27,7 +30,22 @@ public class ExceptionFactory {
   }
 
   public static RuntimeException wrapException(String message, Exception e) {
+    if (isCausedByDeadline(e)) {
+      return new DeadlineExceededException(ErrorContext.instance().message(message).cause(e).toString(), e);
+    }
     return new PersistenceException(ErrorContext.instance().message(message).cause(e).toString(), e);
   }
 
+  private static boolean isCausedByDeadline(Throwable e) {
+    Deadline deadline = Deadline.current();
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      // query timeouts are capped by the deadline
+      if (cause instanceof DeadlineExceededException
+          || (cause instanceof SQLTimeoutException && deadline != null && deadline.isExpired())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
 }
@@ -38,6 +38,7 @@ import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.Deadline;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -65,13 +66,22 @@ public abstract class BaseExecutor implements Executor {
     protected BaseExecutor(Configuration configuration, Transaction transaction) {
         this.transaction = transaction;
         this.deferredLoads = new ConcurrentLinkedQueue<>();
-        this.localCache = new PerpetualCache("LocalCache");
+        this.localCache = newLocalCache(configuration);
         this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
         this.closed = false;
         this.configuration = configuration;
         this.wrapper = this;
     }
 
+    private static PerpetualCache newLocalCache(Configuration configuration) {
+        if (configuration != null
+                && (configuration.getLocalCacheMaxEntries() > 0 || configuration.getLocalCacheMaxRows() > 0)) {
+            return new BoundedLocalCache("LocalCache", configuration.getLocalCacheMaxEntries(),
+                    configuration.getLocalCacheMaxRows(), configuration.getLocalCacheStatistics());
+        }
+        return new PerpetualCache("LocalCache");
+    }
+
     @Override
     public Transaction getTransaction() {
         if (closed) {
@@ -113,7 +123,9 @@ public abstract class BaseExecutor implements Executor {
         if (closed) {
             throw new ExecutorException("Executor was closed.");
         }
+        checkDeadline();
         clearLocalCache();
+        transaction.beforeStatement(ms);
         return doUpdate(ms, parameter);
     }
 
@@ -143,6 +155,7 @@ public abstract class BaseExecutor implements Executor {
         if (closed) {
             throw new ExecutorException("Executor was closed.");
         }
+        checkDeadline();
         if (queryStack == 0 && ms.isFlushCacheRequired()) {
             // 非嵌套查询，并且<select>节点配置的flushCache属性为true时，才会清空一级缓存
             // flushCache配置项是影响一级缓存中结果对象存活时长的第一个方面
@@ -173,6 +186,11 @@ public abstract class BaseExecutor implements Executor {
             if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
                 // 根据配置决定是否清空localCache
                 clearLocalCache();
+            } else if (localCache instanceof BoundedLocalCache) {
+                // no placeholder or deferred load is left at this point
+                for (Object evictedKey : ((BoundedLocalCache) localCache).evict()) {
+                    localOutputParameterCache.removeObject(evictedKey);
+                }
             }
         }
         return list;
@@ -180,7 +198,9 @@ public abstract class BaseExecutor implements Executor {
 
     @Override
     public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        checkDeadline();
         BoundSql boundSql = ms.getBoundSql(parameter);
+        transaction.beforeStatement(ms);
         return doQueryCursor(ms, parameter, rowBounds, boundSql);
     }
 
@@ -306,6 +326,13 @@ public abstract class BaseExecutor implements Executor {
         StatementUtil.applyTransactionTimeout(statement, statement.getQueryTimeout(), transaction.getTimeout());
     }
 
+    private void checkDeadline() {
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            deadline.check();
+        }
+    }
+
     private void handleLocallyCachedOutputParameters(MappedStatement ms, CacheKey key, Object parameter, BoundSql boundSql) {
         if (ms.getStatementType() == StatementType.CALLABLE) {
             final Object cachedParameter = localOutputParameterCache.getObject(key);
@@ -327,6 +354,7 @@ public abstract class BaseExecutor implements Executor {
         List<E> list;
         localCache.putObject(key, EXECUTION_PLACEHOLDER);
         try {
+            transaction.beforeStatement(ms);
             list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
         } finally {
             localCache.removeObject(key);
@@ -21,7 +21,9 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -30,6 +32,9 @@ import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -44,8 +49,16 @@ public class BatchExecutor extends BaseExecutor {
 
     private final List<Statement> statementList = new ArrayList<>();
     private final List<BatchResult> batchResultList = new ArrayList<>();
+    // 改写为多行INSERT语句的批处理，对应下标的statementList元素为null
+    private final List<MultiRowInsert> multiRowInsertList = new ArrayList<>();
+    // 自动刷新时已经执行的批处理结果，在下一次flushStatements()时一并返回
+    private final List<BatchResult> flushedResults = new ArrayList<>();
+    // 开启groupBatchStatements时，记录每个MappedStatement及SQL语句对应的Statement在statementList中的下标
+    private final Map<MappedStatement, Map<String, Integer>> statementIndexes = new HashMap<>();
     private String currentSql;
     private MappedStatement currentStatement;
+    private int batchedRowCount;
+    private long batchedByteSize;
 
     public BatchExecutor(Configuration configuration, Transaction transaction) {
         super(configuration, transaction);
@@ -60,33 +73,171 @@ public class BatchExecutor extends BaseExecutor {
         // 获取此次追加的SQL模板
         final String sql = boundSql.getSql();
         final Statement stmt;
-        // 比较此次追加的SQL模板与最近一次追加的SQL模板，以及两个MappedStatement对象
-        if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-            // 两者相同，则获取statementList集合中最后一个Statement对象
-            int last = statementList.size() - 1;
-            stmt = statementList.get(last);
-            applyTransactionTimeout(stmt);
-            handler.parameterize(stmt); // 设置实参
+        final MultiRowInsert multiRowInsert;
+        // 查找可以追加此次SQL语句的Statement对象
+        final int index = findBatch(ms, sql);
+        if (index >= 0) {
+            stmt = statementList.get(index);
+            multiRowInsert = multiRowInsertList.get(index);
+            if (stmt != null) {
+                applyTransactionTimeout(stmt);
+                handler.parameterize(stmt); // 设置实参
+            }
             // 查找该Statement对象对应的BatchResult对象，并记录用户传入的实参
-            BatchResult batchResult = batchResultList.get(last);
-            batchResult.addParameterObject(parameterObject);
+            BatchResult batchResult = batchResultList.get(index);
+            if (isParameterObjectRetained(ms)) {
+                batchResult.addParameterObject(parameterObject);
+            }
         } else {
-            Connection connection = getConnection(ms.getStatementLog());
-            // 创建新的Statement对象
-            stmt = handler.prepare(connection, transaction.getTimeout());
-            handler.parameterize(stmt);// 设置实参
+            // 单行INSERT语句会在执行时改写为多行INSERT语句，此时延迟创建Statement对象
+            multiRowInsert = MultiRowInsert.of(ms, boundSql, configuration.getMultiRowInsertParameterLimit());
+            if (multiRowInsert == null) {
+                Connection connection = getConnection(ms.getStatementLog());
+                // 创建新的Statement对象
+                stmt = handler.prepare(connection, transaction.getTimeout());
+                handler.parameterize(stmt);// 设置实参
+            } else {
+                stmt = null;
+            }
             // 更新currentSql和currentStatement
             currentSql = sql;
             currentStatement = ms;
             // 将新创建的Statement对象添加到statementList集合中
             statementList.add(stmt);
+            multiRowInsertList.add(multiRowInsert);
             // 为新Statement对象添加新的BatchResult对象
-            batchResultList.add(new BatchResult(ms, sql, parameterObject));
+            batchResultList.add(isParameterObjectRetained(ms) ? new BatchResult(ms, sql, parameterObject) : new BatchResult(ms, sql));
+            if (configuration.isGroupBatchStatements()) {
+                statementIndexes.computeIfAbsent(ms, k -> new HashMap<>()).put(sql, statementList.size() - 1);
+            }
+        }
+        if (multiRowInsert != null) {
+            multiRowInsert.addRow(handler, getConnection(ms.getStatementLog()));
+        } else {
+            handler.batch(stmt);
+        }
+        batchedRowCount++;
+        if (configuration.getBatchFlushByteSize() > 0) {
+            batchedByteSize += estimateByteSize(boundSql, parameterObject);
+        }
+        // 达到任一阈值时提前执行已缓存的批处理，使内存占用保持有界
+        if (isFlushRequired()) {
+            executeBatches(flushedResults);
+            if (!configuration.isRetainFlushedBatchResults()) {
+                aggregateFlushedResults();
+            }
         }
-        handler.batch(stmt);
         return BATCH_UPDATE_RETURN_VALUE;
     }
 
+    /**
+     * Finds the pending statement the SQL can be added to. By default only the statement added last is reused, so
+     * interleaved statements each start a new batch. With {@link Configuration#isGroupBatchStatements()} every distinct
+     * SQL keeps its own batch and the batches are executed in the order they were first used.
+     *
+     * @return the index of the statement in {@link #statementList}, or -1 if a new statement is needed
+     */
+    private int findBatch(MappedStatement ms, String sql) {
+        if (configuration.isGroupBatchStatements()) {
+            Map<String, Integer> indexes = statementIndexes.get(ms);
+            Integer index = indexes == null ? null : indexes.get(sql);
+            return index == null ? -1 : index;
+        }
+        // 比较此次追加的SQL模板与最近一次追加的SQL模板，以及两个MappedStatement对象
+        return sql.equals(currentSql) && ms.equals(currentStatement) ? statementList.size() - 1 : -1;
+    }
+
+    /**
+     * Parameter objects are needed to assign generated keys after the batch has been executed, otherwise they are only
+     * kept for the caller of {@link #flushStatements()} if {@link Configuration#isRetainBatchParameterObjects()} is on.
+     */
+    private boolean isParameterObjectRetained(MappedStatement ms) {
+        return configuration.isRetainBatchParameterObjects() || !NoKeyGenerator.class.equals(ms.getKeyGenerator().getClass());
+    }
+
+    private boolean isFlushRequired() {
+        int statementCount = configuration.getBatchFlushStatementCount();
+        int rowCount = configuration.getBatchFlushRowCount();
+        int byteSize = configuration.getBatchFlushByteSize();
+        return (statementCount > 0 && statementList.size() >= statementCount)
+                || (rowCount > 0 && batchedRowCount >= rowCount)
+                || (byteSize > 0 && batchedByteSize >= byteSize);
+    }
+
+    /**
+     * Replaces the results of the automatically flushed batches by one result per statement and SQL, without parameter
+     * objects, whose only update count is the total of the rows.
+     */
+    private void aggregateFlushedResults() {
+        List<BatchResult> aggregatedResults = new ArrayList<>();
+        for (BatchResult batchResult : flushedResults) {
+            BatchResult total = null;
+            for (BatchResult aggregatedResult : aggregatedResults) {
+                if (aggregatedResult.getMappedStatement() == batchResult.getMappedStatement()
+                        && aggregatedResult.getSql().equals(batchResult.getSql())) {
+                    total = aggregatedResult;
+                    break;
+                }
+            }
+            if (total == null) {
+                total = new BatchResult(batchResult.getMappedStatement(), batchResult.getSql());
+                total.setUpdateCounts(new int[] { 0 });
+                aggregatedResults.add(total);
+            }
+            total.getUpdateCounts()[0] = addUpdateCounts(total.getUpdateCounts()[0], batchResult.getUpdateCounts());
+        }
+        flushedResults.clear();
+        flushedResults.addAll(aggregatedResults);
+    }
+
+    private static int addUpdateCounts(int total, int[] updateCounts) {
+        for (int updateCount : updateCounts) {
+            if (total < 0 || updateCount < 0) {
+                return Statement.SUCCESS_NO_INFO;
+            }
+            total += updateCount;
+        }
+        return total;
+    }
+
+    /**
+     * Roughly estimates the memory a driver needs to buffer the parameter values of one batched row.
+     */
+    private long estimateByteSize(BoundSql boundSql, Object parameterObject) {
+        long size = 0;
+        MetaObject metaObject = null;
+        for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+            if (parameterMapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            String propertyName = parameterMapping.getProperty();
+            Object value;
+            if (boundSql.hasAdditionalParameter(propertyName)) {
+                value = boundSql.getAdditionalParameter(propertyName);
+            } else if (parameterObject == null) {
+                value = null;
+            } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+                value = parameterObject;
+            } else {
+                if (metaObject == null) {
+                    metaObject = configuration.newMetaObject(parameterObject);
+                }
+                value = metaObject.getValue(propertyName);
+            }
+            size += estimateByteSize(value);
+        }
+        return size;
+    }
+
+    private static long estimateByteSize(Object value) {
+        if (value instanceof CharSequence) {
+            return 16 + 2L * ((CharSequence) value).length();
+        } else if (value instanceof byte[]) {
+            return 16 + ((byte[]) value).length;
+        }
+        return 16;
+    }
+
     @Override
     public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
             throws SQLException {
@@ -120,16 +271,42 @@ public class BatchExecutor extends BaseExecutor {
     @Override
     public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
         try {
-            // 用于储存批处理的结果
-            List<BatchResult> results = new ArrayList<>();
             // 如果明确指定了要回滚事务，则直接返回空集合，忽略statementList集合中记录的SQL语句
             if (isRollback) {
                 return Collections.emptyList();
             }
+            // 用于储存批处理的结果，包括自动刷新时已经执行的批处理
+            List<BatchResult> results = new ArrayList<>(flushedResults);
+            executeBatches(results);
+            return results;
+        } finally {
+            flushedResults.clear();
+            clearBatches();
+        }
+    }
+
+    /**
+     * Executes all pending batches and adds their results to the given list.
+     */
+    private void executeBatches(List<BatchResult> results) throws SQLException {
+        try {
             for (int i = 0, n = statementList.size(); i < n; i++) { // 遍历statementList集合
                 Statement stmt = statementList.get(i);// 获取Statement对象
-                applyTransactionTimeout(stmt);
                 BatchResult batchResult = batchResultList.get(i); // 获取对应BatchResult对象
+                MultiRowInsert multiRowInsert = multiRowInsertList.get(i);
+                if (multiRowInsert != null) {
+                    try {
+                        // 多行INSERT语句在执行时已经处理了生成的主键
+                        batchResult.setUpdateCounts(multiRowInsert.execute(
+                                getConnection(batchResult.getMappedStatement().getStatementLog()), transaction.getTimeout()));
+                    } catch (SQLException e) {
+                        throw batchFailure(batchResult, i, results, e instanceof BatchUpdateException ? (BatchUpdateException) e
+                                : new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), new int[0], e));
+                    }
+                    results.add(batchResult);
+                    continue;
+                }
+                applyTransactionTimeout(stmt);
                 try {
                     // 调用Statement.executeBatch()方法批量执行其中记录的SQL语句，并使用返回的int数组
                     // 更新BatchResult.updateCounts字段，其中每一个元素都表示一条SQL语句影响的记录条数
@@ -150,31 +327,43 @@ public class BatchExecutor extends BaseExecutor {
                     }
                     closeStatement(stmt);
                 } catch (BatchUpdateException e) {
-                    StringBuilder message = new StringBuilder();
-                    message.append(batchResult.getMappedStatement().getId())
-                            .append(" (batch index #")
-                            .append(i + 1)
-                            .append(")")
-                            .append(" failed.");
-                    if (i > 0) {
-                        message.append(" ")
-                                .append(i)
-                                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
-                    }
-                    throw new BatchExecutorException(message.toString(), e, results, batchResult);
+                    throw batchFailure(batchResult, i, results, e);
                 }
                 // 添加BatchResult到results集合
                 results.add(batchResult);
             }
-            return results;
         } finally {
-            for (Statement stmt : statementList) {
-                closeStatement(stmt);
-            }
-            currentSql = null;
-            statementList.clear();
-            batchResultList.clear();
+            clearBatches();
+        }
+    }
+
+    private BatchExecutorException batchFailure(BatchResult batchResult, int index, List<BatchResult> results,
+            BatchUpdateException e) {
+        StringBuilder message = new StringBuilder();
+        message.append(batchResult.getMappedStatement().getId())
+                .append(" (batch index #")
+                .append(index + 1)
+                .append(")")
+                .append(" failed.");
+        if (!results.isEmpty()) {
+            message.append(" ")
+                    .append(results.size())
+                    .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+        }
+        return new BatchExecutorException(message.toString(), e, new ArrayList<>(results), batchResult);
+    }
+
+    private void clearBatches() {
+        for (Statement stmt : statementList) {
+            closeStatement(stmt);
         }
+        currentSql = null;
+        statementList.clear();
+        batchResultList.clear();
+        multiRowInsertList.clear();
+        statementIndexes.clear();
+        batchedRowCount = 0;
+        batchedByteSize = 0;
     }
 
 }
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.impl.PerpetualCache;
+
+/**
+ * A local cache that evicts the least recently used query results once it holds more than a maximum number of entries
+ * or of result objects.
+ * <p>
+ * Evicting is left to {@link #evict()}, which the executor calls only between top-level queries. While nested queries
+ * run, the cache may exceed its bounds, so that execution placeholders and the results awaited by deferred loads stay
+ * in it.
+ */
+class BoundedLocalCache extends PerpetualCache {
+
+    private final int maxEntries;
+    private final long maxRows;
+    private final LocalCacheStatistics statistics;
+    // number of result objects of every entry, in access order
+    private final Map<Object, Integer> rowCounts = new LinkedHashMap<>(16, .75F, true);
+    private long rows;
+
+    BoundedLocalCache(String id, int maxEntries, long maxRows, LocalCacheStatistics statistics) {
+        super(id);
+        this.maxEntries = maxEntries;
+        this.maxRows = maxRows;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        super.putObject(key, value);
+        int count = value instanceof List ? ((List<?>) value).size() : 0;
+        Integer previous = rowCounts.put(key, count);
+        rows += count - (previous == null ? 0 : previous);
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        rowCounts.get(key);
+        return super.getObject(key);
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        Integer previous = rowCounts.remove(key);
+        if (previous != null) {
+            rows -= previous;
+        }
+        return super.removeObject(key);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        rowCounts.clear();
+        rows = 0;
+    }
+
+    /**
+     * Removes the least recently used entries until the cache is within its bounds.
+     *
+     * @return the keys of the removed entries
+     */
+    List<Object> evict() {
+        List<Object> evictedKeys = new ArrayList<>();
+        Iterator<Map.Entry<Object, Integer>> iterator = rowCounts.entrySet().iterator();
+        while (iterator.hasNext() && isOverLimit()) {
+            Map.Entry<Object, Integer> eldest = iterator.next();
+            iterator.remove();
+            rows -= eldest.getValue();
+            super.removeObject(eldest.getKey());
+            evictedKeys.add(eldest.getKey());
+            statistics.recordEviction(eldest.getValue());
+        }
+        return evictedKeys;
+    }
+
+    private boolean isOverLimit() {
+        return (maxEntries > 0 && rowCounts.size() > maxEntries) || (maxRows > 0 && rows > maxRows);
+    }
+
+}
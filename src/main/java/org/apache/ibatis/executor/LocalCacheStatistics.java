@@ -0,0 +1,58 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the entries evicted from the bounded local caches of all sessions of a configuration.
+ *
+ * @see org.apache.ibatis.session.Configuration#getLocalCacheStatistics()
+ */
+public class LocalCacheStatistics {
+
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong evictedRowCount = new AtomicLong();
+
+    void recordEviction(int rows) {
+        evictionCount.incrementAndGet();
+        evictedRowCount.addAndGet(rows);
+    }
+
+    /**
+     * Gets the number of query results evicted from local caches.
+     *
+     * @return the number of evicted entries
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Gets the number of result objects in the evicted query results.
+     *
+     * @return the number of evicted rows
+     */
+    public long getEvictedRowCount() {
+        return evictedRowCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "LocalCacheStatistics [evictionCount=" + evictionCount + ", evictedRowCount=" + evictedRowCount + "]";
+    }
+
+}
@@ -0,0 +1,274 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.executor.statement.StatementUtil;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * The rows of a batched single-row <code>INSERT ... VALUES (...)</code> statement, executed as multi-row
+ * <code>INSERT ... VALUES (...), (...), ...</code> statements with at most
+ * {@link org.apache.ibatis.session.Configuration#getMultiRowInsertParameterLimit()} parameters each.
+ * <p>
+ * Every row is parameterized by its own {@link StatementHandler} when it is added, through a statement proxy that
+ * records the parameter setter calls, so type handlers and plugins see the usual single-row calls and the values are
+ * captured as by {@link Statement#addBatch()}. The calls are replayed at the position of the row on execution.
+ *
+ * @see BatchExecutor
+ */
+class MultiRowInsert {
+
+    private static final Pattern VALUES = Pattern.compile("^\\s*insert\\s.*?\\bvalues\\s*(?=\\()",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final MappedStatement mappedStatement;
+    private final String head;
+    private final String row;
+    private final int parametersPerRow;
+    private final int rowsPerStatement;
+    private final List<Row> rows = new ArrayList<>();
+
+    private MultiRowInsert(MappedStatement mappedStatement, String head, String row, int parametersPerRow, int rowsPerStatement) {
+        this.mappedStatement = mappedStatement;
+        this.head = head;
+        this.row = row;
+        this.parametersPerRow = parametersPerRow;
+        this.rowsPerStatement = rowsPerStatement;
+    }
+
+    /**
+     * Creates a multi-row insert for a statement if its SQL is a plain single-row insert.
+     *
+     * @return the multi-row insert, or null if the statement cannot be rewritten
+     */
+    static MultiRowInsert of(MappedStatement ms, BoundSql boundSql, int parameterLimit) {
+        if (parameterLimit <= 0 || ms.getSqlCommandType() != SqlCommandType.INSERT
+                || ms.getStatementType() != StatementType.PREPARED) {
+            return null;
+        }
+        // keys of other generators are assigned per executed statement
+        KeyGenerator keyGenerator = ms.getKeyGenerator();
+        if (!NoKeyGenerator.class.equals(keyGenerator.getClass()) && !Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+            return null;
+        }
+        int parametersPerRow = boundSql.getParameterMappings().size();
+        if (parametersPerRow == 0 || parametersPerRow > parameterLimit) {
+            return null;
+        }
+        String sql = boundSql.getSql();
+        Matcher matcher = VALUES.matcher(sql);
+        if (!matcher.find()) {
+            return null;
+        }
+        String head = sql.substring(0, matcher.end());
+        String row = sql.substring(matcher.end()).trim();
+        // the values must be a single parenthesized row that ends the statement and holds all placeholders
+        if (countPlaceholders(head) != 0 || closingParenthesis(row) != row.length() - 1
+                || countPlaceholders(row) != parametersPerRow) {
+            return null;
+        }
+        return new MultiRowInsert(ms, head, row, parametersPerRow, parameterLimit / parametersPerRow);
+    }
+
+    private static int countPlaceholders(String sql) {
+        int count = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int closingParenthesis(String sql) {
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '(') {
+                depth++;
+            } else if (!quoted && c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a row, binding its parameters right away.
+     *
+     * @param handler
+     *          the statement handler of the row
+     * @param connection
+     *          the connection, for type handlers that create JDBC objects
+     */
+    void addRow(StatementHandler handler, Connection connection) throws SQLException {
+        Row row = new Row(handler.getParameterHandler().getParameterObject());
+        handler.parameterize(recordParameters(row, connection));
+        rows.add(row);
+    }
+
+    int getRowCount() {
+        return rows.size();
+    }
+
+    /**
+     * Inserts all rows and assigns the generated keys.
+     *
+     * @return the update count of every row, {@link Statement#SUCCESS_NO_INFO} if the driver reported an unexpected
+     *         total for a statement
+     */
+    int[] execute(Connection connection, Integer transactionTimeout) throws SQLException {
+        int[] updateCounts = new int[rows.size()];
+        String fullSql = null;
+        for (int from = 0; from < rows.size(); from += rowsPerStatement) {
+            int to = Math.min(from + rowsPerStatement, rows.size());
+            String sql;
+            if (to - from == rowsPerStatement) {
+                sql = fullSql == null ? fullSql = buildSql(rowsPerStatement) : fullSql;
+            } else {
+                sql = buildSql(to - from);
+            }
+            try (PreparedStatement statement = prepareStatement(connection, sql)) {
+                setStatementTimeout(statement, transactionTimeout);
+                List<Object> parameterObjects = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    Row row = rows.get(i);
+                    row.bind(statement, (i - from) * parametersPerRow);
+                    parameterObjects.add(row.parameterObject);
+                }
+                int count = statement.executeUpdate();
+                Arrays.fill(updateCounts, from, to, count == to - from ? 1 : Statement.SUCCESS_NO_INFO);
+                KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
+                if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+                    ((Jdbc3KeyGenerator) keyGenerator).processBatch(mappedStatement, statement, parameterObjects);
+                }
+            }
+        }
+        return updateCounts;
+    }
+
+    private String buildSql(int rows) {
+        StringBuilder sql = new StringBuilder(head.length() + rows * (row.length() + 2)).append(head).append(row);
+        for (int i = 1; i < rows; i++) {
+            sql.append(", ").append(row);
+        }
+        return sql.toString();
+    }
+
+    private PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+        if (mappedStatement.getKeyGenerator() instanceof Jdbc3KeyGenerator) {
+            String[] keyColumnNames = mappedStatement.getKeyColumns();
+            if (keyColumnNames == null) {
+                return connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
+            }
+            return connection.prepareStatement(sql, keyColumnNames);
+        }
+        return connection.prepareStatement(sql);
+    }
+
+    private void setStatementTimeout(Statement statement, Integer transactionTimeout) throws SQLException {
+        Integer queryTimeout = mappedStatement.getTimeout();
+        if (queryTimeout == null) {
+            queryTimeout = mappedStatement.getConfiguration().getDefaultStatementTimeout();
+        }
+        if (queryTimeout != null) {
+            statement.setQueryTimeout(queryTimeout);
+        }
+        StatementUtil.applyTransactionTimeout(statement, queryTimeout, transactionTimeout);
+    }
+
+    private static PreparedStatement recordParameters(Row row, Connection connection) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                    if (isParameterSetter(method)) {
+                        row.methods.add(method);
+                        row.arguments.add(args.clone());
+                        return null;
+                    } else if (method.getName().equals("getConnection") && method.getParameterTypes().length == 0) {
+                        return connection;
+                    } else if (method.getDeclaringClass() == Object.class) {
+                        return method.getName().equals("equals") ? proxy == args[0]
+                                : method.getName().equals("hashCode") ? System.identityHashCode(proxy) : "MultiRowInsert row";
+                    }
+                    throw new SQLFeatureNotSupportedException("Method " + method.getName()
+                            + " cannot be called while binding a row of a multi-row insert.");
+                });
+    }
+
+    private static boolean isParameterSetter(Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        return PreparedStatement.class.equals(method.getDeclaringClass()) && method.getName().startsWith("set")
+                && parameterTypes.length >= 2 && parameterTypes[0] == int.class;
+    }
+
+    /**
+     * The parameter object of a row and the parameter setter calls its statement handler made.
+     */
+    private static final class Row {
+        private final Object parameterObject;
+        private final List<Method> methods = new ArrayList<>();
+        private final List<Object[]> arguments = new ArrayList<>();
+
+        Row(Object parameterObject) {
+            this.parameterObject = parameterObject;
+        }
+
+        void bind(PreparedStatement statement, int offset) throws SQLException {
+            for (int i = 0; i < methods.size(); i++) {
+                Object[] args = arguments.get(i).clone();
+                args[0] = (Integer) args[0] + offset;
+                try {
+                    methods.get(i).invoke(statement, args);
+                } catch (Exception e) {
+                    Throwable cause = ExceptionUtil.unwrapThrowable(e);
+                    if (cause instanceof SQLException) {
+                        throw (SQLException) cause;
+                    }
+                    throw new SQLException("Could not bind parameter " + args[0] + ".  Cause: " + cause, cause);
+                }
+            }
+        }
+    }
+
+}
@@ -39,6 +39,8 @@ import org.apache.ibatis.transaction.Transaction;
 public class ReuseExecutor extends BaseExecutor {
 
     private final Map<String, Statement> statementMap = new HashMap<>();
+    // 记录语句创建时事务返回的连接，事务可能按语句切换连接（如读写分离）
+    private final Map<String, Connection> connectionMap = new HashMap<>();
 
     public ReuseExecutor(Configuration configuration, Transaction transaction) {
         super(configuration, transaction);
@@ -74,6 +76,7 @@ public class ReuseExecutor extends BaseExecutor {
             closeStatement(stmt);
         }
         statementMap.clear();
+        connectionMap.clear();
         return Collections.emptyList();
     }
 
@@ -87,7 +90,7 @@ public class ReuseExecutor extends BaseExecutor {
         } else {
             Connection connection = getConnection(statementLog);
             stmt = handler.prepare(connection, transaction.getTimeout());
-            putStatement(sql, stmt);
+            putStatement(sql, stmt, transaction.getConnection());
         }
         handler.parameterize(stmt);
         return stmt;
@@ -96,7 +99,8 @@ public class ReuseExecutor extends BaseExecutor {
     private boolean hasStatementFor(String sql) {
         try {
             Statement statement = statementMap.get(sql);
-            return statement != null && !statement.getConnection().isClosed();
+            return statement != null && !statement.getConnection().isClosed()
+                    && connectionMap.get(sql) == transaction.getConnection();
         } catch (SQLException e) {
             return false;
         }
@@ -106,8 +110,12 @@ public class ReuseExecutor extends BaseExecutor {
         return statementMap.get(s);
     }
 
-    private void putStatement(String sql, Statement stmt) {
-        statementMap.put(sql, stmt);
+    private void putStatement(String sql, Statement stmt, Connection connection) {
+        Statement previous = statementMap.put(sql, stmt);
+        if (previous != null) {
+            closeStatement(previous);
+        }
+        connectionMap.put(sql, connection);
     }
 
 }
@@ -29,6 +29,7 @@ import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.Deadline;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
@@ -49,6 +50,7 @@ public class ResultLoader {
     protected final BoundSql boundSql;
     protected final ResultExtractor resultExtractor;
     protected final long creatorThreadId;
+    protected final Deadline deadline;
 
     protected boolean loaded;
     protected Object resultObject;
@@ -64,6 +66,7 @@ public class ResultLoader {
         this.boundSql = boundSql;
         this.resultExtractor = new ResultExtractor(configuration, objectFactory);
         this.creatorThreadId = Thread.currentThread().getId();
+        this.deadline = Deadline.current();
     }
 
     public Object loadResult() throws SQLException {
@@ -75,7 +78,7 @@ public class ResultLoader {
     private <E> List<E> selectList() throws SQLException {
         Executor localExecutor = executor;
         if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
-            localExecutor = newExecutor();
+            localExecutor = newExecutor(configuration);
         }
         try {
             return localExecutor.query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
@@ -86,7 +89,7 @@ public class ResultLoader {
         }
     }
 
-    private Executor newExecutor() {
+    static Executor newExecutor(Configuration configuration) {
         final Environment environment = configuration.getEnvironment();
         if (environment == null) {
             throw new ExecutorException("ResultLoader could not load lazily.  Environment was not configured.");
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Loads a property of the result objects mapped from the same result set with one nested select per batch of keys.
+ * <p>
+ * The nested select takes a list of keys, and its results are matched with the keys by the value of the key property.
+ * The first result object asking for its value loads the values of every result object still waiting, so iterating over
+ * lazily loaded objects runs one select per batch instead of one per object. When the executor that mapped the objects
+ * is closed or belongs to another thread, all batches are selected through a single new executor.
+ *
+ * @see org.apache.ibatis.mapping.ResultMapping#getBatchSize()
+ */
+public class ResultLoaderGroup {
+
+    private final Configuration configuration;
+    private final Executor executor;
+    private final MappedStatement mappedStatement;
+    private final String keyProperty;
+    private final int batchSize;
+    private final long creatorThreadId;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // number of result objects that did not get their value yet, by key
+    private final Map<Object, Integer> waiting = new HashMap<>();
+    private final Set<Object> unloadedKeys = new LinkedHashSet<>();
+    private final Map<Object, List<Object>> loadedResults = new HashMap<>();
+
+    public ResultLoaderGroup(Configuration configuration, Executor executor, MappedStatement mappedStatement,
+                             String keyProperty, int batchSize) {
+        this.configuration = configuration;
+        this.executor = executor;
+        this.mappedStatement = mappedStatement;
+        this.keyProperty = keyProperty;
+        this.batchSize = batchSize;
+        this.creatorThreadId = Thread.currentThread().getId();
+    }
+
+    /**
+     * Adds a result object waiting for the results of a key.
+     *
+     * @param key
+     *          the key
+     */
+    public void addKey(Object key) {
+        lock.lock();
+        try {
+            waiting.merge(key, 1, Integer::sum);
+            if (!loadedResults.containsKey(key)) {
+                unloadedKeys.add(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Creates a result loader that gets the results of a key from this group. Once deserialized, it selects them on its
+     * own with a list of one key.
+     *
+     * @param key
+     *          the key, already {@link #addKey(Object) added}
+     * @param targetType
+     *          the type of the loaded property
+     * @param parameterObject
+     *          the list of one key
+     * @param cacheKey
+     *          the cache key of the select with the list of one key
+     * @param boundSql
+     *          the bound SQL of the select with the list of one key
+     * @return the result loader
+     */
+    public ResultLoader newResultLoader(Object key, Class<?> targetType, Object parameterObject, CacheKey cacheKey,
+                                        BoundSql boundSql) {
+        return new GroupedResultLoader(key, targetType, parameterObject, cacheKey, boundSql);
+    }
+
+    /**
+     * Gets the results of a key, selecting those of all keys not loaded yet if needed.
+     *
+     * @param key
+     *          the key, already {@link #addKey(Object) added}
+     * @return a new list of the results, empty if there are none
+     * @throws SQLException
+     *           if the nested select fails
+     */
+    public List<Object> getResults(Object key) throws SQLException {
+        lock.lock();
+        try {
+            if (unloadedKeys.contains(key)) {
+                loadAll();
+            }
+            List<Object> results = loadedResults.getOrDefault(key, Collections.emptyList());
+            // forget the results once every waiting object got them
+            if (waiting.merge(key, -1, Integer::sum) <= 0) {
+                waiting.remove(key);
+                loadedResults.remove(key);
+            }
+            return new ArrayList<>(results);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void loadAll() throws SQLException {
+        Executor localExecutor = executor;
+        if (Thread.currentThread().getId() != creatorThreadId || localExecutor.isClosed()) {
+            localExecutor = ResultLoader.newExecutor(configuration);
+        }
+        try {
+            List<Object> keys = new ArrayList<>(unloadedKeys);
+            for (int from = 0; from < keys.size(); from += batchSize) {
+                List<Object> batch = new ArrayList<>(keys.subList(from, Math.min(from + batchSize, keys.size())));
+                List<Object> results = localExecutor.query(mappedStatement,
+                        ParamNameResolver.wrapToMapIfCollection(batch, null), RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+                for (Object key : batch) {
+                    loadedResults.put(key, new ArrayList<>());
+                }
+                for (Object result : results) {
+                    Object key = configuration.newMetaObject(result).getValue(keyProperty);
+                    List<Object> keyResults = loadedResults.get(key);
+                    if (keyResults != null) {
+                        keyResults.add(result);
+                    }
+                }
+                unloadedKeys.removeAll(batch);
+            }
+        } finally {
+            if (localExecutor != executor) {
+                localExecutor.close(false);
+            }
+        }
+    }
+
+    private final class GroupedResultLoader extends ResultLoader {
+
+        private final Object key;
+
+        GroupedResultLoader(Object key, Class<?> targetType, Object parameterObject, CacheKey cacheKey, BoundSql boundSql) {
+            super(ResultLoaderGroup.this.configuration, ResultLoaderGroup.this.executor,
+                    ResultLoaderGroup.this.mappedStatement, parameterObject, targetType, cacheKey, boundSql);
+            this.key = key;
+        }
+
+        @Override
+        public Object loadResult() throws SQLException {
+            resultObject = resultExtractor.extractObjectFromList(getResults(key), targetType);
+            return resultObject;
+        }
+    }
+
+}
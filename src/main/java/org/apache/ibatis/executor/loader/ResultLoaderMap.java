@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BaseExecutor;
@@ -38,6 +39,7 @@ import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.Deadline;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 
@@ -48,6 +50,7 @@ import org.apache.ibatis.session.RowBounds;
 public class ResultLoaderMap {
 
     private final Map<String, LoadPair> loaderMap = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
 
     public void addLoader(String property, MetaObject metaResultObject, ResultLoader resultLoader) {
         String upperFirst = getUppercaseFirstProperty(property);
@@ -59,6 +62,16 @@ public class ResultLoaderMap {
         loaderMap.put(upperFirst, new LoadPair(property, metaResultObject, resultLoader));
     }
 
+    /**
+     * Gets the lock that lazy loading proxies hold while they load properties. It is not a monitor, so a virtual thread
+     * that runs a lazy query while holding it does not pin its carrier thread.
+     *
+     * @return the lock
+     */
+    public ReentrantLock getLock() {
+        return lock;
+    }
+
     public final Map<String, LoadPair> getProperties() {
         return new HashMap<>(this.loaderMap);
     }
@@ -216,7 +229,14 @@ public class ResultLoaderMap {
                         old.parameterObject, old.targetType, old.cacheKey, old.boundSql);
             }
 
-            this.metaResultObject.setValue(property, this.resultLoader.loadResult());
+            if (this.resultLoader.deadline == null) {
+                this.metaResultObject.setValue(property, this.resultLoader.loadResult());
+                return;
+            }
+            // the object draws from the deadline of the request that loaded it
+            try (Deadline.Scope scope = this.resultLoader.deadline.bind()) {
+                this.metaResultObject.setValue(property, this.resultLoader.loadResult());
+            }
         }
 
         private Configuration getConfiguration() {
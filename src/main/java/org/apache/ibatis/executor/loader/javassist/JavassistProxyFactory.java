@@ -124,7 +124,8 @@ public class JavassistProxyFactory implements org.apache.ibatis.executor.loader.
         public Object invoke(Object enhanced, Method method, Method methodProxy, Object[] args) throws Throwable {
             final String methodName = method.getName();
             try {
-                synchronized (lazyLoader) {
+                lazyLoader.getLock().lock();
+                try {
                     if (WRITE_REPLACE_METHOD.equals(methodName)) {
                         Object original;
                         if (constructorArgTypes.isEmpty()) {
@@ -153,6 +154,8 @@ public class JavassistProxyFactory implements org.apache.ibatis.executor.loader.
                             }
                         }
                     }
+                } finally {
+                    lazyLoader.getLock().unlock();
                 }
                 return methodProxy.invoke(enhanced, args);
             } catch (Throwable t) {
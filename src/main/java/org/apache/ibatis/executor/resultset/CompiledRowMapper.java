@@ -0,0 +1,317 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.lang.UsesJava7;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.AmbiguousMethodInvoker;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.PrimitiveTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Maps the columns of a row to the properties of a result object of one type, for one result map, column prefix and
+ * column shape of the result set.
+ * <p>
+ * The automatic mappings and the property mappings are compiled on first use into arrays parallel to the mappings they
+ * replace. An element is <code>null</code> when its mapping needs the reflective path, e.g. for nested properties,
+ * nested selects or result maps, or setters that cannot be turned into method handles.
+ *
+ * @see RowMapperCache
+ */
+final class CompiledRowMapper {
+
+    private final Class<?> type;
+    private volatile ColumnSetter[] automaticMappings;
+    private volatile ColumnSetter[] propertyMappings;
+
+    CompiledRowMapper(Class<?> type) {
+        this.type = type;
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    ColumnSetter[] getAutomaticMappings() {
+        return automaticMappings;
+    }
+
+    void setAutomaticMappings(ColumnSetter[] automaticMappings) {
+        this.automaticMappings = automaticMappings;
+    }
+
+    ColumnSetter[] getPropertyMappings() {
+        return propertyMappings;
+    }
+
+    void setPropertyMappings(ColumnSetter[] propertyMappings) {
+        this.propertyMappings = propertyMappings;
+    }
+
+    /**
+     * Reads a column by index with its type handler and sets the value through a method handle.
+     * <p>
+     * A primitive property whose type handler is a {@link PrimitiveTypeHandler} is read and set as a primitive, without
+     * boxing the value.
+     */
+    static final class ColumnSetter {
+
+        private static final Map<Class<?>, Class<?>> PRIMITIVE_HANDLER_TYPES = new HashMap<>();
+        private static final Map<Class<?>, String> PRIMITIVE_GETTER_NAMES = new HashMap<>();
+
+        static {
+            PRIMITIVE_HANDLER_TYPES.put(boolean.class, PrimitiveTypeHandler.OfBoolean.class);
+            PRIMITIVE_HANDLER_TYPES.put(byte.class, PrimitiveTypeHandler.OfByte.class);
+            PRIMITIVE_HANDLER_TYPES.put(short.class, PrimitiveTypeHandler.OfShort.class);
+            PRIMITIVE_HANDLER_TYPES.put(int.class, PrimitiveTypeHandler.OfInt.class);
+            PRIMITIVE_HANDLER_TYPES.put(long.class, PrimitiveTypeHandler.OfLong.class);
+            PRIMITIVE_HANDLER_TYPES.put(float.class, PrimitiveTypeHandler.OfFloat.class);
+            PRIMITIVE_HANDLER_TYPES.put(double.class, PrimitiveTypeHandler.OfDouble.class);
+            PRIMITIVE_GETTER_NAMES.put(boolean.class, "getBoolean");
+            PRIMITIVE_GETTER_NAMES.put(byte.class, "getByte");
+            PRIMITIVE_GETTER_NAMES.put(short.class, "getShort");
+            PRIMITIVE_GETTER_NAMES.put(int.class, "getInt");
+            PRIMITIVE_GETTER_NAMES.put(long.class, "getLong");
+            PRIMITIVE_GETTER_NAMES.put(float.class, "getFloat");
+            PRIMITIVE_GETTER_NAMES.put(double.class, "getDouble");
+        }
+
+        private final int columnIndex;
+        private final String column;
+        private final TypeHandler<?> typeHandler;
+        private final String property;
+        private final MethodHandle setter;
+        private final boolean primitive;
+        // the primitive type the setter takes unboxed, null when values are set as objects
+        private final Class<?> unboxedType;
+
+        private ColumnSetter(int columnIndex, String column, TypeHandler<?> typeHandler, String property,
+                             MethodHandle setter, boolean primitive, Class<?> unboxedType) {
+            this.columnIndex = columnIndex;
+            this.column = column;
+            this.typeHandler = typeHandler;
+            this.property = property;
+            this.setter = setter;
+            this.primitive = primitive;
+            this.unboxedType = unboxedType;
+        }
+
+        /**
+         * Compiles the mapping of a column to a property.
+         *
+         * @return the column setter, or <code>null</code> if the property is not a simple property with a setter or field
+         *         that can be called through a method handle
+         */
+        static ColumnSetter compile(ResultSetWrapper rsw, Reflector reflector, String column, String property,
+                                    TypeHandler<?> typeHandler) {
+            final int columnIndex = rsw.getColumnIndex(column);
+            if (columnIndex < 1 || property == null || property.indexOf('.') >= 0 || property.indexOf('[') >= 0
+                    || !reflector.hasSetter(property)) {
+                return null;
+            }
+            final Class<?> setterType = reflector.getSetterType(property);
+            final Class<?> unboxedType = isUnboxed(typeHandler, setterType) ? setterType : null;
+            MethodHandle setter = toMethodHandle(reflector.getSetInvoker(property),
+                    MethodType.methodType(void.class, Object.class, unboxedType == null ? Object.class : unboxedType));
+            if (setter == null) {
+                return null;
+            }
+            return new ColumnSetter(columnIndex, column, typeHandler, property, setter, setterType.isPrimitive(),
+                    unboxedType);
+        }
+
+        private static boolean isUnboxed(TypeHandler<?> typeHandler, Class<?> setterType) {
+            Class<?> handlerType = PRIMITIVE_HANDLER_TYPES.get(setterType);
+            if (handlerType == null || !handlerType.isInstance(typeHandler)) {
+                return false;
+            }
+            try {
+                Class<?> type = typeHandler.getClass();
+                Method primitiveGetter = type.getMethod(PRIMITIVE_GETTER_NAMES.get(setterType), ResultSet.class, int.class);
+                Method boxedGetter = typeHandler instanceof BaseTypeHandler
+                        ? type.getMethod("getNullableResult", ResultSet.class, int.class)
+                        : type.getMethod("getResult", ResultSet.class, int.class);
+                // a subclass that only customizes the boxed getter must still be read through it
+                return boxedGetter.getDeclaringClass().isAssignableFrom(primitiveGetter.getDeclaringClass());
+            } catch (NoSuchMethodException | SecurityException e) {
+                return false;
+            }
+        }
+
+        private static MethodHandle toMethodHandle(Invoker invoker, MethodType setterType) {
+            try {
+                if (invoker instanceof AmbiguousMethodInvoker) {
+                    // the reflective path reports the ambiguity
+                    return null;
+                } else if (invoker instanceof MethodInvoker) {
+                    Method method = ((MethodInvoker) invoker).getMethod();
+                    if (method.getParameterTypes().length != 1) {
+                        return null;
+                    }
+                    try {
+                        return MethodHandles.lookup().unreflect(method).asType(setterType);
+                    } catch (IllegalAccessException e) {
+                        if (!Reflector.canControlMemberAccessible()) {
+                            return null;
+                        }
+                        method.setAccessible(true);
+                        return MethodHandles.lookup().unreflect(method).asType(setterType);
+                    }
+                } else if (invoker instanceof SetFieldInvoker) {
+                    Field field = ((SetFieldInvoker) invoker).getField();
+                    if (Modifier.isFinal(field.getModifiers())) {
+                        return null;
+                    }
+                    try {
+                        return MethodHandles.lookup().unreflectSetter(field).asType(setterType);
+                    } catch (IllegalAccessException e) {
+                        if (!Reflector.canControlMemberAccessible()) {
+                            return null;
+                        }
+                        field.setAccessible(true);
+                        return MethodHandles.lookup().unreflectSetter(field).asType(setterType);
+                    }
+                }
+            } catch (IllegalAccessException | RuntimeException e) {
+                // not accessible from here, the reflective path reports it if it fails too
+            }
+            return null;
+        }
+
+        /**
+         * Reads the column of the current row and sets the property of the result object.
+         *
+         * @param rs
+         *          the result set, positioned on the row
+         * @param resultObject
+         *          the result object
+         * @param callSettersOnNulls
+         *          whether the setter of a non primitive property is called with <code>null</code> for SQL
+         *          <code>NULL</code>
+         * @return <code>true</code> if the column was not SQL <code>NULL</code>
+         */
+        boolean map(ResultSet rs, Object resultObject, boolean callSettersOnNulls) throws SQLException {
+            if (unboxedType != null) {
+                return mapUnboxed(rs, resultObject);
+            }
+            Object value = ResultSetWrapper.getValue(rs, typeHandler, columnIndex, column);
+            if (value != null || (callSettersOnNulls && !primitive)) {
+                setValue(resultObject, value);
+            }
+            return value != null;
+        }
+
+        @UsesJava7
+        private void setValue(Object resultObject, Object value) {
+            try {
+                setter.invokeExact(resultObject, value);
+            } catch (Throwable t) {
+                throw newSetterException(resultObject, value, t);
+            }
+        }
+
+        // like the boxed path, a primitive property is left untouched for SQL NULL
+        @UsesJava7
+        private boolean mapUnboxed(ResultSet rs, Object resultObject) throws SQLException {
+            boolean read = false;
+            try {
+                if (unboxedType == int.class) {
+                    int primitiveValue = ((PrimitiveTypeHandler.OfInt) typeHandler).getInt(rs, columnIndex);
+                    if (rs.wasNull()) {
+                        return false;
+                    }
+                    read = true;
+                    setter.invokeExact(resultObject, primitiveValue);
+                } else if (unboxedType == long.class) {
+                    long primitiveValue = ((PrimitiveTypeHandler.OfLong) typeHandler).getLong(rs, columnIndex);
+                    if (rs.wasNull()) {
+                        return false;
+                    }
+                    read = true;
+                    setter.invokeExact(resultObject, primitiveValue);
+                } else if (unboxedType == double.class) {
+                    double primitiveValue = ((PrimitiveTypeHandler.OfDouble) typeHandler).getDouble(rs, columnIndex);
+                    if (rs.wasNull()) {
+                        return false;
+                    }
+                    read = true;
+                    setter.invokeExact(resultObject, primitiveValue);
+                } else if (unboxedType == boolean.class) {
+                    boolean primitiveValue = ((PrimitiveTypeHandler.OfBoolean) typeHandler).getBoolean(rs, columnIndex);
+                    if (rs.wasNull()) {
+                        return false;
+                    }
+                    read = true;
+                    setter.invokeExact(resultObject, primitiveValue);
+                } else if (unboxedType == float.class) {
+                    float primitiveValue = ((PrimitiveTypeHandler.OfFloat) typeHandler).getFloat(rs, columnIndex);
+                    if (rs.wasNull()) {
+                        return false;
+                    }
+                    read = true;
+                    setter.invokeExact(resultObject, primitiveValue);
+                } else if (unboxedType == short.class) {
+                    short primitiveValue = ((PrimitiveTypeHandler.OfShort) typeHandler).getShort(rs, columnIndex);
+                    if (rs.wasNull()) {
+                        return false;
+                    }
+                    read = true;
+                    setter.invokeExact(resultObject, primitiveValue);
+                } else {
+                    byte primitiveValue = ((PrimitiveTypeHandler.OfByte) typeHandler).getByte(rs, columnIndex);
+                    if (rs.wasNull()) {
+                        return false;
+                    }
+                    read = true;
+                    setter.invokeExact(resultObject, primitiveValue);
+                }
+                return true;
+            } catch (Throwable t) {
+                if (read) {
+                    // boxes the value only to report it
+                    throw newSetterException(resultObject, typeHandler.getResult(rs, columnIndex), t);
+                } else if (t instanceof Error) {
+                    throw (Error) t;
+                }
+                throw new ResultMapException("Error attempting to get column '" + column + "' from result set.  Cause: "
+                        + t, t);
+            }
+        }
+
+        private ReflectionException newSetterException(Object resultObject, Object value, Throwable t) {
+            return new ReflectionException("Could not set property '" + property + "' of '" + resultObject.getClass()
+                    + "' with value '" + value + "' Cause: " + t.toString(), t);
+        }
+    }
+
+}
@@ -21,8 +21,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -36,12 +38,15 @@ import org.apache.ibatis.cursor.defaults.DefaultCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.ResultExtractor;
 import org.apache.ibatis.executor.loader.ResultLoader;
+import org.apache.ibatis.executor.loader.ResultLoaderGroup;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.executor.result.DefaultResultHandler;
 import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper.ColumnSetter;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -51,8 +56,11 @@ import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.reflection.Reflector;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
@@ -84,7 +92,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     private final ReflectorFactory reflectorFactory;
 
     // nested resultmaps
-    private final Map<CacheKey, Object> nestedResultObjects = new HashMap<>();
+    private final Map<RowKey, Object> nestedResultObjects = new HashMap<>();
     private final Map<String, Object> ancestorObjects = new HashMap<>();
     private Object previousRowValue;
 
@@ -92,9 +100,25 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
     private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
 
+    // nested selects with a batch size, run once all result sets have been mapped
+    private final Map<ResultMapping, NestedQueryBatch> nestedQueryBatches = new LinkedHashMap<>();
+    private boolean nestedQueryBatchingEnabled;
+
+    // rows read from the current result set and the largest result set so far, to learn the fetch size
+    private int rowCount;
+    private int maxRowCount;
+
     // Cached Automappings
     private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
+    // row mappers of the current result set, by result map, column prefix and result type
+    private final Map<String, CompiledRowMapper> compiledRowMappers = new HashMap<>();
+    private ResultSetWrapper compiledRowMappersResultSet;
+
+    // row key columns of the current result set, by result map and column prefix
+    private final Map<String, Map<String, RowKeyColumns>> rowKeyColumns = new HashMap<>();
+    private ResultSetWrapper rowKeyColumnsResultSet;
+
     // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
     private boolean useConstructorMappings;
 
@@ -103,7 +127,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         public ResultMapping propertyMapping;
     }
 
-    private static class UnMappedColumnAutoMapping {
+    static class UnMappedColumnAutoMapping {
         private final String column;
         private final String property;
         private final TypeHandler<?> typeHandler;
@@ -160,7 +184,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         try {
             final String resultMapId = parameterMapping.getResultMapId();
             final ResultMap resultMap = configuration.getResultMap(resultMapId);
-            final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+            final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration, mappedStatement.getId());
             if (this.resultHandler == null) {
                 final DefaultResultHandler resultHandler = new DefaultResultHandler(objectFactory);
                 handleRowValues(rsw, resultMap, resultHandler, new RowBounds(), null);
@@ -182,6 +206,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
         // 用于记录每个ResultSet映射出来的Java对象
         final List<Object> multipleResults = new ArrayList<>();
+        // a custom result handler gets every object as soon as it is mapped, before batches could be loaded
+        nestedQueryBatchingEnabled = resultHandler == null;
 
         int resultSetCount = 0;
         // 从Statement中获取第一个ResultSet，其中对不同的数据库（例如，HSQLDB）有兼容处理逻辑
@@ -229,6 +255,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             }
         }
 
+        loadNestedQueryBatches();
+
+        if (configuration.isAdaptiveFetchSize()) {
+            configuration.getFetchSizeStatistics().recordRowCount(mappedStatement.getId(), maxRowCount);
+        }
         return collapseSingleResultList(multipleResults);
     }
 
@@ -264,7 +295,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                 }
             }
         }
-        return rs != null ? new ResultSetWrapper(rs, configuration) : null;
+        return rs != null ? new ResultSetWrapper(rs, configuration, mappedStatement.getId()) : null;
     }
 
     private ResultSetWrapper getNextResultSet(Statement stmt) {
@@ -277,7 +308,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                     if (rs == null) {
                         return getNextResultSet(stmt);
                     } else {
-                        return new ResultSetWrapper(rs, configuration);
+                        return new ResultSetWrapper(rs, configuration, mappedStatement.getId());
                     }
                 }
             }
@@ -299,6 +330,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
     private void cleanUpAfterHandlingResultSet() {
         nestedResultObjects.clear();
+        maxRowCount = Math.max(maxRowCount, rowCount);
+        rowCount = 0;
     }
 
     private void validateResultMapsCount(ResultSetWrapper rsw, int resultMapCount) {
@@ -368,6 +401,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         skipRows(resultSet, rowBounds);
         while (shouldProcessMoreRows(resultContext, rowBounds)
                 && !resultSet.isClosed() && resultSet.next()) {
+            rowCount++;
             ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
             Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
             storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
@@ -438,7 +472,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     //
 
     private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap,
-                               CacheKey combinedKey, String columnPrefix,
+                               RowKey combinedKey, String columnPrefix,
                                Object partialObject) throws SQLException {
         final String resultMapId = resultMap.getId();
         Object rowValue = partialObject;
@@ -471,7 +505,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                 foundValues = lazyLoader.size() > 0 || foundValues;
                 rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
             }
-            if (combinedKey != CacheKey.NULL_CACHE_KEY) {
+            if (combinedKey != RowKey.NULL_ROW_KEY) {
                 // 将外层对象记录nestedResultObjects集合中，等待后续使用
                 nestedResultObjects.put(combinedKey, rowValue);
             }
@@ -508,7 +542,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         boolean foundValues = false;
         // 获取ResultMap中的所有ResultMapping对象，每一个ResultMapping对象都是对一个属性的映射
         final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-        for (ResultMapping propertyMapping : propertyMappings) {
+        final ColumnSetter[] columnSetters = getCompiledPropertyMappings(rsw, resultMap, metaObject, columnPrefix);
+        for (int i = 0; i < propertyMappings.size(); i++) {
+            ResultMapping propertyMapping = propertyMappings.get(i);
+            ColumnSetter columnSetter = columnSetters == null ? null : columnSetters[i];
+            if (columnSetter != null) {
+                if (columnSetter.map(rsw.getResultSet(), metaObject.getOriginalObject(), configuration.isCallSettersOnNulls())) {
+                    foundValues = true;
+                }
+                continue;
+            }
             // 处理列前缀
             String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
             if (propertyMapping.getNestedResultMapId() != null) {
@@ -518,7 +561,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             if (propertyMapping.isCompositeResult()
                     || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
                     || propertyMapping.getResultSet() != null) {
-                Object value = getPropertyMappingValue(rsw.getResultSet(),
+                Object value = getPropertyMappingValue(rsw,
                         metaObject, propertyMapping, lazyLoader, columnPrefix);
                 // issue #541 make property optional
                 final String property = propertyMapping.getProperty();
@@ -540,25 +583,27 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return foundValues;
     }
 
-    private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject,
+    private Object getPropertyMappingValue(ResultSetWrapper rsw, MetaObject metaResultObject,
                                            ResultMapping propertyMapping,
                                            ResultLoaderMap lazyLoader, String columnPrefix)
             throws SQLException {
         if (propertyMapping.getNestedQueryId() != null) {
-            return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
+            return getNestedQueryMappingValue(rsw.getResultSet(), metaResultObject, propertyMapping, lazyLoader, columnPrefix);
         } else if (propertyMapping.getResultSet() != null) {
-            addPendingChildRelation(rs, metaResultObject, propertyMapping);   // TODO is that OK?
+            addPendingChildRelation(rsw.getResultSet(), metaResultObject, propertyMapping);   // TODO is that OK?
             return DEFERRED;
         } else {
             final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
             final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-            return typeHandler.getResult(rs, column);
+            return getColumnValue(rsw, typeHandler, column);
         }
     }
 
     private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
         final String mapKey = resultMap.getId() + ":" + columnPrefix;
-        List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(mapKey);
+        final Map<String, List<UnMappedColumnAutoMapping>> autoMappings = rsw.getSharedAutoMappings() != null
+                ? rsw.getSharedAutoMappings() : autoMappingsCache;
+        List<UnMappedColumnAutoMapping> autoMapping = autoMappings.get(mapKey);
         if (autoMapping == null) {
             autoMapping = new ArrayList<>();
             final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
@@ -591,7 +636,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                             .doAction(mappedStatement, columnName, (property != null) ? property : propertyName, null);
                 }
             }
-            autoMappingsCache.put(mapKey, autoMapping);
+            autoMappings.put(mapKey, autoMapping);
         }
         return autoMapping;
     }
@@ -604,8 +649,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         List<UnMappedColumnAutoMapping> autoMapping = createAutomaticMappings(rsw, resultMap, metaObject, columnPrefix);
         boolean foundValues = false;
         if (!autoMapping.isEmpty()) {
-            for (UnMappedColumnAutoMapping mapping : autoMapping) {
-                final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+            final ColumnSetter[] columnSetters = getCompiledAutomaticMappings(rsw, resultMap, metaObject, columnPrefix, autoMapping);
+            for (int i = 0; i < autoMapping.size(); i++) {
+                UnMappedColumnAutoMapping mapping = autoMapping.get(i);
+                ColumnSetter columnSetter = columnSetters == null ? null : columnSetters[i];
+                if (columnSetter != null) {
+                    if (columnSetter.map(rsw.getResultSet(), metaObject.getOriginalObject(), configuration.isCallSettersOnNulls())) {
+                        foundValues = true;
+                    }
+                    continue;
+                }
+                final Object value = getColumnValue(rsw, mapping.typeHandler, mapping.column);
                 if (value != null) {
                     foundValues = true;
                 }
@@ -618,6 +672,78 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return foundValues;
     }
 
+    //
+    // COMPILED ROW MAPPERS
+    //
+
+    private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject,
+                                                   String columnPrefix) {
+        if (!configuration.isUseCompiledRowMappers() || !(metaObject.getObjectWrapper() instanceof BeanWrapper)) {
+            return null;
+        }
+        if (compiledRowMappersResultSet != rsw) {
+            compiledRowMappers.clear();
+            compiledRowMappersResultSet = rsw;
+        }
+        final Class<?> type = metaObject.getOriginalObject().getClass();
+        final String mapKey = resultMap.getId() + ":" + columnPrefix + ":" + type.getName();
+        CompiledRowMapper rowMapper = compiledRowMappers.get(mapKey);
+        if (rowMapper == null || rowMapper.getType() != type) {
+            rowMapper = configuration.getRowMapperCache().getRowMapper(mapKey, rsw.getColumnFingerprint(), type);
+            compiledRowMappers.put(mapKey, rowMapper);
+        }
+        return rowMapper;
+    }
+
+    private ColumnSetter[] getCompiledAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject,
+                                                        String columnPrefix, List<UnMappedColumnAutoMapping> autoMapping)
+            throws SQLException {
+        CompiledRowMapper rowMapper = getCompiledRowMapper(rsw, resultMap, metaObject, columnPrefix);
+        if (rowMapper == null) {
+            return null;
+        }
+        ColumnSetter[] columnSetters = rowMapper.getAutomaticMappings();
+        if (columnSetters == null) {
+            Reflector reflector = reflectorFactory.findForClass(rowMapper.getType());
+            columnSetters = new ColumnSetter[autoMapping.size()];
+            for (int i = 0; i < columnSetters.length; i++) {
+                UnMappedColumnAutoMapping mapping = autoMapping.get(i);
+                columnSetters[i] = ColumnSetter.compile(rsw, reflector, mapping.column, mapping.property,
+                        mapping.typeHandler);
+            }
+            rowMapper.setAutomaticMappings(columnSetters);
+        }
+        return columnSetters;
+    }
+
+    private ColumnSetter[] getCompiledPropertyMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject,
+                                                       String columnPrefix) throws SQLException {
+        CompiledRowMapper rowMapper = getCompiledRowMapper(rsw, resultMap, metaObject, columnPrefix);
+        if (rowMapper == null) {
+            return null;
+        }
+        ColumnSetter[] columnSetters = rowMapper.getPropertyMappings();
+        if (columnSetters == null) {
+            Reflector reflector = reflectorFactory.findForClass(rowMapper.getType());
+            List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+            List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+            columnSetters = new ColumnSetter[propertyMappings.size()];
+            for (int i = 0; i < columnSetters.length; i++) {
+                ResultMapping propertyMapping = propertyMappings.get(i);
+                String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+                // nested selects, nested result maps and result sets need the reflective path
+                if (propertyMapping.getNestedQueryId() == null && propertyMapping.getNestedResultMapId() == null
+                        && propertyMapping.getResultSet() == null && !propertyMapping.isCompositeResult()
+                        && column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+                    columnSetters[i] = ColumnSetter.compile(rsw, reflector, column,
+                            propertyMapping.getProperty(), propertyMapping.getTypeHandler());
+                }
+            }
+            rowMapper.setPropertyMappings(columnSetters);
+        }
+        return columnSetters;
+    }
+
     // MULTIPLE RESULT SETS
 
     private void linkToParents(ResultSet rs, ResultMapping parentMapping, Object rowValue) throws SQLException {
@@ -737,7 +863,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                     value = getRowValue(rsw, resultMap, getColumnPrefix(columnPrefix, constructorMapping));
                 } else {
                     final TypeHandler<?> typeHandler = constructorMapping.getTypeHandler();
-                    value = typeHandler.getResult(rsw.getResultSet(), prependPrefix(column, columnPrefix));
+                    value = getColumnValue(rsw, typeHandler, prependPrefix(column, columnPrefix));
                 }
             } catch (ResultMapException | SQLException e) {
                 throw new ExecutorException("Could not process result for mapping: " + constructorMapping, e);
@@ -773,7 +899,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             Class<?> parameterType = constructor.getParameterTypes()[i];
             String columnName = rsw.getColumnNames().get(i);
             TypeHandler<?> typeHandler = rsw.getTypeHandler(parameterType, columnName);
-            Object value = typeHandler.getResult(rsw.getResultSet(), columnName);
+            Object value = getColumnValue(rsw, typeHandler, columnName);
             constructorArgTypes.add(parameterType);
             constructorArgs.add(value);
             foundValues = value != null || foundValues;
@@ -818,7 +944,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             columnName = rsw.getColumnNames().get(0);
         }
         final TypeHandler<?> typeHandler = rsw.getTypeHandler(resultType, columnName);
-        return typeHandler.getResult(rsw.getResultSet(), columnName);
+        return getColumnValue(rsw, typeHandler, columnName);
     }
 
     //
@@ -847,8 +973,22 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         final String nestedQueryId = propertyMapping.getNestedQueryId();
         final String property = propertyMapping.getProperty();
         final MappedStatement nestedQuery = configuration.getMappedStatement(nestedQueryId);
-        final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
-        final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
+        if (isBatched(propertyMapping)) {
+            return addToNestedQueryBatch(rs, metaResultObject, propertyMapping, nestedQuery, columnPrefix);
+        }
+        NestedQueryBatch lazyBatch = null;
+        Object batchKey = null;
+        Object nestedQueryParameterObject;
+        if (propertyMapping.getBatchSize() > 0) {
+            // a nested select with a batch size takes a list of keys, even when it is run for a single result object
+            lazyBatch = getNestedQueryBatch(propertyMapping, nestedQuery);
+            batchKey = lazyBatch.keyTypeHandler.getResult(rs, prependPrefix(propertyMapping.getColumn(), columnPrefix));
+            nestedQueryParameterObject = batchKey == null ? null
+                    : ParamNameResolver.wrapToMapIfCollection(new ArrayList<>(Collections.singletonList(batchKey)), null);
+        } else {
+            final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
+            nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
+        }
         Object value = null;
         if (nestedQueryParameterObject != null) {
             final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
@@ -857,6 +997,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             if (executor.isCached(nestedQuery, key)) {
                 executor.deferLoad(nestedQuery, metaResultObject, property, key, targetType);
                 value = DEFERRED;
+            } else if (lazyBatch != null && propertyMapping.isLazy()) {
+                // the first of the objects mapped by this handler to be accessed loads the property for all of them
+                lazyBatch.group.addKey(batchKey);
+                lazyLoader.addLoader(property, metaResultObject,
+                        lazyBatch.group.newResultLoader(batchKey, targetType, nestedQueryParameterObject, key, nestedBoundSql));
+                value = DEFERRED;
             } else {
                 final ResultLoader resultLoader =
                         new ResultLoader(configuration, executor, nestedQuery,
@@ -872,6 +1018,117 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return value;
     }
 
+    //
+    // BATCHED NESTED QUERIES
+    //
+
+    private boolean isBatched(ResultMapping propertyMapping) {
+        return nestedQueryBatchingEnabled && propertyMapping.getBatchSize() > 0 && !propertyMapping.isLazy();
+    }
+
+    private NestedQueryBatch getNestedQueryBatch(ResultMapping propertyMapping, MappedStatement nestedQuery) {
+        NestedQueryBatch batch = nestedQueryBatches.get(propertyMapping);
+        if (batch == null) {
+            batch = new NestedQueryBatch(propertyMapping, nestedQuery);
+            nestedQueryBatches.put(propertyMapping, batch);
+        }
+        return batch;
+    }
+
+    private Object addToNestedQueryBatch(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping,
+                                         MappedStatement nestedQuery, String columnPrefix) throws SQLException {
+        final NestedQueryBatch batch = getNestedQueryBatch(propertyMapping, nestedQuery);
+        final Object key = batch.keyTypeHandler.getResult(rs, prependPrefix(propertyMapping.getColumn(), columnPrefix));
+        if (key == null) {
+            return null;
+        }
+        batch.group.addKey(key);
+        batch.parents.computeIfAbsent(key, k -> new ArrayList<>()).add(metaResultObject);
+        return DEFERRED;
+    }
+
+    private void loadNestedQueryBatches() throws SQLException {
+        try {
+            for (NestedQueryBatch batch : nestedQueryBatches.values()) {
+                batch.load();
+            }
+        } finally {
+            // lazy loaders keep their group, so that objects of the next statement are not loaded with these
+            nestedQueryBatches.clear();
+        }
+    }
+
+    /**
+     * The result objects waiting for a property loaded by a nested select with a batch size. The nested select is run
+     * by a {@link ResultLoaderGroup} with a list of keys as parameter, and its results are matched with the result
+     * objects by the value of the property mapped to the foreign column. Eager mappings set the values once all result
+     * sets have been mapped, lazy ones when the first object of the group is accessed.
+     */
+    private final class NestedQueryBatch {
+        private final ResultMapping propertyMapping;
+        private final MappedStatement nestedQuery;
+        private final TypeHandler<?> keyTypeHandler;
+        private final ResultLoaderGroup group;
+        // eager mappings only
+        private final Map<Object, List<MetaObject>> parents = new LinkedHashMap<>();
+
+        NestedQueryBatch(ResultMapping propertyMapping, MappedStatement nestedQuery) {
+            this.propertyMapping = propertyMapping;
+            this.nestedQuery = nestedQuery;
+            ResultMap nestedResultMap = nestedQuery.getResultMaps().get(0);
+            MetaClass metaClass = MetaClass.forClass(nestedResultMap.getType(), reflectorFactory);
+            String keyProperty = resolveKeyProperty(nestedResultMap, metaClass);
+            // read the keys with the type of the property they are matched with
+            Class<?> keyType = metaClass.getGetterType(keyProperty);
+            this.keyTypeHandler = typeHandlerRegistry.hasTypeHandler(keyType) ? typeHandlerRegistry.getTypeHandler(keyType)
+                    : typeHandlerRegistry.getUnknownTypeHandler();
+            this.group = new ResultLoaderGroup(configuration, executor, nestedQuery, keyProperty,
+                    propertyMapping.getBatchSize());
+        }
+
+        private String resolveKeyProperty(ResultMap nestedResultMap, MetaClass metaClass) {
+            final String foreignColumn = propertyMapping.getForeignColumn();
+            String property = null;
+            if (foreignColumn == null) {
+                // an association loaded by id
+                List<ResultMapping> idMappings = nestedResultMap.getIdResultMappings();
+                if (!objectFactory.isCollection(propertyMapping.getJavaType()) && idMappings.size() == 1) {
+                    property = idMappings.get(0).getProperty();
+                }
+            } else {
+                for (ResultMapping resultMapping : nestedResultMap.getResultMappings()) {
+                    if (foreignColumn.equalsIgnoreCase(resultMapping.getColumn()) && resultMapping.getProperty() != null) {
+                        property = resultMapping.getProperty();
+                        break;
+                    }
+                }
+                if (property == null) {
+                    property = metaClass.findProperty(foreignColumn, configuration.isMapUnderscoreToCamelCase());
+                }
+            }
+            if (property == null || !metaClass.hasGetter(property)) {
+                throw new ExecutorException("Cannot load property '" + propertyMapping.getProperty() + "' in batches with '"
+                        + nestedQuery.getId() + "'. Set foreignColumn to the column of its results that holds the key "
+                        + "matching column '" + propertyMapping.getColumn() + "'.");
+            }
+            return property;
+        }
+
+        void load() throws SQLException {
+            final ResultExtractor resultExtractor = new ResultExtractor(configuration, objectFactory);
+            final String property = propertyMapping.getProperty();
+            for (Map.Entry<Object, List<MetaObject>> entry : parents.entrySet()) {
+                for (MetaObject parent : entry.getValue()) {
+                    // every parent gets its own collection
+                    Object value = resultExtractor.extractObjectFromList(group.getResults(entry.getKey()), propertyMapping.getJavaType());
+                    if (value != null || (configuration.isCallSettersOnNulls() && !parent.getSetterType(property).isPrimitive())) {
+                        parent.setValue(property, value);
+                    }
+                }
+            }
+        }
+    }
+
     private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
         if (resultMapping.isCompositeResult()) {
             return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
@@ -956,6 +1213,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return typeHandler.getResult(rs, prependPrefix(resultMapping.getColumn(), columnPrefix));
     }
 
+    private Object getColumnValue(ResultSetWrapper rsw, TypeHandler<?> typeHandler, String columnName) throws SQLException {
+        // the index is resolved once per result set, instead of by the driver on every row, for the built-in handlers
+        final int columnIndex = ResultSetWrapper.isReadByIndex(typeHandler) ? rsw.getColumnIndex(columnName) : -1;
+        if (columnIndex < 1) {
+            return typeHandler.getResult(rsw.getResultSet(), columnName);
+        }
+        return ResultSetWrapper.getValue(rsw.getResultSet(), typeHandler, columnIndex, columnName);
+    }
+
+    private String getColumnString(ResultSetWrapper rsw, String columnName) throws SQLException {
+        final int columnIndex = rsw.getColumnIndex(columnName);
+        return columnIndex < 1 ? rsw.getResultSet().getString(columnName) : rsw.getResultSet().getString(columnIndex);
+    }
+
     private String prependPrefix(String columnName, String prefix) {
         if (columnName == null || columnName.length() == 0 || prefix == null || prefix.length() == 0) {
             return columnName;
@@ -973,8 +1244,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         skipRows(resultSet, rowBounds);
         Object rowValue = previousRowValue;
         while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
+            rowCount++;
             final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-            final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
+            final RowKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
             Object partialObject = nestedResultObjects.get(rowKey);
             // issue #577 && #542
             if (mappedStatement.isResultOrdered()) {
@@ -1002,7 +1274,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     // NESTED RESULT MAP (JOIN MAPPING)
     //
 
-    private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, CacheKey parentRowKey, boolean newObject) {
+    private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, RowKey parentRowKey, boolean newObject) {
         boolean foundValues = false;
         for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
             final String nestedResultMapId = resultMapping.getNestedResultMapId();
@@ -1021,8 +1293,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                             continue;
                         }
                     }
-                    final CacheKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
-                    final CacheKey combinedKey = combineKeys(rowKey, parentRowKey);
+                    final RowKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
+                    final RowKey combinedKey = rowKey.combine(parentRowKey);
                     Object rowValue = nestedResultObjects.get(combinedKey);
                     boolean knownValue = rowValue != null;
                     instantiateCollectionPropertyIfAppropriate(resultMapping, metaObject); // mandatory
@@ -1083,37 +1355,50 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     // UNIQUE RESULT KEY
     //
 
-    private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-        final CacheKey cacheKey = new CacheKey();
-        cacheKey.update(resultMap.getId());
-        List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
-        if (resultMappings.isEmpty()) {
-            if (Map.class.isAssignableFrom(resultMap.getType())) {
-                createRowKeyForMap(rsw, cacheKey);
+    private RowKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+        final RowKeyColumns keyColumns = getRowKeyColumns(resultMap, rsw, columnPrefix);
+        final ResultSet rs = rsw.getResultSet();
+        final Object[] values = new Object[keyColumns.columns.length];
+        boolean found = false;
+        for (int i = 0; i < values.length; i++) {
+            final String column = keyColumns.columns[i];
+            final int columnIndex = keyColumns.columnIndexes[i];
+            final Object value;
+            if (keyColumns.typeHandlers == null) {
+                value = columnIndex < 1 ? rs.getString(column) : rs.getString(columnIndex);
+            } else if (columnIndex < 1) {
+                value = keyColumns.typeHandlers[i].getResult(rs, column);
             } else {
-                createRowKeyForUnmappedProperties(resultMap, rsw, cacheKey, columnPrefix);
+                value = ResultSetWrapper.getValue(rs, keyColumns.typeHandlers[i], columnIndex, column);
             }
-        } else {
-            createRowKeyForMappedProperties(resultMap, rsw, cacheKey, resultMappings, columnPrefix);
+            // with returnInstanceForEmptyRow, rows without any id value still get a key
+            values[i] = value;
+            found = found || value != null || keyColumns.nullsIncluded;
         }
-        if (cacheKey.getUpdateCount() < 2) {
-            return CacheKey.NULL_CACHE_KEY;
-        }
-        return cacheKey;
+        return found ? new RowKey(resultMap.getId(), columnPrefix, values) : RowKey.NULL_ROW_KEY;
     }
 
-    private CacheKey combineKeys(CacheKey rowKey, CacheKey parentRowKey) {
-        if (rowKey.getUpdateCount() > 1 && parentRowKey.getUpdateCount() > 1) {
-            CacheKey combinedKey;
-            try {
-                combinedKey = rowKey.clone();
-            } catch (CloneNotSupportedException e) {
-                throw new ExecutorException("Error cloning cache key.  Cause: " + e, e);
+    private RowKeyColumns getRowKeyColumns(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+        if (rowKeyColumnsResultSet != rsw) {
+            rowKeyColumns.clear();
+            rowKeyColumnsResultSet = rsw;
+        }
+        Map<String, RowKeyColumns> keyColumnsByPrefix = rowKeyColumns.computeIfAbsent(resultMap.getId(), id -> new HashMap<>());
+        RowKeyColumns keyColumns = keyColumnsByPrefix.get(columnPrefix);
+        if (keyColumns == null) {
+            List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
+            if (resultMappings.isEmpty()) {
+                if (Map.class.isAssignableFrom(resultMap.getType())) {
+                    keyColumns = new RowKeyColumns(rsw, rsw.getColumnNames(), null, false);
+                } else {
+                    keyColumns = createRowKeyColumnsForUnmappedProperties(resultMap, rsw, columnPrefix);
+                }
+            } else {
+                keyColumns = createRowKeyColumnsForMappedProperties(resultMap, rsw, resultMappings, columnPrefix);
             }
-            combinedKey.update(parentRowKey);
-            return combinedKey;
+            keyColumnsByPrefix.put(columnPrefix, keyColumns);
         }
-        return CacheKey.NULL_CACHE_KEY;
+        return keyColumns;
     }
 
     private List<ResultMapping> getResultMappingsForRowKey(ResultMap resultMap) {
@@ -1124,26 +1409,27 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return resultMappings;
     }
 
-    private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
+    private RowKeyColumns createRowKeyColumnsForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
+        final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+        final List<String> columns = new ArrayList<>();
+        final List<TypeHandler<?>> typeHandlers = new ArrayList<>();
         for (ResultMapping resultMapping : resultMappings) {
             if (resultMapping.isSimple()) {
                 final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
-                final TypeHandler<?> th = resultMapping.getTypeHandler();
-                List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
                 // Issue #114
                 if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-                    final Object value = th.getResult(rsw.getResultSet(), column);
-                    if (value != null || configuration.isReturnInstanceForEmptyRow()) {
-                        cacheKey.update(column);
-                        cacheKey.update(value);
-                    }
+                    columns.add(column);
+                    typeHandlers.add(resultMapping.getTypeHandler());
                 }
             }
         }
+        return new RowKeyColumns(rsw, columns, typeHandlers.toArray(new TypeHandler<?>[0]),
+                configuration.isReturnInstanceForEmptyRow());
     }
 
-    private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, String columnPrefix) throws SQLException {
+    private RowKeyColumns createRowKeyColumnsForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
         final MetaClass metaType = MetaClass.forClass(resultMap.getType(), reflectorFactory);
+        final List<String> columns = new ArrayList<>();
         List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
         for (String column : unmappedColumnNames) {
             String property = column;
@@ -1156,23 +1442,31 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                 }
             }
             if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-                String value = rsw.getResultSet().getString(column);
-                if (value != null) {
-                    cacheKey.update(column);
-                    cacheKey.update(value);
-                }
+                columns.add(column);
             }
         }
-    }
-
-    private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
-        List<String> columnNames = rsw.getColumnNames();
-        for (String columnName : columnNames) {
-            final String value = rsw.getResultSet().getString(columnName);
-            if (value != null) {
-                cacheKey.update(columnName);
-                cacheKey.update(value);
+        return new RowKeyColumns(rsw, columns, null, false);
+    }
+
+    /**
+     * The columns whose values make the row key of a result map and column prefix in a result set.
+     */
+    private static final class RowKeyColumns {
+        private final String[] columns;
+        private final int[] columnIndexes;
+        // null to read the columns as strings
+        private final TypeHandler<?>[] typeHandlers;
+        private final boolean nullsIncluded;
+
+        RowKeyColumns(ResultSetWrapper rsw, List<String> columns, TypeHandler<?>[] typeHandlers, boolean nullsIncluded) {
+            this.columns = columns.toArray(new String[0]);
+            this.columnIndexes = new int[this.columns.length];
+            for (int i = 0; i < this.columns.length; i++) {
+                columnIndexes[i] = typeHandlers == null || ResultSetWrapper.isReadByIndex(typeHandlers[i])
+                        ? rsw.getColumnIndex(this.columns[i]) : -1;
             }
+            this.typeHandlers = typeHandlers;
+            this.nullsIncluded = nullsIncluded;
         }
     }
 
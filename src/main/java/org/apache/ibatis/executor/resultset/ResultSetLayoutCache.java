@@ -0,0 +1,108 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler.UnMappedColumnAutoMapping;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Holds the result set layouts of the mapped statements of a configuration, by statement and column labels and types.
+ * <p>
+ * A statement whose column list is built with <code>${}</code> may return a different layout on every execution, so at
+ * most {@link #MAX_LAYOUTS_PER_STATEMENT} layouts are kept per statement. Further layouts are resolved for each result
+ * set as if the cache was disabled.
+ *
+ * @see org.apache.ibatis.session.Configuration#setCacheResultSetLayouts(boolean)
+ */
+public class ResultSetLayoutCache {
+
+    /**
+     * The maximum number of layouts kept per statement.
+     */
+    public static final int MAX_LAYOUTS_PER_STATEMENT = 32;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, ResultSetLayout>> layouts = new ConcurrentHashMap<>();
+
+    ResultSetLayout getLayout(String statementId, String columnKey) {
+        Map<String, ResultSetLayout> statementLayouts = layouts.get(statementId);
+        return statementLayouts == null ? null : statementLayouts.get(columnKey);
+    }
+
+    /**
+     * Adds a layout unless the statement already has {@link #MAX_LAYOUTS_PER_STATEMENT} of them.
+     *
+     * @return the layout that was cached before for the same columns, or the given one
+     */
+    ResultSetLayout putLayout(String statementId, String columnKey, ResultSetLayout layout) {
+        ConcurrentMap<String, ResultSetLayout> statementLayouts =
+                layouts.computeIfAbsent(statementId, id -> new ConcurrentHashMap<>());
+        if (statementLayouts.size() >= MAX_LAYOUTS_PER_STATEMENT) {
+            ResultSetLayout existing = statementLayouts.get(columnKey);
+            return existing == null ? layout : existing;
+        }
+        ResultSetLayout existing = statementLayouts.putIfAbsent(columnKey, layout);
+        return existing == null ? layout : existing;
+    }
+
+    /**
+     * Gets the number of cached layouts.
+     *
+     * @return the number of layouts
+     */
+    public int size() {
+        int size = 0;
+        for (Map<String, ResultSetLayout> statementLayouts : layouts.values()) {
+            size += statementLayouts.size();
+        }
+        return size;
+    }
+
+    /**
+     * Forgets all cached layouts, which are resolved again by the next execution of their statements.
+     */
+    public void clear() {
+        layouts.clear();
+    }
+
+    /**
+     * The columns of a result set and what was resolved from them, shared by the result set wrappers of the executions
+     * of a statement returning the same columns.
+     */
+    static final class ResultSetLayout {
+
+        final List<String> columnNames;
+        final List<String> classNames;
+        final List<JdbcType> jdbcTypes;
+        final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new ConcurrentHashMap<>();
+        final Map<String, List<String>> mappedColumnNamesMap = new ConcurrentHashMap<>();
+        final Map<String, List<String>> unMappedColumnNamesMap = new ConcurrentHashMap<>();
+        final Map<String, Integer> columnIndexes = new ConcurrentHashMap<>();
+        final Map<String, List<UnMappedColumnAutoMapping>> autoMappings = new ConcurrentHashMap<>();
+
+        ResultSetLayout(List<String> columnNames, List<String> classNames, List<JdbcType> jdbcTypes) {
+            this.columnNames = columnNames;
+            this.classNames = classNames;
+            this.jdbcTypes = jdbcTypes;
+        }
+    }
+
+}
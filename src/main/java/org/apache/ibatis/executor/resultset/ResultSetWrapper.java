@@ -19,6 +19,7 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -26,7 +27,11 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler.UnMappedColumnAutoMapping;
+import org.apache.ibatis.executor.resultset.ResultSetLayoutCache.ResultSetLayout;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.session.Configuration;
@@ -41,26 +46,102 @@ import org.apache.ibatis.type.UnknownTypeHandler;
  */
 public class ResultSetWrapper {
 
+    private static final String BUILT_IN_TYPE_HANDLER_PACKAGE = "org.apache.ibatis.type.";
+
     private final ResultSet resultSet;
     private final TypeHandlerRegistry typeHandlerRegistry;
-    private final List<String> columnNames = new ArrayList<>();
-    private final List<String> classNames = new ArrayList<>();
-    private final List<JdbcType> jdbcTypes = new ArrayList<>();
-    private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>();
-    private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
-    private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+    private final List<String> columnNames;
+    private final List<String> classNames;
+    private final List<JdbcType> jdbcTypes;
+    private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap;
+    private final Map<String, List<String>> mappedColumnNamesMap;
+    private final Map<String, List<String>> unMappedColumnNamesMap;
+    private String columnFingerprint;
+    // 1-based indexes of the columns looked up so far by label, -1 for labels the driver does not know
+    private final Map<String, Integer> columnIndexes;
+    // automatic mapping plans by result map and column prefix, null when the layout is not shared
+    private final Map<String, List<UnMappedColumnAutoMapping>> sharedAutoMappings;
 
     public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
+        this(rs, configuration, null);
+    }
+
+    /**
+     * Reads the columns of a result set, reusing the layout cached for the statement when result set layouts are cached.
+     *
+     * @param rs
+     *          the result set
+     * @param configuration
+     *          the configuration
+     * @param statementId
+     *          the id of the mapped statement that returned the result set, or <code>null</code> to resolve its layout
+     *          for this result set only
+     * @throws SQLException
+     *           if the metadata of the result set cannot be read
+     */
+    ResultSetWrapper(ResultSet rs, Configuration configuration, String statementId) throws SQLException {
         super();
         this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
         this.resultSet = rs;
         final ResultSetMetaData metaData = rs.getMetaData();
         final int columnCount = metaData.getColumnCount();
-        for (int i = 1; i <= columnCount; i++) {
-            columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
-            jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
-            classNames.add(metaData.getColumnClassName(i));
+        final ResultSetLayout layout = statementId != null && configuration.isCacheResultSetLayouts()
+                ? getSharedLayout(metaData, columnCount, configuration, statementId) : null;
+        if (layout == null) {
+            columnNames = new ArrayList<>();
+            classNames = new ArrayList<>();
+            jdbcTypes = new ArrayList<>();
+            for (int i = 1; i <= columnCount; i++) {
+                columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
+                jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
+                classNames.add(metaData.getColumnClassName(i));
+            }
+            typeHandlerMap = new HashMap<>();
+            mappedColumnNamesMap = new HashMap<>();
+            unMappedColumnNamesMap = new HashMap<>();
+            columnIndexes = new HashMap<>();
+            sharedAutoMappings = null;
+        } else {
+            columnNames = layout.columnNames;
+            classNames = layout.classNames;
+            jdbcTypes = layout.jdbcTypes;
+            typeHandlerMap = layout.typeHandlerMap;
+            mappedColumnNamesMap = layout.mappedColumnNamesMap;
+            unMappedColumnNamesMap = layout.unMappedColumnNamesMap;
+            columnIndexes = layout.columnIndexes;
+            sharedAutoMappings = layout.autoMappings;
+        }
+    }
+
+    private static ResultSetLayout getSharedLayout(ResultSetMetaData metaData, int columnCount,
+                                                   Configuration configuration, String statementId) throws SQLException {
+        // the labels and types identify the layout, the classes are only read for a new one
+        final String[] names = new String[columnCount];
+        final int[] types = new int[columnCount];
+        final StringBuilder key = new StringBuilder().append(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = configuration.isUseColumnLabel() ? metaData.getColumnLabel(i + 1) : metaData.getColumnName(i + 1);
+            types[i] = metaData.getColumnType(i + 1);
+            if (names[i] == null) {
+                return null;
+            }
+            key.append(',').append(names[i]).append(':').append(types[i]);
         }
+        final ResultSetLayoutCache layoutCache = configuration.getResultSetLayoutCache();
+        final String columnKey = key.toString();
+        ResultSetLayout layout = layoutCache.getLayout(statementId, columnKey);
+        if (layout == null) {
+            final List<String> classNames = new ArrayList<>();
+            final List<JdbcType> jdbcTypes = new ArrayList<>();
+            for (int i = 0; i < columnCount; i++) {
+                jdbcTypes.add(JdbcType.forCode(types[i]));
+                classNames.add(metaData.getColumnClassName(i + 1));
+            }
+            layout = layoutCache.putLayout(statementId, columnKey, new ResultSetLayout(
+                    Collections.unmodifiableList(Arrays.asList(names)), Collections.unmodifiableList(classNames),
+                    Collections.unmodifiableList(jdbcTypes)));
+        }
+        return layout;
     }
 
     public ResultSet getResultSet() {
@@ -79,6 +160,24 @@ public class ResultSetWrapper {
         return jdbcTypes;
     }
 
+    /**
+     * Gets a string that is equal for result sets with the same column names, JDBC types and Java classes in the same
+     * order.
+     *
+     * @return the fingerprint of the columns
+     */
+    String getColumnFingerprint() {
+        if (columnFingerprint == null) {
+            StringBuilder fingerprint = new StringBuilder();
+            for (int i = 0; i < columnNames.size(); i++) {
+                fingerprint.append(columnNames.get(i)).append(':').append(jdbcTypes.get(i)).append(':')
+                        .append(classNames.get(i)).append(',');
+            }
+            columnFingerprint = fingerprint.toString();
+        }
+        return columnFingerprint;
+    }
+
     public JdbcType getJdbcType(String columnName) {
         for (int i = 0; i < columnNames.size(); i++) {
             if (columnNames.get(i).equalsIgnoreCase(columnName)) {
@@ -88,6 +187,71 @@ public class ResultSetWrapper {
         return null;
     }
 
+    /**
+     * Gets the index of a column, resolving its label the way the driver does once per result set instead of on every
+     * row.
+     *
+     * @param columnName
+     *          the column label, with its prefix if any
+     * @return the 1-based index of the column, or -1 if the driver does not find it
+     */
+    public int getColumnIndex(String columnName) {
+        if (columnName == null) {
+            return -1;
+        }
+        Integer columnIndex = columnIndexes.get(columnName);
+        if (columnIndex == null) {
+            try {
+                columnIndex = resultSet.findColumn(columnName);
+            } catch (SQLException e) {
+                // reading by label reports the missing column
+                columnIndex = -1;
+            }
+            if (columnIndex < 1) {
+                columnIndex = -1;
+            }
+            columnIndexes.put(columnName, columnIndex);
+        }
+        return columnIndex;
+    }
+
+    /**
+     * Checks whether a type handler can be trusted to read a column by index as it does by label. Only the built-in
+     * handlers qualify, since custom handlers often implement the label overload only.
+     *
+     * @param typeHandler
+     *          the type handler
+     * @return <code>true</code> if the handler is a built-in one
+     */
+    static boolean isReadByIndex(TypeHandler<?> typeHandler) {
+        final String className = typeHandler.getClass().getName();
+        return className.startsWith(BUILT_IN_TYPE_HANDLER_PACKAGE)
+                && className.indexOf('.', BUILT_IN_TYPE_HANDLER_PACKAGE.length()) < 0;
+    }
+
+    /**
+     * Reads a column of the current row by index with a type handler, reporting failures with the column label.
+     */
+    static Object getValue(ResultSet resultSet, TypeHandler<?> typeHandler, int columnIndex, String columnName)
+            throws SQLException {
+        try {
+            return typeHandler.getResult(resultSet, columnIndex);
+        } catch (ResultMapException e) {
+            // report the column by label, as when it is read by label
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            throw new ResultMapException("Error attempting to get column '" + columnName + "' from result set.  Cause: " + cause, cause);
+        }
+    }
+
+    /**
+     * Gets the automatic mapping plans shared by the result sets with the same layout.
+     *
+     * @return the plans by result map and column prefix, or <code>null</code> if the layout is not shared
+     */
+    Map<String, List<UnMappedColumnAutoMapping>> getSharedAutoMappings() {
+        return sharedAutoMappings;
+    }
+
     /**
      * Gets the type handler to use when reading the result set.
      * Tries to get from the TypeHandlerRegistry by searching for the property type.
@@ -103,7 +267,7 @@ public class ResultSetWrapper {
         TypeHandler<?> handler = null;
         Map<Class<?>, TypeHandler<?>> columnHandlers = typeHandlerMap.get(columnName);
         if (columnHandlers == null) {
-            columnHandlers = new HashMap<>();
+            columnHandlers = sharedAutoMappings == null ? new HashMap<>() : new ConcurrentHashMap<>();
             typeHandlerMap.put(columnName, columnHandlers);
         } else {
             handler = columnHandlers.get(propertyType);
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import org.apache.ibatis.reflection.ArrayUtil;
+
+/**
+ * Identifies the object a row maps to with a nested result map, so that the rows of a join sharing the same ids are
+ * merged into one object.
+ * <p>
+ * The key holds the column prefix the result map is applied with, the values of its id columns, in the order of the
+ * columns, and the key of the parent object for objects nested in another one. The prefix tells apart the objects of
+ * two properties that share a result map with different prefixes, such as a manager and a mentor of an employee. Its 64-bit hash is computed once, so that looking it up compares a hash
+ * before any value.
+ */
+final class RowKey {
+
+    /**
+     * The key of rows without any id value, whose objects are never merged.
+     */
+    static final RowKey NULL_ROW_KEY = new RowKey(null, null, new Object[0], null);
+
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final String resultMapId;
+    private final String columnPrefix;
+    private final Object[] values;
+    private final RowKey parent;
+    private final long hash;
+
+    RowKey(String resultMapId, String columnPrefix, Object[] values) {
+        this(resultMapId, columnPrefix, values, null);
+    }
+
+    private RowKey(String resultMapId, String columnPrefix, Object[] values, RowKey parent) {
+        this.resultMapId = resultMapId;
+        this.columnPrefix = columnPrefix;
+        this.values = values;
+        this.parent = parent;
+        long h = resultMapId == null ? 0 : resultMapId.hashCode();
+        h = h * MULTIPLIER + (columnPrefix == null ? 0 : columnPrefix.hashCode());
+        for (Object value : values) {
+            h = h * MULTIPLIER + (value == null ? 1 : ArrayUtil.hashCode(value));
+        }
+        if (parent != null) {
+            h = h * MULTIPLIER + parent.hash;
+        }
+        // spread the high bits over the low ones, which the hash code keeps
+        this.hash = h ^ (h >>> 29);
+    }
+
+    /**
+     * Combines this key with the key of the parent object.
+     *
+     * @param parentKey
+     *          the key of the parent object
+     * @return the combined key, or {@link #NULL_ROW_KEY} if either key is
+     */
+    RowKey combine(RowKey parentKey) {
+        if (this == NULL_ROW_KEY || parentKey == NULL_ROW_KEY) {
+            return NULL_ROW_KEY;
+        }
+        return new RowKey(resultMapId, columnPrefix, values, parentKey);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof RowKey)) {
+            return false;
+        }
+        final RowKey other = (RowKey) object;
+        if (hash != other.hash || values.length != other.values.length
+                || !equals(resultMapId, other.resultMapId) || !equals(columnPrefix, other.columnPrefix)) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (!ArrayUtil.equals(values[i], other.values[i])) {
+                return false;
+            }
+        }
+        return parent == null ? other.parent == null : parent.equals(other.parent);
+    }
+
+    private static boolean equals(String string, String other) {
+        return string == other || (string != null && string.equals(other));
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(String.valueOf(resultMapId));
+        if (columnPrefix != null) {
+            builder.append('[').append(columnPrefix).append(']');
+        }
+        for (Object value : values) {
+            builder.append(':').append(ArrayUtil.toString(value));
+        }
+        if (parent != null) {
+            builder.append(" < ").append(parent);
+        }
+        return builder.toString();
+    }
+
+}
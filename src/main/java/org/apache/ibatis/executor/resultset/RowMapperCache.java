@@ -0,0 +1,75 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the row mappers compiled for the result maps of a configuration, by result map, column prefix, result type and
+ * column shape of the result set.
+ * <p>
+ * A statement whose column list is built with <code>${}</code> may return a different column shape on every
+ * execution, so at most {@link #MAX_ROW_MAPPERS_PER_RESULT_MAP} row mappers are kept per result map, column prefix and
+ * result type. Further row mappers are compiled for each result set and not cached.
+ *
+ * @see org.apache.ibatis.session.Configuration#setUseCompiledRowMappers(boolean)
+ */
+public class RowMapperCache {
+
+    /**
+     * The maximum number of row mappers kept per result map, column prefix and result type.
+     */
+    public static final int MAX_ROW_MAPPERS_PER_RESULT_MAP = 32;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, CompiledRowMapper>> rowMappers = new ConcurrentHashMap<>();
+
+    CompiledRowMapper getRowMapper(String mapKey, String columnFingerprint, Class<?> type) {
+        ConcurrentMap<String, CompiledRowMapper> shapes = rowMappers.computeIfAbsent(mapKey, key -> new ConcurrentHashMap<>());
+        CompiledRowMapper rowMapper = shapes.get(columnFingerprint);
+        // the same class name may be loaded again by another class loader
+        if (rowMapper == null || rowMapper.getType() != type) {
+            boolean cached = rowMapper != null;
+            rowMapper = new CompiledRowMapper(type);
+            if (cached || shapes.size() < MAX_ROW_MAPPERS_PER_RESULT_MAP) {
+                shapes.put(columnFingerprint, rowMapper);
+            }
+        }
+        return rowMapper;
+    }
+
+    /**
+     * Gets the number of compiled row mappers.
+     *
+     * @return the number of row mappers
+     */
+    public int size() {
+        int size = 0;
+        for (Map<String, CompiledRowMapper> shapes : rowMappers.values()) {
+            size += shapes.size();
+        }
+        return size;
+    }
+
+    /**
+     * Forgets all compiled row mappers, which are compiled again on their next use.
+     */
+    public void clear() {
+        rowMappers.clear();
+    }
+
+}
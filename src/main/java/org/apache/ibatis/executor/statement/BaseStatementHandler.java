@@ -119,6 +119,11 @@ public abstract class BaseStatementHandler implements StatementHandler {
             stmt.setFetchSize(fetchSize);
             return;
         }
+        Integer adaptiveFetchSize = configuration.getAdaptiveFetchSize(mappedStatement.getId());
+        if (adaptiveFetchSize != null) {
+            stmt.setFetchSize(adaptiveFetchSize);
+            return;
+        }
         Integer defaultFetchSize = configuration.getDefaultFetchSize();
         if (defaultFetchSize != null) {
             stmt.setFetchSize(defaultFetchSize);
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Learns the fetch size of each mapped statement from the number of rows its recent executions read.
+ * <p>
+ * The fetch size is the 90th percentile of the row counts of the last 20 executions plus one, so
+ * that most executions read all of their rows in a single round trip and learn that there are no more, within the
+ * bounds given by the configuration.
+ *
+ * @see org.apache.ibatis.session.Configuration#setAdaptiveFetchSize(boolean)
+ */
+public class FetchSizeStatistics {
+
+    static final int HISTORY_SIZE = 20;
+    private static final double PERCENTILE = 0.9;
+
+    private final ConcurrentMap<String, RowCountHistory> histories = new ConcurrentHashMap<>();
+
+    /**
+     * Records the number of rows an execution of a statement read from its largest result set.
+     *
+     * @param statementId
+     *          the id of the mapped statement
+     * @param rowCount
+     *          the number of rows
+     */
+    public void recordRowCount(String statementId, int rowCount) {
+        histories.computeIfAbsent(statementId, id -> new RowCountHistory()).add(rowCount);
+    }
+
+    /**
+     * Gets the fetch size learned for a statement.
+     *
+     * @param statementId
+     *          the id of the mapped statement
+     * @param minFetchSize
+     *          the smallest fetch size to return
+     * @param maxFetchSize
+     *          the largest fetch size to return
+     * @return the fetch size, or <code>null</code> if no execution of the statement was recorded yet
+     */
+    public Integer getFetchSize(String statementId, int minFetchSize, int maxFetchSize) {
+        RowCountHistory history = histories.get(statementId);
+        if (history == null) {
+            return null;
+        }
+        long fetchSize = (long) history.percentile(PERCENTILE) + 1;
+        return (int) Math.max(minFetchSize, Math.min(maxFetchSize, fetchSize));
+    }
+
+    /**
+     * Gets the fetch sizes learned for all statements executed so far.
+     *
+     * @param minFetchSize
+     *          the smallest fetch size to return
+     * @param maxFetchSize
+     *          the largest fetch size to return
+     * @return the fetch sizes by statement id
+     */
+    public Map<String, Integer> getFetchSizes(int minFetchSize, int maxFetchSize) {
+        Map<String, Integer> fetchSizes = new TreeMap<>();
+        for (String statementId : histories.keySet()) {
+            fetchSizes.put(statementId, getFetchSize(statementId, minFetchSize, maxFetchSize));
+        }
+        return Collections.unmodifiableMap(fetchSizes);
+    }
+
+    /**
+     * Forgets all recorded executions.
+     */
+    public void clear() {
+        histories.clear();
+    }
+
+    private static final class RowCountHistory {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int[] rowCounts = new int[HISTORY_SIZE];
+        private int size;
+        private int next;
+
+        void add(int rowCount) {
+            lock.lock();
+            try {
+                rowCounts[next] = rowCount;
+                next = (next + 1) % rowCounts.length;
+                size = Math.min(size + 1, rowCounts.length);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int percentile(double percentile) {
+            int[] sorted;
+            lock.lock();
+            try {
+                sorted = Arrays.copyOf(rowCounts, size);
+            } finally {
+                lock.unlock();
+            }
+            Arrays.sort(sorted);
+            // nearest rank
+            int rank = (int) Math.ceil(percentile * sorted.length);
+            return sorted[Math.max(rank, 1) - 1];
+        }
+    }
+
+}
@@ -18,6 +18,8 @@ package org.apache.ibatis.executor.statement;
 import java.sql.SQLException;
 import java.sql.Statement;
 
+import org.apache.ibatis.session.Deadline;
+
 /**
  * Utility for {@link java.sql.Statement}.
  *
@@ -33,19 +35,27 @@ public class StatementUtil {
   /**
    * Apply a transaction timeout.
    * <p>
-   * Update a query timeout to apply a transaction timeout.
+   * Update a query timeout to apply a transaction timeout, and the remaining time of the {@link Deadline} of the
+   * calling thread.
    * </p>
    * @param statement a target statement
    * @param queryTimeout a query timeout
    * @param transactionTimeout a transaction timeout
    * @throws SQLException if a database access error occurs, this method is called on a closed <code>Statement</code>
+   * @throws org.apache.ibatis.exceptions.DeadlineExceededException if the deadline of the calling thread has passed
    */
   public static void applyTransactionTimeout(Statement statement, Integer queryTimeout, Integer transactionTimeout) throws SQLException {
-    if (transactionTimeout == null) {
+    Integer timeout = transactionTimeout;
+    Deadline deadline = Deadline.current();
+    if (deadline != null) {
+      int remaining = deadline.remainingSeconds();
+      timeout = timeout == null ? remaining : Math.min(timeout, remaining);
+    }
+    if (timeout == null) {
       return;
     }
-    if (queryTimeout == null || queryTimeout == 0 || transactionTimeout < queryTimeout) {
-      statement.setQueryTimeout(transactionTimeout);
+    if (queryTimeout == null || queryTimeout == 0 || timeout < queryTimeout) {
+      statement.setQueryTimeout(timeout);
     }
   }
 
@@ -45,6 +45,7 @@ public class ResultMapping {
   private String resultSet;
   private String foreignColumn;
   private boolean lazy;
+  private int batchSize;
 
   ResultMapping() {
   }
@@ -132,6 +133,11 @@ public class ResultMapping {
       return this;
     }
 
+    public Builder batchSize(int batchSize) {
+      resultMapping.batchSize = batchSize;
+      return this;
+    }
+
     public ResultMapping build() {
       // lock down collections
       resultMapping.flags = Collections.unmodifiableList(resultMapping.flags);
@@ -154,6 +160,9 @@ public class ResultMapping {
       if (resultMapping.nestedResultMapId == null && resultMapping.column == null && resultMapping.composites.isEmpty()) {
         throw new IllegalStateException("Mapping is missing column attribute for property " + resultMapping.property);
       }
+      if (resultMapping.batchSize > 0 && (resultMapping.nestedQueryId == null || !resultMapping.composites.isEmpty())) {
+        throw new IllegalStateException("batchSize requires a nested select with a single key column in property " + resultMapping.property);
+      }
       if (resultMapping.getResultSet() != null) {
         int numColumns = 0;
         if (resultMapping.column != null) {
@@ -251,6 +260,17 @@ public class ResultMapping {
     this.lazy = lazy;
   }
 
+  /**
+   * Gets the maximum number of keys passed at once to the nested select. A positive size makes the nested select load
+   * the property for many result objects at once: it is run with the list of their keys as parameter, and the
+   * results are matched with the objects by the {@link #getForeignColumn() foreign column}.
+   *
+   * @return the batch size, 0 if the nested select is run for every result object
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
   public boolean isSimple() {
     return this.nestedResultMapId == null && this.nestedQueryId == null && this.resultSet == null;
   }
@@ -298,6 +318,7 @@ public class ResultMapping {
     sb.append(", resultSet='").append(resultSet).append('\'');
     sb.append(", foreignColumn='").append(foreignColumn).append('\'');
     sb.append(", lazy=").append(lazy);
+    sb.append(", batchSize=").append(batchSize);
     sb.append('}');
     return sb.toString();
   }
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.executor.BatchResult;
+
+/**
+ * The outcome of a {@link BulkWriter#write(String, Iterable)}, made of the outcomes of its partitions.
+ */
+public class BulkWriteResult {
+
+    private final List<Partition> partitions;
+
+    public BulkWriteResult(List<Partition> partitions) {
+        this.partitions = Collections.unmodifiableList(partitions);
+    }
+
+    public List<Partition> getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Gets the batch results of all committed partitions.
+     *
+     * @return the batch results
+     */
+    public List<BatchResult> getBatchResults() {
+        List<BatchResult> batchResults = new ArrayList<>();
+        for (Partition partition : partitions) {
+            batchResults.addAll(partition.getBatchResults());
+        }
+        return batchResults;
+    }
+
+    /**
+     * Gets the number of parameter objects that were written by committed partitions.
+     *
+     * @return the row count
+     */
+    public long getCommittedCount() {
+        long count = 0;
+        for (Partition partition : partitions) {
+            if (partition.isCommitted()) {
+                count += partition.getCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of parameter objects that were taken by partitions that failed. They were rolled back and are
+     * not written.
+     *
+     * @return the row count
+     */
+    public long getRolledBackCount() {
+        long count = 0;
+        for (Partition partition : partitions) {
+            if (!partition.isCommitted()) {
+                count += partition.getCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the errors of the partitions that were rolled back.
+     *
+     * @return the failures, empty if all partitions were committed
+     */
+    public List<Exception> getFailures() {
+        List<Exception> failures = new ArrayList<>();
+        for (Partition partition : partitions) {
+            if (!partition.isCommitted()) {
+                failures.add(partition.getFailure());
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkWriteResult [partitions=" + partitions.size() + ", committed=" + getCommittedCount()
+                + ", rolledBack=" + getRolledBackCount() + ", failures=" + getFailures().size() + "]";
+    }
+
+    /**
+     * The outcome of one partition, written through its own connection and transaction.
+     */
+    public static class Partition {
+
+        private final int index;
+        private final long count;
+        private final List<BatchResult> batchResults;
+        private final Exception failure;
+
+        public Partition(int index, long count, List<BatchResult> batchResults, Exception failure) {
+            this.index = index;
+            this.count = count;
+            this.batchResults = Collections.unmodifiableList(batchResults);
+            this.failure = failure;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Gets the number of parameter objects the partition has written, or had taken before it failed, including the
+         * one it failed on.
+         *
+         * @return the row count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the batch results of the partition.
+         *
+         * @return the batch results, empty if the partition was rolled back
+         */
+        public List<BatchResult> getBatchResults() {
+            return batchResults;
+        }
+
+        public boolean isCommitted() {
+            return failure == null;
+        }
+
+        /**
+         * Gets the error that caused the partition to be rolled back.
+         *
+         * @return the failure, or null if the partition was committed
+         */
+        public Exception getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return "Partition [index=" + index + ", count=" + count + ", committed=" + isCommitted() + "]";
+        }
+    }
+
+}
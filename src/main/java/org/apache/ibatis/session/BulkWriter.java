@@ -0,0 +1,190 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.exceptions.ExceptionFactory;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Writes a large number of parameter objects through several connections in parallel.
+ * <p>
+ * Every partition runs on its own thread with its own {@link ExecutorType#BATCH} session, and so with its own
+ * connection and transaction. The partitions take the parameter objects from a shared bounded queue, so a slow
+ * connection does not hold up the others. Each partition commits when the input is exhausted, or rolls back on its
+ * first error while the other partitions go on with the remaining parameter objects.
+ * <p>
+ * Every parameter object is written at most once: the ones taken by a partition that fails are rolled back and not
+ * retried. Their number is reported by {@link BulkWriteResult#getRolledBackCount()}. If iterating the parameter
+ * objects fails, the partitions are interrupted, roll back, and the error is rethrown.
+ * <p>
+ * The batch settings of the {@link Configuration}, such as {@link Configuration#getBatchFlushRowCount()}, apply to
+ * every partition.
+ */
+public class BulkWriter {
+
+    private static final Log log = LogFactory.getLog(BulkWriter.class);
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+    private static final int QUEUE_CAPACITY_PER_PARTITION = 256;
+    private static final Object END = new Object();
+    private static final Object NULL = new Object();
+
+    private final SqlSessionFactory sqlSessionFactory;
+    private final int partitions;
+
+    /**
+     * Creates a writer.
+     *
+     * @param sqlSessionFactory
+     *          the factory the partition sessions are opened from
+     * @param partitions
+     *          the number of parallel connections, which should not exceed the maximum number of active connections
+     *          of the data source
+     */
+    public BulkWriter(SqlSessionFactory sqlSessionFactory, int partitions) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("The number of partitions must be positive but was " + partitions + ".");
+        }
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.partitions = partitions;
+    }
+
+    /**
+     * Executes an insert, update or delete statement once for every parameter object.
+     *
+     * @param statement
+     *          the id of the statement
+     * @param parameters
+     *          the parameter objects, which are iterated on the calling thread
+     * @return the outcome of every partition
+     * @throws RuntimeException
+     *           if iterating the parameter objects fails, after all partitions have been told to roll back
+     */
+    public BulkWriteResult write(String statement, Iterable<?> parameters) {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(partitions * QUEUE_CAPACITY_PER_PARTITION);
+        AtomicInteger running = new AtomicInteger(partitions);
+        ExecutorService executor = Executors.newFixedThreadPool(partitions, runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-bulk-write-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<BulkWriteResult.Partition>> futures = new ArrayList<>();
+        boolean submitted = false;
+        try {
+            for (int i = 0; i < partitions; i++) {
+                final int index = i;
+                futures.add(executor.submit(() -> writePartition(index, statement, queue, running)));
+            }
+            for (Object parameter : parameters) {
+                if (!put(queue, parameter == null ? NULL : parameter, running)) {
+                    // every partition has failed
+                    break;
+                }
+            }
+            for (int i = 0; i < partitions; i++) {
+                put(queue, END, running);
+            }
+            submitted = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ExceptionFactory.wrapException("Bulk write was interrupted.", e);
+        } finally {
+            if (submitted) {
+                executor.shutdown();
+            } else {
+                // the partitions would wait for more parameter objects, interrupt them so they roll back
+                executor.shutdownNow();
+            }
+        }
+        List<BulkWriteResult.Partition> results = new ArrayList<>();
+        for (Future<BulkWriteResult.Partition> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw ExceptionFactory.wrapException("Bulk write was interrupted.", e);
+            } catch (ExecutionException e) {
+                throw ExceptionFactory.wrapException("Error running bulk write partition.", e);
+            }
+        }
+        BulkWriteResult result = new BulkWriteResult(results);
+        if (!result.getFailures().isEmpty()) {
+            log.warn("Bulk write of '" + statement + "' finished with failures: " + result);
+        } else if (log.isDebugEnabled()) {
+            log.debug("Bulk write of '" + statement + "' finished: " + result);
+        }
+        return result;
+    }
+
+    private static boolean put(BlockingQueue<Object> queue, Object item, AtomicInteger running) throws InterruptedException {
+        while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+            if (running.get() == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private BulkWriteResult.Partition writePartition(int index, String statement, BlockingQueue<Object> queue,
+            AtomicInteger running) {
+        long count = 0;
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            try {
+                for (Object parameter = queue.take(); parameter != END; parameter = queue.take()) {
+                    count++;
+                    session.update(statement, parameter == NULL ? null : parameter);
+                }
+                List<BatchResult> batchResults = session.flushStatements();
+                session.commit();
+                return new BulkWriteResult.Partition(index, count, batchResults, null);
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                rollback(session);
+                return new BulkWriteResult.Partition(index, count, Collections.emptyList(), e);
+            }
+        } catch (Exception e) {
+            // opening or closing the session failed
+            return new BulkWriteResult.Partition(index, count, Collections.emptyList(), e);
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private static void rollback(SqlSession session) {
+        try {
+            session.rollback(true);
+        } catch (RuntimeException e) {
+            log.warn("Error rolling back bulk write partition. Cause: " + e);
+        }
+    }
+
+}
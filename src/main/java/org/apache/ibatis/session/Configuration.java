@@ -25,6 +25,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 
 import org.apache.ibatis.binding.MapperRegistry;
@@ -45,6 +47,7 @@ import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.LocalCacheStatistics;
 import org.apache.ibatis.executor.ReuseExecutor;
 import org.apache.ibatis.executor.SimpleExecutor;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -54,6 +57,9 @@ import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.resultset.ResultSetLayoutCache;
+import org.apache.ibatis.executor.resultset.RowMapperCache;
+import org.apache.ibatis.executor.statement.FetchSizeStatistics;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.io.VFS;
@@ -90,6 +96,7 @@ import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
 import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
+import org.apache.ibatis.transaction.routing.RoutingTransactionFactory;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeAliasRegistry;
 import org.apache.ibatis.type.TypeHandler;
@@ -128,6 +135,28 @@ public class Configuration {
     protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
     protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;
     protected AutoMappingUnknownColumnBehavior autoMappingUnknownColumnBehavior = AutoMappingUnknownColumnBehavior.NONE;
+    protected int warmUpConnections;
+    protected Set<String> warmUpStatements = new HashSet<>();
+    protected WarmUpReport warmUpReport;
+    protected int batchFlushStatementCount;
+    protected int batchFlushRowCount;
+    protected int batchFlushByteSize;
+    protected boolean retainBatchParameterObjects = true;
+    protected boolean retainFlushedBatchResults = true;
+    protected boolean groupBatchStatements;
+    protected int multiRowInsertParameterLimit;
+    protected int localCacheMaxEntries;
+    protected int localCacheMaxRows;
+    protected final LocalCacheStatistics localCacheStatistics = new LocalCacheStatistics();
+    protected boolean adaptiveFetchSize;
+    protected int adaptiveFetchSizeMin = 10;
+    protected int adaptiveFetchSizeMax = 1000;
+    protected final FetchSizeStatistics fetchSizeStatistics = new FetchSizeStatistics();
+    protected boolean useCompiledRowMappers;
+    protected final RowMapperCache rowMapperCache = new RowMapperCache();
+    protected boolean cacheResultSetLayouts;
+    protected final ResultSetLayoutCache resultSetLayoutCache = new ResultSetLayoutCache();
+    protected java.util.concurrent.Executor asyncExecutor;
 
     protected Properties variables = new Properties();
     protected ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
@@ -183,6 +212,7 @@ public class Configuration {
     public Configuration() {
         typeAliasRegistry.registerAlias("JDBC", JdbcTransactionFactory.class);
         typeAliasRegistry.registerAlias("MANAGED", ManagedTransactionFactory.class);
+        typeAliasRegistry.registerAlias("ROUTING", RoutingTransactionFactory.class);
 
         typeAliasRegistry.registerAlias("JNDI", JndiDataSourceFactory.class);
         typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
@@ -296,6 +326,213 @@ public class Configuration {
         this.shrinkWhitespacesInSql = shrinkWhitespacesInSql;
     }
 
+    public int getWarmUpConnections() {
+        return warmUpConnections;
+    }
+
+    /**
+     * Sets the number of connections that {@link SqlSessionFactoryBuilder#build(Configuration)} opens in parallel
+     * before it returns the factory. Zero disables the warm-up. The number is capped at the maximum number of active
+     * connections of a {@link org.apache.ibatis.datasource.pooled.PooledDataSource}.
+     *
+     * @param warmUpConnections
+     *          the number of connections to open
+     */
+    public void setWarmUpConnections(int warmUpConnections) {
+        this.warmUpConnections = warmUpConnections;
+    }
+
+    public Set<String> getWarmUpStatements() {
+        return warmUpStatements;
+    }
+
+    /**
+     * Sets the ids of the statements that are prepared on every warm-up connection. The id <code>*</code> selects all
+     * statements with static SQL. Statements that a prepared statement cache cannot hold are skipped, see
+     * {@link WarmUpReport#getSkippedStatements()}.
+     *
+     * @param warmUpStatements
+     *          the statement ids
+     */
+    public void setWarmUpStatements(Set<String> warmUpStatements) {
+        this.warmUpStatements = warmUpStatements;
+    }
+
+    /**
+     * Gets the outcome of the startup warm-up.
+     *
+     * @return the report, or null if no warm-up has been run
+     */
+    public WarmUpReport getWarmUpReport() {
+        return warmUpReport;
+    }
+
+    public void setWarmUpReport(WarmUpReport warmUpReport) {
+        this.warmUpReport = warmUpReport;
+    }
+
+    public int getBatchFlushStatementCount() {
+        return batchFlushStatementCount;
+    }
+
+    /**
+     * Sets the number of pending statements at which the batch executor executes its batches without waiting for
+     * {@link SqlSession#flushStatements()}. Zero disables the threshold.
+     *
+     * @param batchFlushStatementCount
+     *          the number of statements
+     */
+    public void setBatchFlushStatementCount(int batchFlushStatementCount) {
+        this.batchFlushStatementCount = batchFlushStatementCount;
+    }
+
+    public int getBatchFlushRowCount() {
+        return batchFlushRowCount;
+    }
+
+    /**
+     * Sets the number of pending rows, summed over all statements, at which the batch executor executes its batches.
+     * Zero disables the threshold.
+     *
+     * @param batchFlushRowCount
+     *          the number of rows
+     */
+    public void setBatchFlushRowCount(int batchFlushRowCount) {
+        this.batchFlushRowCount = batchFlushRowCount;
+    }
+
+    public int getBatchFlushByteSize() {
+        return batchFlushByteSize;
+    }
+
+    /**
+     * Sets the estimated size of the pending parameter values at which the batch executor executes its batches. Zero
+     * disables the threshold.
+     *
+     * @param batchFlushByteSize
+     *          the size in bytes
+     */
+    public void setBatchFlushByteSize(int batchFlushByteSize) {
+        this.batchFlushByteSize = batchFlushByteSize;
+    }
+
+    public boolean isRetainBatchParameterObjects() {
+        return retainBatchParameterObjects;
+    }
+
+    /**
+     * Sets whether the batch executor keeps the parameter objects in the returned
+     * {@link org.apache.ibatis.executor.BatchResult}s. They are always kept for statements with a key generator.
+     *
+     * @param retainBatchParameterObjects
+     *          false to release parameter objects as soon as they have been added to the batch
+     */
+    public void setRetainBatchParameterObjects(boolean retainBatchParameterObjects) {
+        this.retainBatchParameterObjects = retainBatchParameterObjects;
+    }
+
+    public boolean isRetainFlushedBatchResults() {
+        return retainFlushedBatchResults;
+    }
+
+    /**
+     * Sets whether the batch executor keeps the {@link org.apache.ibatis.executor.BatchResult} of every batch it flushes
+     * on a threshold until the next {@link org.apache.ibatis.session.SqlSession#flushStatements()}. Otherwise they are
+     * merged into one result per statement and SQL, whose only update count is the total of their rows.
+     *
+     * @param retainFlushedBatchResults
+     *          false to keep only the total update counts of automatically flushed batches
+     */
+    public void setRetainFlushedBatchResults(boolean retainFlushedBatchResults) {
+        this.retainFlushedBatchResults = retainFlushedBatchResults;
+    }
+
+    public boolean isGroupBatchStatements() {
+        return groupBatchStatements;
+    }
+
+    /**
+     * Sets whether the batch executor keeps one batch per distinct statement instead of starting a new batch whenever
+     * the statement changes. Batches are executed in the order their statements were first used, so rows of a table
+     * that is written first are still written first, but the order of statements across tables is not preserved.
+     *
+     * @param groupBatchStatements
+     *          true to group interleaved statements
+     */
+    public void setGroupBatchStatements(boolean groupBatchStatements) {
+        this.groupBatchStatements = groupBatchStatements;
+    }
+
+    public int getMultiRowInsertParameterLimit() {
+        return multiRowInsertParameterLimit;
+    }
+
+    /**
+     * Sets the maximum number of parameters of the multi-row inserts the batch executor rewrites batched single-row
+     * <code>INSERT ... VALUES (...)</code> statements into. Zero disables the rewriting.
+     *
+     * @param multiRowInsertParameterLimit
+     *          the parameter limit, e.g. the maximum number of bind variables the database accepts
+     */
+    public void setMultiRowInsertParameterLimit(int multiRowInsertParameterLimit) {
+        this.multiRowInsertParameterLimit = multiRowInsertParameterLimit;
+    }
+
+    public int getLocalCacheMaxEntries() {
+        return localCacheMaxEntries;
+    }
+
+    /**
+     * Sets the maximum number of query results the local cache of a session holds. The least recently used results are
+     * evicted once a top-level query completes. Zero means no limit.
+     *
+     * @param localCacheMaxEntries
+     *          the maximum number of cached query results
+     */
+    public void setLocalCacheMaxEntries(int localCacheMaxEntries) {
+        this.localCacheMaxEntries = localCacheMaxEntries;
+    }
+
+    public int getLocalCacheMaxRows() {
+        return localCacheMaxRows;
+    }
+
+    /**
+     * Sets the maximum number of result objects, summed over all cached query results, that the local cache of a session
+     * holds. The least recently used results are evicted once a top-level query completes. Zero means no limit.
+     *
+     * @param localCacheMaxRows
+     *          the maximum number of cached result objects
+     */
+    public void setLocalCacheMaxRows(int localCacheMaxRows) {
+        this.localCacheMaxRows = localCacheMaxRows;
+    }
+
+    /**
+     * Gets the eviction counts of the local caches bounded by {@link #setLocalCacheMaxEntries(int)} or
+     * {@link #setLocalCacheMaxRows(int)}, summed over all sessions.
+     *
+     * @return the statistics
+     */
+    public LocalCacheStatistics getLocalCacheStatistics() {
+        return localCacheStatistics;
+    }
+
+    /**
+     * Gets the executor that runs mapper methods returning a {@link java.util.concurrent.CompletableFuture}. Unless one
+     * has been set, a shared executor is used that starts a virtual thread per task on Java 21 and later, and a daemon
+     * thread from a cached pool on earlier versions.
+     *
+     * @return the executor
+     */
+    public java.util.concurrent.Executor getAsyncExecutor() {
+        return asyncExecutor == null ? DefaultAsyncExecutorHolder.INSTANCE : asyncExecutor;
+    }
+
+    public void setAsyncExecutor(java.util.concurrent.Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
     public String getDatabaseId() {
         return databaseId;
     }
@@ -475,6 +712,108 @@ public class Configuration {
         this.defaultFetchSize = defaultFetchSize;
     }
 
+    public boolean isAdaptiveFetchSize() {
+        return adaptiveFetchSize;
+    }
+
+    /**
+     * Sets whether the fetch size of statements without a <code>fetchSize</code> of their own is learned from the number
+     * of rows their recent executions read. The {@link #getDefaultFetchSize() default fetch size} applies until a
+     * statement has been executed once.
+     *
+     * @param adaptiveFetchSize
+     *          whether to learn fetch sizes
+     * @see FetchSizeStatistics
+     */
+    public void setAdaptiveFetchSize(boolean adaptiveFetchSize) {
+        this.adaptiveFetchSize = adaptiveFetchSize;
+    }
+
+    public int getAdaptiveFetchSizeMin() {
+        return adaptiveFetchSizeMin;
+    }
+
+    public void setAdaptiveFetchSizeMin(int adaptiveFetchSizeMin) {
+        this.adaptiveFetchSizeMin = adaptiveFetchSizeMin;
+    }
+
+    public int getAdaptiveFetchSizeMax() {
+        return adaptiveFetchSizeMax;
+    }
+
+    public void setAdaptiveFetchSizeMax(int adaptiveFetchSizeMax) {
+        this.adaptiveFetchSizeMax = adaptiveFetchSizeMax;
+    }
+
+    /**
+     * Gets the fetch size learned for a statement.
+     *
+     * @param statementId
+     *          the id of the mapped statement
+     * @return the fetch size, or <code>null</code> if fetch sizes are not {@link #setAdaptiveFetchSize(boolean) learned}
+     *         or the statement has not been executed yet
+     */
+    public Integer getAdaptiveFetchSize(String statementId) {
+        if (!adaptiveFetchSize) {
+            return null;
+        }
+        return fetchSizeStatistics.getFetchSize(statementId, adaptiveFetchSizeMin, adaptiveFetchSizeMax);
+    }
+
+    /**
+     * Gets the fetch sizes learned so far, by statement id.
+     *
+     * @return the fetch sizes
+     */
+    public Map<String, Integer> getAdaptiveFetchSizes() {
+        return fetchSizeStatistics.getFetchSizes(adaptiveFetchSizeMin, adaptiveFetchSizeMax);
+    }
+
+    public FetchSizeStatistics getFetchSizeStatistics() {
+        return fetchSizeStatistics;
+    }
+
+    public boolean isUseCompiledRowMappers() {
+        return useCompiledRowMappers;
+    }
+
+    /**
+     * Sets whether columns are mapped to simple properties of result objects by compiled row mappers, which read columns
+     * by index and call setters through method handles, instead of through {@link MetaObject}. Row mappers are compiled
+     * once per result map, column prefix, result type and column shape of the result set. Type handlers must implement
+     * {@link org.apache.ibatis.type.TypeHandler#getResult(java.sql.ResultSet, int)}.
+     *
+     * @param useCompiledRowMappers
+     *          whether to use compiled row mappers
+     */
+    public void setUseCompiledRowMappers(boolean useCompiledRowMappers) {
+        this.useCompiledRowMappers = useCompiledRowMappers;
+    }
+
+    public RowMapperCache getRowMapperCache() {
+        return rowMapperCache;
+    }
+
+    public boolean isCacheResultSetLayouts() {
+        return cacheResultSetLayouts;
+    }
+
+    /**
+     * Sets whether the layout of the result sets of a mapped statement is resolved once and shared by its later
+     * executions returning the same column labels and types: the column names and classes, the type handlers, the
+     * mapped and unmapped columns of each result map and the automatic mapping plans.
+     *
+     * @param cacheResultSetLayouts
+     *          whether to cache result set layouts
+     */
+    public void setCacheResultSetLayouts(boolean cacheResultSetLayouts) {
+        this.cacheResultSetLayouts = cacheResultSetLayouts;
+    }
+
+    public ResultSetLayoutCache getResultSetLayoutCache() {
+        return resultSetLayoutCache;
+    }
+
     /**
      * Gets the default result set type.
      *
@@ -1055,4 +1394,23 @@ public class Configuration {
         }
     }
 
+
+    private static final class DefaultAsyncExecutorHolder {
+
+        private static final java.util.concurrent.Executor INSTANCE = createDefaultAsyncExecutor();
+
+        private static java.util.concurrent.Executor createDefaultAsyncExecutor() {
+            try {
+                return (java.util.concurrent.Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // virtual threads are not available before Java 21
+                AtomicInteger threadNumber = new AtomicInteger();
+                return Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "mybatis-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
 }
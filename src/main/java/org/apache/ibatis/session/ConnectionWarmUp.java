@@ -0,0 +1,210 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.exceptions.ExceptionFactory;
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+
+/**
+ * Opens {@link Configuration#getWarmUpConnections()} connections in parallel and prepares the
+ * {@link Configuration#getWarmUpStatements() warm-up statements} on each of them, so that a pooled data source starts
+ * with open connections and, if it caches prepared statements, with those statements cached.
+ * <p>
+ * Only statements that the prepared statement cache of a {@link PooledDataSource} can hold are prepared. Callable
+ * statements, statements returning generated keys and plain statements are skipped and listed in the report.
+ * <p>
+ * Every connection is held until all of them have been opened, which forces a pool to open distinct connections. The
+ * number of connections is therefore capped at the maximum number of active connections of a {@link PooledDataSource}.
+ * With other data sources, a connection is released after {@value #OPEN_WAIT_SECONDS} seconds even if the others have
+ * not all been opened, so that a pool smaller than the number of connections does not stall the warm-up.
+ *
+ * @see SqlSessionFactoryBuilder#build(Configuration)
+ */
+class ConnectionWarmUp {
+
+    /**
+     * The warm-up statement id that selects all statements with static SQL.
+     */
+    static final String ALL_STATIC_STATEMENTS = "*";
+
+    private static final Log log = LogFactory.getLog(ConnectionWarmUp.class);
+    private static final long OPEN_WAIT_SECONDS = 30;
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+
+    private final Configuration configuration;
+    private final Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+    private final List<String> skippedStatements = new ArrayList<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicInteger preparedStatementCount = new AtomicInteger();
+
+    ConnectionWarmUp(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    WarmUpReport run() {
+        long start = System.currentTimeMillis();
+        DataSource dataSource = configuration.getEnvironment().getDataSource();
+        int connections = configuration.getWarmUpConnections();
+        if (dataSource instanceof PooledDataSource
+                && connections > ((PooledDataSource) dataSource).getPoolMaximumActiveConnections()) {
+            connections = ((PooledDataSource) dataSource).getPoolMaximumActiveConnections();
+            log.warn("Warming up only " + connections + " connections, the maximum number of active connections of the pool.");
+        }
+        List<MappedStatement> statements = resolveStatements();
+        CountDownLatch opened = new CountDownLatch(connections);
+        ExecutorService executor = Executors.newFixedThreadPool(connections, runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-warm-up-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < connections; i++) {
+                executor.execute(() -> warmUpConnection(dataSource, statements, opened));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Still warming up " + connections + " connections ...");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            failures.add(ExceptionFactory.wrapException("Warm-up was interrupted.", e));
+        }
+        WarmUpReport report = new WarmUpReport(System.currentTimeMillis() - start, connectionCount.get(),
+                preparedStatementCount.get(), skippedStatements, new ArrayList<>(failures));
+        if (!failures.isEmpty()) {
+            log.warn("Warm-up finished with " + failures.size() + " failures. First failure: " + failures.peek().getMessage());
+        } else if (log.isDebugEnabled()) {
+            log.debug("Warm-up finished: " + report);
+        }
+        return report;
+    }
+
+    private List<MappedStatement> resolveStatements() {
+        Map<String, MappedStatement> statements = new LinkedHashMap<>();
+        for (String id : configuration.getWarmUpStatements()) {
+            if (ALL_STATIC_STATEMENTS.equals(id)) {
+                // ambiguous short names are mapped to placeholders, hence the type check
+                for (Object value : configuration.getMappedStatements()) {
+                    if (value instanceof MappedStatement && ((MappedStatement) value).getSqlSource() instanceof RawSqlSource) {
+                        MappedStatement ms = (MappedStatement) value;
+                        statements.put(ms.getId(), ms);
+                    }
+                }
+            } else {
+                try {
+                    MappedStatement ms = configuration.getMappedStatement(id);
+                    statements.put(ms.getId(), ms);
+                } catch (RuntimeException e) {
+                    failures.add(ExceptionFactory.wrapException("Error resolving warm-up statement '" + id + "'.", e));
+                }
+            }
+        }
+        List<MappedStatement> cacheable = new ArrayList<>();
+        for (MappedStatement ms : statements.values()) {
+            if (isCacheable(ms)) {
+                cacheable.add(ms);
+            } else {
+                skippedStatements.add(ms.getId());
+            }
+        }
+        return cacheable;
+    }
+
+    /**
+     * Checks whether the statement handler prepares the statement with <code>prepareStatement(sql)</code> or
+     * <code>prepareStatement(sql, resultSetType, resultSetConcurrency)</code>, the only calls a statement cache serves.
+     */
+    private static boolean isCacheable(MappedStatement ms) {
+        return ms.getStatementType() == StatementType.PREPARED && !(ms.getKeyGenerator() instanceof Jdbc3KeyGenerator);
+    }
+
+    private void warmUpConnection(DataSource dataSource, List<MappedStatement> statements, CountDownLatch opened) {
+        Connection connection;
+        try {
+            connection = dataSource.getConnection();
+            connectionCount.incrementAndGet();
+        } catch (SQLException | RuntimeException e) {
+            failures.add(ExceptionFactory.wrapException("Error opening connection during warm-up.", e));
+            return;
+        } finally {
+            opened.countDown();
+        }
+        try {
+            for (MappedStatement ms : statements) {
+                try {
+                    prepare(connection, ms).close();
+                    preparedStatementCount.incrementAndGet();
+                } catch (SQLException | RuntimeException e) {
+                    failures.add(ExceptionFactory.wrapException("Error preparing statement '" + ms.getId() + "' during warm-up.", e));
+                }
+            }
+            if (!opened.await(OPEN_WAIT_SECONDS, TimeUnit.SECONDS) && log.isDebugEnabled()) {
+                log.debug("Releasing a warm-up connection before all connections have been opened.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                failures.add(ExceptionFactory.wrapException("Error closing connection during warm-up.", e));
+            }
+        }
+    }
+
+    /**
+     * Prepares the statement the same way the {@link org.apache.ibatis.executor.statement.PreparedStatementHandler}
+     * does, so that a statement cache keyed by SQL and result set type is hit later on.
+     */
+    private Statement prepare(Connection connection, MappedStatement ms) throws SQLException {
+        String sql = ms.getBoundSql(null).getSql();
+        ResultSetType resultSetType = ms.getResultSetType();
+        if (resultSetType == ResultSetType.DEFAULT) {
+            return connection.prepareStatement(sql);
+        }
+        return connection.prepareStatement(sql, resultSetType.getValue(), ResultSet.CONCUR_READ_ONLY);
+    }
+
+}
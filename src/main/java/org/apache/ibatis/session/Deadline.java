@@ -0,0 +1,151 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.exceptions.DeadlineExceededException;
+
+/**
+ * A point in time by which the database work of a request has to be done.
+ * <p>
+ * A deadline applies to the work done by the calling thread while it is {@link #bind() bound}, whatever the session:
+ * statements are not started once it has passed, the query timeout of every statement is capped by the remaining time,
+ * rounded up to whole seconds, and a {@link org.apache.ibatis.datasource.pooled.PooledDataSource} waits for a
+ * connection no longer than the remaining time. Lazy loading draws from the deadline that was bound when the object was
+ * loaded, even after it has been unbound. Work that runs into the deadline fails with a
+ * {@link DeadlineExceededException}.
+ *
+ * <pre>
+ * try (Deadline.Scope scope = Deadline.after(200, TimeUnit.MILLISECONDS).bind()) {
+ *   return mapper.selectBlog(id);
+ * }
+ * </pre>
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long nanoTime;
+
+    private Deadline(long nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Creates a deadline that passes after the given duration.
+     *
+     * @param duration
+     *          the duration
+     * @param unit
+     *          the unit of the duration
+     * @return the deadline
+     */
+    public static Deadline after(long duration, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(duration));
+    }
+
+    /**
+     * Gets the deadline bound to the calling thread.
+     *
+     * @return the deadline, or null if none is bound
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds this deadline to the calling thread until the returned scope is closed. Within the scope of an earlier
+     * deadline, the earlier one stays in effect.
+     *
+     * @return the scope, to be closed by the thread that bound it
+     */
+    public Scope bind() {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(previous != null && previous.nanoTime - nanoTime < 0 ? previous : this);
+        return new Scope(previous);
+    }
+
+    /**
+     * Gets the time left until this deadline passes.
+     *
+     * @param unit
+     *          the unit of the result
+     * @return the remaining time, zero or negative once the deadline has passed
+     */
+    public long remaining(TimeUnit unit) {
+        return unit.convert(nanoTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isExpired() {
+        return nanoTime - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Gets the time left as a query timeout.
+     *
+     * @return the remaining time in seconds, rounded up
+     * @throws DeadlineExceededException
+     *           if the deadline has passed
+     */
+    public int remainingSeconds() {
+        long nanos = nanoTime - System.nanoTime();
+        if (nanos <= 0) {
+            throw newException(nanos);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Fails if this deadline has passed.
+     *
+     * @throws DeadlineExceededException
+     *           if the deadline has passed
+     */
+    public void check() {
+        long nanos = nanoTime - System.nanoTime();
+        if (nanos <= 0) {
+            throw newException(nanos);
+        }
+    }
+
+    private DeadlineExceededException newException(long nanos) {
+        return new DeadlineExceededException("The deadline was exceeded by "
+                + TimeUnit.NANOSECONDS.toMillis(-nanos) + " milliseconds.");
+    }
+
+    /**
+     * Restores the deadline that was bound before when closed.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Deadline previous;
+
+        private Scope(Deadline previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+}
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.CursorPublisher;
 import org.apache.ibatis.executor.BatchResult;
 
 /**
@@ -144,6 +145,43 @@ public interface SqlSession extends Closeable {
    */
   <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
 
+  /**
+   * A CursorPublisher streams the results of a cursor to a subscriber, fetching rows only as they are requested.
+   * The session is closed when the subscription ends.
+   * @param <T> the returned element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @return Publisher of mapped objects
+   */
+  default <T> CursorPublisher<T> selectPublisher(String statement) {
+    return selectPublisher(statement, null);
+  }
+
+  /**
+   * A CursorPublisher streams the results of a cursor to a subscriber, fetching rows only as they are requested.
+   * The session is closed when the subscription ends.
+   * @param <T> the returned element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Publisher of mapped objects
+   */
+  default <T> CursorPublisher<T> selectPublisher(String statement, Object parameter) {
+    return selectPublisher(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * A CursorPublisher streams the results of a cursor to a subscriber, fetching rows only as they are requested.
+   * The session is closed when the subscription ends. The default implementation publishes the cursor of this session
+   * on the async executor of its configuration.
+   * @param <T> the returned element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return Publisher of mapped objects
+   */
+  default <T> CursorPublisher<T> selectPublisher(String statement, Object parameter, RowBounds rowBounds) {
+    return new CursorPublisher<>(this, statement, parameter, rowBounds, getConfiguration().getAsyncExecutor());
+  }
+
   /**
    * Retrieve a single row mapped from the statement key and parameter
    * using a {@code ResultHandler}.
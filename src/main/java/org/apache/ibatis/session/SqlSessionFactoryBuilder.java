@@ -90,6 +90,10 @@ public class SqlSessionFactoryBuilder {
     }
 
     public SqlSessionFactory build(Configuration config) {
+        // 按配置预先打开连接并预编译语句，结果记录在Configuration中
+        if (config.getWarmUpConnections() > 0 && config.getEnvironment() != null) {
+            config.setWarmUpReport(new ConnectionWarmUp(config).run());
+        }
         return new DefaultSqlSessionFactory(config);
     }
 
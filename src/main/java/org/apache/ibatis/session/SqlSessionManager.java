@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Properties;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.CursorPublisher;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
@@ -197,6 +198,23 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
         return sqlSessionProxy.selectCursor(statement, parameter, rowBounds);
     }
 
+    @Override
+    public <T> CursorPublisher<T> selectPublisher(String statement) {
+        return selectPublisher(statement, null);
+    }
+
+    @Override
+    public <T> CursorPublisher<T> selectPublisher(String statement, Object parameter) {
+        return selectPublisher(statement, parameter, RowBounds.DEFAULT);
+    }
+
+    @Override
+    public <T> CursorPublisher<T> selectPublisher(String statement, Object parameter, RowBounds rowBounds) {
+        // the publisher closes its session when the subscription ends, an automatic session would be closed right away
+        final SqlSession sqlSession = localSqlSession.get();
+        return (sqlSession != null ? sqlSession : openSession()).selectPublisher(statement, parameter, rowBounds);
+    }
+
     @Override
     public <E> List<E> selectList(String statement) {
         return sqlSessionProxy.selectList(statement);
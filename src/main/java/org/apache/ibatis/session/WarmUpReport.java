@@ -0,0 +1,98 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of the startup warm-up phase, available from {@link Configuration#getWarmUpReport()} once the
+ * {@link SqlSessionFactory} has been built.
+ *
+ * @see Configuration#setWarmUpConnections(int)
+ * @see Configuration#setWarmUpStatements(java.util.Set)
+ */
+public class WarmUpReport {
+
+    private final long elapsedTime;
+    private final int connectionCount;
+    private final int preparedStatementCount;
+    private final List<String> skippedStatements;
+    private final List<Exception> failures;
+
+    public WarmUpReport(long elapsedTime, int connectionCount, int preparedStatementCount, List<String> skippedStatements,
+            List<Exception> failures) {
+        this.elapsedTime = elapsedTime;
+        this.connectionCount = connectionCount;
+        this.preparedStatementCount = preparedStatementCount;
+        this.skippedStatements = Collections.unmodifiableList(skippedStatements);
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Gets the time the warm-up took.
+     *
+     * @return the time in milliseconds
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Gets the number of connections that were opened.
+     *
+     * @return the connection count
+     */
+    public int getConnectionCount() {
+        return connectionCount;
+    }
+
+    /**
+     * Gets the number of statements that were prepared, summed over all connections.
+     *
+     * @return the statement count
+     */
+    public int getPreparedStatementCount() {
+        return preparedStatementCount;
+    }
+
+    /**
+     * Gets the ids of the warm-up statements that were not prepared because a prepared statement cache could not hold
+     * them: callable statements, statements returning generated keys and plain statements.
+     *
+     * @return the statement ids, empty if all statements were prepared
+     */
+    public List<String> getSkippedStatements() {
+        return skippedStatements;
+    }
+
+    /**
+     * Gets the errors raised while opening connections or preparing statements. The warm-up goes on after a failure.
+     *
+     * @return the failures, empty if the warm-up succeeded
+     */
+    public List<Exception> getFailures() {
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        return "WarmUpReport [elapsedTime=" + elapsedTime + "ms, connections=" + connectionCount
+                + ", preparedStatements=" + preparedStatementCount + ", skippedStatements=" + skippedStatements.size()
+                + ", failures=" + failures.size() + "]";
+    }
+
+}
@@ -35,6 +35,7 @@ import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.reflection.ParamNameResolver;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
@@ -49,14 +50,20 @@ public class DefaultSqlSession implements SqlSession {
 
     private final Configuration configuration;
     private final Executor executor;
+    private final ExecutorType executorType;
 
     private final boolean autoCommit;
     private boolean dirty;
     private List<Cursor<?>> cursorList;
 
     public DefaultSqlSession(Configuration configuration, Executor executor, boolean autoCommit) {
+        this(configuration, executor, autoCommit, null);
+    }
+
+    public DefaultSqlSession(Configuration configuration, Executor executor, boolean autoCommit, ExecutorType executorType) {
         this.configuration = configuration;
         this.executor = executor;
+        this.executorType = executorType == null ? configuration.getDefaultExecutorType() : executorType;
         this.dirty = false;
         this.autoCommit = autoCommit;
     }
@@ -286,6 +293,15 @@ public class DefaultSqlSession implements SqlSession {
         return configuration;
     }
 
+    /**
+     * Gets the type of the executor the session was opened with.
+     *
+     * @return the executor type, the default one of the configuration if none was given
+     */
+    public ExecutorType getExecutorType() {
+        return executorType;
+    }
+
     @Override
     public <T> T getMapper(Class<T> type) {
         return configuration.getMapper(type, this);
@@ -99,7 +99,7 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
             // 根据配置创建Executor对象
             final Executor executor = configuration.newExecutor(tx, execType);
             // 在Executor的基础上创建DefaultSqlSession对象
-            return new DefaultSqlSession(configuration, executor, autoCommit);
+            return new DefaultSqlSession(configuration, executor, autoCommit, execType);
         } catch (Exception e) {
             closeTransaction(tx); // may have fetched a connection so lets call close()
             throw ExceptionFactory.wrapException("Error opening session.  Cause: " + e, e);
@@ -125,7 +125,7 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
             // 创建Executor对象
             final Executor executor = configuration.newExecutor(tx, execType);
             // 创建DefaultSqlSession对象
-            return new DefaultSqlSession(configuration, executor, autoCommit);
+            return new DefaultSqlSession(configuration, executor, autoCommit, execType);
         } catch (Exception e) {
             throw ExceptionFactory.wrapException("Error opening session.  Cause: " + e, e);
         } finally {
@@ -18,6 +18,8 @@ package org.apache.ibatis.transaction;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+import org.apache.ibatis.mapping.MappedStatement;
+
 /**
  * Wraps a database connection.
  * Handles the connection lifecycle that comprises: its creation, preparation, commit/rollback and close.
@@ -39,4 +41,14 @@ public interface Transaction {
 
     // 获取当前事务超时时间
     Integer getTimeout() throws SQLException;
+
+    /**
+     * Called by the executor before it gets the connection to run a statement on, so that a transaction spanning
+     * several connections can choose the right one. The default implementation does nothing.
+     *
+     * @param ms
+     *          the statement about to be executed
+     */
+    default void beforeStatement(MappedStatement ms) {
+    }
 }
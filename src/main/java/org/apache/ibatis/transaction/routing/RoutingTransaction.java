@@ -0,0 +1,117 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.transaction.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.apache.ibatis.datasource.routing.RoutingDataSource;
+import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+
+/**
+ * {@link Transaction} that runs select statements on a replica connection and all other statements on a primary
+ * connection of a {@link RoutingDataSource}. Both connections are opened on first use.
+ * <p>
+ * Once a statement has been run on the primary, all further reads of the transaction go to the primary as well, so
+ * that a session always reads its own writes, even if they have not reached the replicas yet. Stored procedure calls
+ * and select key statements are treated as writes.
+ *
+ * @see RoutingTransactionFactory
+ */
+public class RoutingTransaction implements Transaction {
+
+    private static final Log log = LogFactory.getLog(RoutingTransaction.class);
+
+    private final Transaction primary;
+    private final Transaction replica;
+    private boolean written;
+    private boolean readFromReplica;
+
+    public RoutingTransaction(RoutingDataSource dataSource, TransactionIsolationLevel level, boolean autoCommit) {
+        this.primary = new JdbcTransaction(dataSource, level, autoCommit);
+        this.replica = new JdbcTransaction(dataSource.getReadDataSource(), level, autoCommit);
+    }
+
+    @Override
+    public void beforeStatement(MappedStatement ms) {
+        if (isRead(ms) && !written) {
+            readFromReplica = true;
+        } else {
+            if (!written && log.isDebugEnabled()) {
+                log.debug("Statement " + ms.getId() + " is a write, routing the rest of the transaction to the primary.");
+            }
+            written = true;
+            readFromReplica = false;
+        }
+    }
+
+    private boolean isRead(MappedStatement ms) {
+        return ms.getSqlCommandType() == SqlCommandType.SELECT && ms.getStatementType() != StatementType.CALLABLE
+                && !ms.getId().endsWith(SelectKeyGenerator.SELECT_KEY_SUFFIX);
+    }
+
+    /**
+     * Returns true once a statement has been routed to the primary, after which reads are no longer sent to replicas.
+     *
+     * @return true if the transaction is bound to the primary
+     */
+    public boolean isWritten() {
+        return written;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return readFromReplica ? replica.getConnection() : primary.getConnection();
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        primary.commit();
+        replica.commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        try {
+            primary.rollback();
+        } finally {
+            replica.rollback();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            primary.close();
+        } finally {
+            replica.close();
+        }
+    }
+
+    @Override
+    public Integer getTimeout() throws SQLException {
+        return null;
+    }
+
+}
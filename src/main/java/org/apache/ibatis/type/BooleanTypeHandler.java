@@ -23,12 +23,12 @@ import java.sql.SQLException;
 /**
  * @author Clinton Begin
  */
-public class BooleanTypeHandler extends BaseTypeHandler<Boolean> {
+public class BooleanTypeHandler extends BaseTypeHandler<Boolean> implements PrimitiveTypeHandler.OfBoolean {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Boolean parameter, JdbcType jdbcType)
       throws SQLException {
-    ps.setBoolean(i, parameter);
+    setBoolean(ps, i, parameter);
   }
 
   @Override
@@ -51,4 +51,14 @@ public class BooleanTypeHandler extends BaseTypeHandler<Boolean> {
     boolean result = cs.getBoolean(columnIndex);
     return !result && cs.wasNull() ? null : result;
   }
+
+  @Override
+  public boolean getBoolean(ResultSet rs, int columnIndex) throws SQLException {
+    return rs.getBoolean(columnIndex);
+  }
+
+  @Override
+  public void setBoolean(PreparedStatement ps, int i, boolean parameter) throws SQLException {
+    ps.setBoolean(i, parameter);
+  }
 }
@@ -23,12 +23,12 @@ import java.sql.SQLException;
 /**
  * @author Clinton Begin
  */
-public class ByteTypeHandler extends BaseTypeHandler<Byte> {
+public class ByteTypeHandler extends BaseTypeHandler<Byte> implements PrimitiveTypeHandler.OfByte {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Byte parameter, JdbcType jdbcType)
       throws SQLException {
-    ps.setByte(i, parameter);
+    setByte(ps, i, parameter);
   }
 
   @Override
@@ -51,4 +51,14 @@ public class ByteTypeHandler extends BaseTypeHandler<Byte> {
     byte result = cs.getByte(columnIndex);
     return result == 0 && cs.wasNull() ? null : result;
   }
+
+  @Override
+  public byte getByte(ResultSet rs, int columnIndex) throws SQLException {
+    return rs.getByte(columnIndex);
+  }
+
+  @Override
+  public void setByte(PreparedStatement ps, int i, byte parameter) throws SQLException {
+    ps.setByte(i, parameter);
+  }
 }
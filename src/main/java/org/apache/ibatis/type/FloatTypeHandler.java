@@ -23,12 +23,12 @@ import java.sql.SQLException;
 /**
  * @author Clinton Begin
  */
-public class FloatTypeHandler extends BaseTypeHandler<Float> {
+public class FloatTypeHandler extends BaseTypeHandler<Float> implements PrimitiveTypeHandler.OfFloat {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Float parameter, JdbcType jdbcType)
       throws SQLException {
-    ps.setFloat(i, parameter);
+    setFloat(ps, i, parameter);
   }
 
   @Override
@@ -51,4 +51,14 @@ public class FloatTypeHandler extends BaseTypeHandler<Float> {
     float result = cs.getFloat(columnIndex);
     return result == 0 && cs.wasNull() ? null : result;
   }
+
+  @Override
+  public float getFloat(ResultSet rs, int columnIndex) throws SQLException {
+    return rs.getFloat(columnIndex);
+  }
+
+  @Override
+  public void setFloat(PreparedStatement ps, int i, float parameter) throws SQLException {
+    ps.setFloat(i, parameter);
+  }
 }
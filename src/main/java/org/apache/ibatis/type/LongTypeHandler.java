@@ -23,13 +23,13 @@ import java.sql.SQLException;
 /**
  * @author Clinton Begin
  */
-public class LongTypeHandler extends BaseTypeHandler<Long> {
+public class LongTypeHandler extends BaseTypeHandler<Long> implements PrimitiveTypeHandler.OfLong {
 
     @Override
     public void setNonNullParameter(PreparedStatement ps, int i, Long parameter, JdbcType jdbcType)
             throws SQLException {
         // 调用PreparedStatement.setLong()实现参数绑定
-        ps.setLong(i, parameter);
+        setLong(ps, i, parameter);
     }
 
     @Override
@@ -55,4 +55,14 @@ public class LongTypeHandler extends BaseTypeHandler<Long> {
         long result = cs.getLong(columnIndex);
         return result == 0 && cs.wasNull() ? null : result;
     }
+
+    @Override
+    public long getLong(ResultSet rs, int columnIndex) throws SQLException {
+        return rs.getLong(columnIndex);
+    }
+
+    @Override
+    public void setLong(PreparedStatement ps, int i, long parameter) throws SQLException {
+        ps.setLong(i, parameter);
+    }
 }
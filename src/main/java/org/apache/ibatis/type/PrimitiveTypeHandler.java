@@ -0,0 +1,84 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A type handler for a primitive wrapper that can also read and bind the primitive value without boxing it.
+ * <p>
+ * The primitive getters follow JDBC: they return <code>0</code> or <code>false</code> for SQL <code>NULL</code>, and the
+ * caller checks {@link ResultSet#wasNull()} right after the call to tell them apart. Result mapping uses them to set
+ * primitive properties when compiled row mappers are enabled.
+ *
+ * @param <T>
+ *          the wrapper type
+ * @see org.apache.ibatis.session.Configuration#setUseCompiledRowMappers(boolean)
+ */
+public interface PrimitiveTypeHandler<T> extends TypeHandler<T> {
+
+  interface OfBoolean extends PrimitiveTypeHandler<Boolean> {
+
+    boolean getBoolean(ResultSet rs, int columnIndex) throws SQLException;
+
+    void setBoolean(PreparedStatement ps, int i, boolean parameter) throws SQLException;
+  }
+
+  interface OfByte extends PrimitiveTypeHandler<Byte> {
+
+    byte getByte(ResultSet rs, int columnIndex) throws SQLException;
+
+    void setByte(PreparedStatement ps, int i, byte parameter) throws SQLException;
+  }
+
+  interface OfShort extends PrimitiveTypeHandler<Short> {
+
+    short getShort(ResultSet rs, int columnIndex) throws SQLException;
+
+    void setShort(PreparedStatement ps, int i, short parameter) throws SQLException;
+  }
+
+  interface OfInt extends PrimitiveTypeHandler<Integer> {
+
+    int getInt(ResultSet rs, int columnIndex) throws SQLException;
+
+    void setInt(PreparedStatement ps, int i, int parameter) throws SQLException;
+  }
+
+  interface OfLong extends PrimitiveTypeHandler<Long> {
+
+    long getLong(ResultSet rs, int columnIndex) throws SQLException;
+
+    void setLong(PreparedStatement ps, int i, long parameter) throws SQLException;
+  }
+
+  interface OfFloat extends PrimitiveTypeHandler<Float> {
+
+    float getFloat(ResultSet rs, int columnIndex) throws SQLException;
+
+    void setFloat(PreparedStatement ps, int i, float parameter) throws SQLException;
+  }
+
+  interface OfDouble extends PrimitiveTypeHandler<Double> {
+
+    double getDouble(ResultSet rs, int columnIndex) throws SQLException;
+
+    void setDouble(PreparedStatement ps, int i, double parameter) throws SQLException;
+  }
+
+}
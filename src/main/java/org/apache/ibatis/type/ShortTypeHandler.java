@@ -23,12 +23,12 @@ import java.sql.SQLException;
 /**
  * @author Clinton Begin
  */
-public class ShortTypeHandler extends BaseTypeHandler<Short> {
+public class ShortTypeHandler extends BaseTypeHandler<Short> implements PrimitiveTypeHandler.OfShort {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Short parameter, JdbcType jdbcType)
       throws SQLException {
-    ps.setShort(i, parameter);
+    setShort(ps, i, parameter);
   }
 
   @Override
@@ -51,4 +51,14 @@ public class ShortTypeHandler extends BaseTypeHandler<Short> {
     short result = cs.getShort(columnIndex);
     return result == 0 && cs.wasNull() ? null : result;
   }
+
+  @Override
+  public short getShort(ResultSet rs, int columnIndex) throws SQLException {
+    return rs.getShort(columnIndex);
+  }
+
+  @Override
+  public void setShort(PreparedStatement ps, int i, short parameter) throws SQLException {
+    ps.setShort(i, parameter);
+  }
 }
@@ -0,0 +1,43 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.domain.blog.Author;
+
+public interface AsyncAuthorMapper {
+
+  @Select("select * from author where id = #{id}")
+  CompletableFuture<Author> selectAuthor(int id);
+
+  @Select("select * from author order by id")
+  CompletableFuture<List<Author>> selectAllAuthors();
+
+  @Select("select count(*) from author")
+  CompletableFuture<Integer> countAuthors();
+
+  @Insert("insert into author (id, username, password, email, bio) values (#{id}, #{username}, #{password}, #{email}, #{bio})")
+  CompletableFuture<Integer> insertAuthor(Author author);
+
+  @Delete("delete from author where id = #{id}")
+  CompletableFuture<Void> deleteAuthor(int id);
+
+}
@@ -0,0 +1,125 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.exceptions.DeadlineExceededException;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.Deadline;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class AsyncMapperTest {
+
+  private static final AtomicInteger submittedTasks = new AtomicInteger();
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setup() throws Exception {
+    DataSource dataSource = BaseDataTest.createBlogDataSource();
+    Configuration configuration = new Configuration(new Environment("async", new JdbcTransactionFactory(), dataSource));
+    Executor threads = Executors.newCachedThreadPool();
+    configuration.setAsyncExecutor(task -> {
+      submittedTasks.incrementAndGet();
+      threads.execute(task);
+    });
+    configuration.addMapper(AsyncAuthorMapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  @Test
+  void shouldRunIndependentQueriesConcurrently() {
+    int tasks = submittedTasks.get();
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      AsyncAuthorMapper mapper = session.getMapper(AsyncAuthorMapper.class);
+      CompletableFuture<Author> author = mapper.selectAuthor(101);
+      CompletableFuture<List<Author>> authors = mapper.selectAllAuthors();
+      CompletableFuture<Integer> count = mapper.countAuthors();
+
+      assertEquals("jim", author.join().getUsername());
+      assertEquals(count.join().intValue(), authors.join().size());
+    }
+    assertEquals(tasks + 3, submittedTasks.get());
+  }
+
+  @Test
+  void shouldCommitAsyncUpdates() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      AsyncAuthorMapper mapper = session.getMapper(AsyncAuthorMapper.class);
+      Author author = new Author(9001, "async", "******", "async@apache.org", "bio", null);
+      assertEquals(1, mapper.insertAuthor(author).join().intValue());
+      // the insert was committed by its own session
+      assertEquals("async", mapper.selectAuthor(9001).join().getUsername());
+      assertNull(mapper.deleteAuthor(9001).join());
+      assertNull(mapper.selectAuthor(9001).join());
+    }
+  }
+
+  @Test
+  void shouldUseExecutorTypeOfCallingSession() {
+    try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      AsyncAuthorMapper mapper = session.getMapper(AsyncAuthorMapper.class);
+      Author author = new Author(9002, "batch", "******", "batch@apache.org", "bio", null);
+      assertEquals(BatchExecutor.BATCH_UPDATE_RETURN_VALUE, mapper.insertAuthor(author).join().intValue());
+      // the batch was flushed on commit
+      assertEquals("batch", mapper.selectAuthor(9002).join().getUsername());
+      mapper.deleteAuthor(9002).join();
+    }
+  }
+
+  @Test
+  void shouldKeepDeadlineOfCallingThread() {
+    try (SqlSession session = sqlSessionFactory.openSession();
+        Deadline.Scope scope = Deadline.after(0, TimeUnit.MILLISECONDS).bind()) {
+      AsyncAuthorMapper mapper = session.getMapper(AsyncAuthorMapper.class);
+      CompletionException e = assertThrows(CompletionException.class, () -> mapper.selectAuthor(101).join());
+      assertTrue(e.getCause() instanceof DeadlineExceededException);
+    }
+  }
+
+  @Test
+  void shouldCompleteExceptionallyOnError() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      AsyncAuthorMapper mapper = session.getMapper(AsyncAuthorMapper.class);
+      // author 101 already exists
+      CompletableFuture<Integer> insert = mapper.insertAuthor(new Author(101, "jim", "******", "jim@apache.org", "bio", null));
+      CompletionException e = assertThrows(CompletionException.class, insert::join);
+      assertTrue(e.getCause() instanceof PersistenceException);
+    }
+  }
+
+}
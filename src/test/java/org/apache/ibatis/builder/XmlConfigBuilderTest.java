@@ -87,6 +87,11 @@ class XmlConfigBuilderTest {
       assertThat(config.getDefaultExecutorType()).isEqualTo(ExecutorType.SIMPLE);
       assertNull(config.getDefaultStatementTimeout());
       assertNull(config.getDefaultFetchSize());
+      assertThat(config.isAdaptiveFetchSize()).isFalse();
+      assertThat(config.getAdaptiveFetchSizeMin()).isEqualTo(10);
+      assertThat(config.getAdaptiveFetchSizeMax()).isEqualTo(1000);
+      assertThat(config.isUseCompiledRowMappers()).isFalse();
+      assertThat(config.isCacheResultSetLayouts()).isFalse();
       assertNull(config.getDefaultResultSetType());
       assertThat(config.isMapUnderscoreToCamelCase()).isFalse();
       assertThat(config.isSafeRowBoundsEnabled()).isFalse();
@@ -102,6 +107,17 @@ class XmlConfigBuilderTest {
       assertThat(config.getTypeHandlerRegistry().getTypeHandler(RoundingMode.class)).isInstanceOf(EnumTypeHandler.class);
       assertThat(config.isShrinkWhitespacesInSql()).isFalse();
       assertThat(config.getDefaultSqlProviderType()).isNull();
+      assertThat(config.getWarmUpConnections()).isEqualTo(0);
+      assertThat(config.getWarmUpStatements()).isEmpty();
+      assertThat(config.getBatchFlushStatementCount()).isEqualTo(0);
+      assertThat(config.getBatchFlushRowCount()).isEqualTo(0);
+      assertThat(config.getBatchFlushByteSize()).isEqualTo(0);
+      assertThat(config.isRetainBatchParameterObjects()).isTrue();
+      assertThat(config.isRetainFlushedBatchResults()).isTrue();
+      assertThat(config.isGroupBatchStatements()).isFalse();
+      assertThat(config.getMultiRowInsertParameterLimit()).isEqualTo(0);
+      assertThat(config.getLocalCacheMaxEntries()).isEqualTo(0);
+      assertThat(config.getLocalCacheMaxRows()).isEqualTo(0);
     }
   }
 
@@ -183,6 +199,11 @@ class XmlConfigBuilderTest {
       assertThat(config.getDefaultExecutorType()).isEqualTo(ExecutorType.BATCH);
       assertThat(config.getDefaultStatementTimeout()).isEqualTo(10);
       assertThat(config.getDefaultFetchSize()).isEqualTo(100);
+      assertThat(config.isAdaptiveFetchSize()).isTrue();
+      assertThat(config.getAdaptiveFetchSizeMin()).isEqualTo(50);
+      assertThat(config.getAdaptiveFetchSizeMax()).isEqualTo(5000);
+      assertThat(config.isUseCompiledRowMappers()).isTrue();
+      assertThat(config.isCacheResultSetLayouts()).isTrue();
       assertThat(config.getDefaultResultSetType()).isEqualTo(ResultSetType.SCROLL_INSENSITIVE);
       assertThat(config.isMapUnderscoreToCamelCase()).isTrue();
       assertThat(config.isSafeRowBoundsEnabled()).isTrue();
@@ -198,6 +219,17 @@ class XmlConfigBuilderTest {
       assertThat(config.getConfigurationFactory().getName()).isEqualTo(String.class.getName());
       assertThat(config.isShrinkWhitespacesInSql()).isTrue();
       assertThat(config.getDefaultSqlProviderType().getName()).isEqualTo(MySqlProvider.class.getName());
+      assertThat(config.getWarmUpConnections()).isEqualTo(2);
+      assertThat(config.getWarmUpStatements()).isEqualTo(new HashSet<>(Arrays.asList("selectBlog", "selectAuthor")));
+      assertThat(config.getBatchFlushStatementCount()).isEqualTo(10);
+      assertThat(config.getBatchFlushRowCount()).isEqualTo(1000);
+      assertThat(config.getBatchFlushByteSize()).isEqualTo(1048576);
+      assertThat(config.isRetainBatchParameterObjects()).isFalse();
+      assertThat(config.isRetainFlushedBatchResults()).isFalse();
+      assertThat(config.isGroupBatchStatements()).isTrue();
+      assertThat(config.getMultiRowInsertParameterLimit()).isEqualTo(2000);
+      assertThat(config.getLocalCacheMaxEntries()).isEqualTo(100);
+      assertThat(config.getLocalCacheMaxRows()).isEqualTo(10000);
 
       assertThat(config.getTypeAliasRegistry().getTypeAliases().get("blogauthor")).isEqualTo(Author.class);
       assertThat(config.getTypeAliasRegistry().getTypeAliases().get("blog")).isEqualTo(Blog.class);
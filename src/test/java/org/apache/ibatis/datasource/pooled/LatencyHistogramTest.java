@@ -0,0 +1,80 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void shouldReturnZeroWhenEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentile(99));
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getMean());
+  }
+
+  @Test
+  void shouldRecordSmallValuesExactly() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 10; i++) {
+      histogram.record(i);
+    }
+    assertEquals(10, histogram.getCount());
+    assertEquals(5, histogram.getPercentile(50));
+    assertEquals(10, histogram.getPercentile(100));
+    assertEquals(10, histogram.getMax());
+    assertEquals(5, histogram.getMean());
+  }
+
+  @Test
+  void shouldReportPercentilesWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 100_000; i++) {
+      histogram.record(i * 1000);
+    }
+    assertWithinPrecision(50_000_000, histogram.getPercentile(50));
+    assertWithinPrecision(99_000_000, histogram.getPercentile(99));
+    assertEquals(100_000_000, histogram.getMax());
+  }
+
+  @Test
+  void shouldMapEveryValueToABucketThatContainsIt() {
+    long[] values = { 0, 15, 16, 17, 31, 32, 33, 1000, 123_456_789, Long.MAX_VALUE };
+    for (long value : values) {
+      int index = LatencyHistogram.indexOf(value);
+      assertTrue(LatencyHistogram.upperBoundOf(index) >= value);
+      assertTrue(index == 0 || LatencyHistogram.upperBoundOf(index - 1) < value);
+    }
+  }
+
+  @Test
+  void shouldRecordNegativeValuesAsZero() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    assertEquals(1, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+  }
+
+  private void assertWithinPrecision(long expected, long actual) {
+    assertTrue(actual >= expected && actual <= expected + expected / LatencyHistogram.SUB_BUCKET_COUNT,
+        "expected about " + expected + " but was " + actual);
+  }
+
+}
@@ -15,7 +15,19 @@
  */
 package org.apache.ibatis.executor;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
 import org.junit.jupiter.api.Test;
 
 class BatchExecutorTest extends BaseExecutorTest {
@@ -24,6 +36,150 @@ class BatchExecutorTest extends BaseExecutorTest {
   void dummy() {
   }
 
+  @Test
+  void shouldFlushWhenRowThresholdIsReached() throws Exception {
+    config.setBatchFlushRowCount(2);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      for (int id = 1001; id <= 1003; id++) {
+        executor.update(insertStatement, new Author(id, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(2, results.get(0).getUpdateCounts().length);
+      assertEquals(2, results.get(0).getParameterObjects().size());
+      assertEquals(1, results.get(1).getUpdateCounts().length);
+      assertTrue(executor.flushStatements().isEmpty());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldKeepOnlyTotalsOfFlushedBatchesWhenNotRetained() throws Exception {
+    config.setBatchFlushRowCount(2);
+    config.setRetainFlushedBatchResults(false);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      for (int id = 1001; id <= 1005; id++) {
+        executor.update(insertStatement, new Author(id, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(2, results.size());
+      assertSame(insertStatement, results.get(0).getMappedStatement());
+      assertArrayEquals(new int[] { 4 }, results.get(0).getUpdateCounts());
+      assertTrue(results.get(0).getParameterObjects().isEmpty());
+      assertArrayEquals(new int[] { 1 }, results.get(1).getUpdateCounts());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldFlushWhenByteSizeThresholdIsReached() throws Exception {
+    config.setBatchFlushByteSize(1);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      executor.update(insertStatement, new Author(1001, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      executor.update(insertStatement, new Author(1002, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(1, results.get(0).getUpdateCounts().length);
+      assertEquals(1, results.get(1).getUpdateCounts().length);
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldDiscardAutoFlushedResultsOnRollback() throws Exception {
+    config.setBatchFlushStatementCount(1);
+    BatchExecutor executor = new BatchExecutor(config, new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      executor.update(insertStatement, new Author(1001, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      assertTrue(executor.flushStatements(true).isEmpty());
+      assertTrue(executor.flushStatements().isEmpty());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldReleaseParameterObjectsWhenNotRetained() throws Exception {
+    config.setRetainBatchParameterObjects(false);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      executor.update(insertStatement, new Author(1001, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      executor.update(insertStatement, new Author(1002, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(1, results.size());
+      assertEquals(2, results.get(0).getUpdateCounts().length);
+      assertTrue(results.get(0).getParameterObjects().isEmpty());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldGroupInterleavedStatements() throws Exception {
+    config.setGroupBatchStatements(true);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement updateStatement = ExecutorTestHelper.prepareUpdateAuthorMappedStatement(config);
+      for (int id = 1001; id <= 1003; id++) {
+        Author author = new Author(id, "someone", "******", "someone@apache.org", null, Section.NEWS);
+        executor.update(insertStatement, author);
+        author.setUsername("someone else");
+        executor.update(updateStatement, author);
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(2, results.size());
+      assertSame(insertStatement, results.get(0).getMappedStatement());
+      assertArrayEquals(new int[] { 1, 1, 1 }, results.get(0).getUpdateCounts());
+      assertSame(updateStatement, results.get(1).getMappedStatement());
+      assertArrayEquals(new int[] { 1, 1, 1 }, results.get(1).getUpdateCounts());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldRewriteBatchedInsertsIntoMultiRowInserts() throws Exception {
+    // six parameters per row, so two rows per statement
+    config.setMultiRowInsertParameterLimit(12);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement selectStatement = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      for (int id = 1001; id <= 1005; id++) {
+        executor.update(insertStatement, new Author(id, "someone" + id, "******", "someone@apache.org", null, Section.NEWS));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(1, results.size());
+      assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, results.get(0).getUpdateCounts());
+      assertEquals(5, results.get(0).getParameterObjects().size());
+      for (int id = 1001; id <= 1005; id++) {
+        List<Author> authors = executor.query(selectStatement, id, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        assertEquals("someone" + id, authors.get(0).getUsername());
+      }
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
   @Override
   protected Executor createExecutor(Transaction transaction) {
     return new BatchExecutor(config, transaction);
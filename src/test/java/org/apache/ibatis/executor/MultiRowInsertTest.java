@@ -0,0 +1,136 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMap;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MultiRowInsertTest {
+
+  private UnpooledDataSource dataSource;
+  private Configuration configuration;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    dataSource = new UnpooledDataSource("org.h2.Driver", "jdbc:h2:mem:multi_row_insert;DB_CLOSE_DELAY=-1", "sa", "");
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("create table author (id int auto_increment primary key, username varchar(32))");
+    }
+    configuration = new Configuration();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("drop table author");
+    }
+  }
+
+  @Test
+  void shouldAssignGeneratedKeysOfAllRows() throws Exception {
+    configuration.setMultiRowInsertParameterLimit(2);
+    MappedStatement insertStatement = prepareInsertStatement("insert into author (username) values (?)");
+    BatchExecutor executor = new BatchExecutor(configuration, new JdbcTransaction(dataSource, null, false));
+    try {
+      List<Author> authors = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        Author author = new Author();
+        author.setUsername("author" + i);
+        authors.add(author);
+        executor.update(insertStatement, author);
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(1, results.size());
+      assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, results.get(0).getUpdateCounts());
+      for (int i = 0; i < 5; i++) {
+        assertEquals(i + 1, authors.get(i).getId());
+      }
+      executor.commit(true);
+    } finally {
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldInsertTheValuesOfEachRowWhenTheParameterObjectIsReused() throws Exception {
+    configuration.setMultiRowInsertParameterLimit(2);
+    MappedStatement insertStatement = prepareInsertStatement("insert into author (username) values (?)");
+    BatchExecutor executor = new BatchExecutor(configuration, new JdbcTransaction(dataSource, null, false));
+    try {
+      Author author = new Author();
+      for (int i = 0; i < 3; i++) {
+        author.setUsername("author" + i);
+        executor.update(insertStatement, author);
+      }
+      executor.flushStatements();
+      executor.commit(true);
+    } finally {
+      executor.close(false);
+    }
+    List<String> usernames = new ArrayList<>();
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("select username from author order by id")) {
+      while (rs.next()) {
+        usernames.add(rs.getString(1));
+      }
+    }
+    assertEquals(Arrays.asList("author0", "author1", "author2"), usernames);
+  }
+
+  @Test
+  void shouldOnlyRewriteSingleRowInserts() {
+    MappedStatement insert = prepareInsertStatement("insert into author (username) values (?)");
+    assertNotNull(MultiRowInsert.of(insert, insert.getBoundSql(null), 100));
+    assertNull(MultiRowInsert.of(insert, insert.getBoundSql(null), 0));
+    MappedStatement insertSelect = prepareInsertStatement("insert into author (username) select username from author where username = ?");
+    assertNull(MultiRowInsert.of(insertSelect, insertSelect.getBoundSql(null), 100));
+    MappedStatement upsert = prepareInsertStatement("insert into author (username) values (?) on duplicate key update username = 'x'");
+    assertNull(MultiRowInsert.of(upsert, upsert.getBoundSql(null), 100));
+  }
+
+  private MappedStatement prepareInsertStatement(String sql) {
+    return new MappedStatement.Builder(configuration, "insertAuthor", new StaticSqlSource(configuration, sql), SqlCommandType.INSERT)
+        .parameterMap(new ParameterMap.Builder(configuration, "defaultParameterMap", Author.class,
+            Collections.singletonList(new ParameterMapping.Builder(configuration, "username",
+                configuration.getTypeHandlerRegistry().getTypeHandler(String.class)).build())).build())
+        .keyGenerator(Jdbc3KeyGenerator.INSTANCE).keyProperty("id").build();
+  }
+
+}
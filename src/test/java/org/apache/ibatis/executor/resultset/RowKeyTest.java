@@ -0,0 +1,76 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class RowKeyTest {
+
+  @Test
+  void shouldBeEqualForSameResultMapAndValues() {
+    RowKey key = new RowKey("blog", null, new Object[] { 1, "a", null });
+    RowKey other = new RowKey(new String("blog"), null, new Object[] { 1, "a", null });
+    assertEquals(key, other);
+    assertEquals(key.hashCode(), other.hashCode());
+  }
+
+  @Test
+  void shouldCompareArrayValuesByContent() {
+    assertEquals(new RowKey("blog", null, new Object[] { new byte[] { 1, 2 } }),
+        new RowKey("blog", null, new Object[] { new byte[] { 1, 2 } }));
+    assertNotEquals(new RowKey("blog", null, new Object[] { new byte[] { 1, 2 } }),
+        new RowKey("blog", null, new Object[] { new byte[] { 2, 1 } }));
+  }
+
+  @Test
+  void shouldDifferByResultMapValuesAndPositions() {
+    RowKey key = new RowKey("blog", null, new Object[] { 1, null });
+    assertNotEquals(key, new RowKey("post", null, new Object[] { 1, null }));
+    assertNotEquals(key, new RowKey("blog", null, new Object[] { 2, null }));
+    assertNotEquals(key, new RowKey("blog", null, new Object[] { null, 1 }));
+    assertNotEquals(key, new RowKey("blog", null, new Object[] { 1 }));
+  }
+
+  @Test
+  void shouldDifferByColumnPrefix() {
+    RowKey manager = new RowKey("employee", "MGR_", new Object[] { 1 });
+    assertEquals(manager, new RowKey("employee", new String("MGR_"), new Object[] { 1 }));
+    assertNotEquals(manager, new RowKey("employee", "MNT_", new Object[] { 1 }));
+    assertNotEquals(manager, new RowKey("employee", null, new Object[] { 1 }));
+  }
+
+  @Test
+  void shouldCombineWithParentKey() {
+    RowKey post = new RowKey("post", null, new Object[] { 1 });
+    RowKey blog = new RowKey("blog", null, new Object[] { 1 });
+    RowKey otherBlog = new RowKey("blog", null, new Object[] { 2 });
+    assertEquals(post.combine(blog), new RowKey("post", null, new Object[] { 1 }).combine(new RowKey("blog", null, new Object[] { 1 })));
+    assertNotEquals(post.combine(blog), post.combine(otherBlog));
+    assertNotEquals(post.combine(blog), post);
+  }
+
+  @Test
+  void shouldNotCombineNullKeys() {
+    RowKey key = new RowKey("blog", null, new Object[] { 1 });
+    assertSame(RowKey.NULL_ROW_KEY, key.combine(RowKey.NULL_ROW_KEY));
+    assertSame(RowKey.NULL_ROW_KEY, RowKey.NULL_ROW_KEY.combine(key));
+  }
+
+}
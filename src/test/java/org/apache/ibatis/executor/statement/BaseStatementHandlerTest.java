@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.executor.statement;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
@@ -23,10 +24,13 @@ import static org.mockito.Mockito.verifyZeroInteractions;
 
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.exceptions.DeadlineExceededException;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.Deadline;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -145,4 +149,63 @@ class BaseStatementHandlerTest {
         verify(statement).setQueryTimeout(10);
     }
 
+    @Test
+    void specifyQueryTimeoutAndDeadlineMinIsDeadline() throws SQLException {
+        mappedStatementBuilder.timeout(10);
+
+        BaseStatementHandler handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, null, null, null);
+        try (Deadline.Scope scope = Deadline.after(1500, TimeUnit.MILLISECONDS).bind()) {
+            handler.setStatementTimeout(statement, 5);
+        }
+
+        verify(statement).setQueryTimeout(10);
+        verify(statement).setQueryTimeout(2); // apply the remaining time rounded up
+    }
+
+    @Test
+    void specifyTransactionTimeoutAndDeadlineMinIsTransactionTimeout() throws SQLException {
+        BaseStatementHandler handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, null, null, null);
+        try (Deadline.Scope scope = Deadline.after(1, TimeUnit.MINUTES).bind()) {
+            handler.setStatementTimeout(statement, 5);
+        }
+
+        verify(statement).setQueryTimeout(5);
+    }
+
+    @Test
+    void specifyPassedDeadline() {
+        BaseStatementHandler handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, null, null, null);
+        try (Deadline.Scope scope = Deadline.after(-1, TimeUnit.MILLISECONDS).bind()) {
+            assertThrows(DeadlineExceededException.class, () -> handler.setStatementTimeout(statement, null));
+        }
+
+        verifyZeroInteractions(statement);
+    }
+
+    @Test
+    void specifyAdaptiveFetchSize() throws SQLException {
+        doReturn(100).when(configuration).getDefaultFetchSize();
+        configuration.setAdaptiveFetchSize(true);
+        BaseStatementHandler handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, null, null, null);
+
+        handler.setFetchSize(statement);
+        verify(statement).setFetchSize(100); // apply the default fetch size until an execution was recorded
+
+        configuration.getFetchSizeStatistics().recordRowCount("id", 42);
+        handler.setFetchSize(statement);
+        verify(statement).setFetchSize(43); // apply the learned fetch size
+    }
+
+    @Test
+    void specifyMappedStatementFetchSizeAndAdaptiveFetchSize() throws SQLException {
+        configuration.setAdaptiveFetchSize(true);
+        configuration.getFetchSizeStatistics().recordRowCount("id", 42);
+        mappedStatementBuilder.fetchSize(500);
+        BaseStatementHandler handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, null, null, null);
+
+        handler.setFetchSize(statement);
+        verify(statement).setFetchSize(500); // apply a mapped statement fetch size
+        verify(statement, never()).setFetchSize(43);
+    }
+
 }
@@ -0,0 +1,72 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class FetchSizeStatisticsTest {
+
+  private final FetchSizeStatistics statistics = new FetchSizeStatistics();
+
+  @Test
+  void shouldNotAdviseUnknownStatements() {
+    assertNull(statistics.getFetchSize("unknown", 10, 1000));
+  }
+
+  @Test
+  void shouldAdviseNinetiethPercentilePlusOne() {
+    for (int rows = 1; rows <= 20; rows++) {
+      statistics.recordRowCount("select", rows * 10);
+    }
+    assertEquals(181, statistics.getFetchSize("select", 1, 1000));
+  }
+
+  @Test
+  void shouldIgnoreRareLargeResults() {
+    for (int i = 0; i < 19; i++) {
+      statistics.recordRowCount("select", 30);
+    }
+    statistics.recordRowCount("select", 100000);
+    assertEquals(31, statistics.getFetchSize("select", 1, 1000));
+  }
+
+  @Test
+  void shouldOnlyRememberRecentExecutions() {
+    for (int i = 0; i < FetchSizeStatistics.HISTORY_SIZE; i++) {
+      statistics.recordRowCount("select", 500);
+    }
+    for (int i = 0; i < FetchSizeStatistics.HISTORY_SIZE; i++) {
+      statistics.recordRowCount("select", 5);
+    }
+    assertEquals(6, statistics.getFetchSize("select", 1, 1000));
+  }
+
+  @Test
+  void shouldKeepFetchSizeWithinBounds() {
+    statistics.recordRowCount("small", 0);
+    statistics.recordRowCount("large", 1000000);
+
+    Map<String, Integer> fetchSizes = statistics.getFetchSizes(10, 1000);
+    assertEquals(2, fetchSizes.size());
+    assertEquals(10, fetchSizes.get("small"));
+    assertEquals(1000, fetchSizes.get("large"));
+  }
+
+}
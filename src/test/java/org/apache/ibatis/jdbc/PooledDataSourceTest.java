@@ -17,16 +17,32 @@ package org.apache.ibatis.jdbc;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PoolMetricsTracker;
+import org.apache.ibatis.datasource.pooled.PoolState;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.jupiter.api.Disabled;
@@ -75,6 +91,607 @@ class PooledDataSourceTest extends BaseDataTest {
     }
   }
 
+  @Test
+  void shouldProperlyMaintainConnectionBagOf3ActiveAnd2IdleConnections() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolConnectionBagEnabled(true);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolPingConnectionsNotUsedFor(1);
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT * FROM PRODUCT");
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertNotNull(ds.getPoolState().toString());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldInvalidateConnectionReturnedToConnectionBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConnectionBagEnabled(true);
+      Connection c1 = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(c1);
+      c1.close();
+      assertThrows(SQLException.class, c1::getAutoCommit);
+      // the same thread gets its last used connection back
+      Connection c2 = ds.getConnection();
+      assertSame(real, PooledDataSource.unwrapConnection(c2));
+      c2.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldHandOffConnectionToWaitingThreadInConnectionBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      ds.setPoolConnectionBagEnabled(true);
+      ds.setPoolMaximumActiveConnections(1);
+      Connection c1 = ds.getConnection();
+      CountDownLatch started = new CountDownLatch(1);
+      Future<Connection> waiter = executor.submit(() -> {
+        started.countDown();
+        return ds.getConnection();
+      });
+      started.await();
+      Thread.sleep(100);
+      assertFalse(waiter.isDone());
+      Connection real = PooledDataSource.unwrapConnection(c1);
+      c1.close();
+      Connection c2 = waiter.get(5, TimeUnit.SECONDS);
+      assertSame(real, PooledDataSource.unwrapConnection(c2));
+      assertEquals(1, ds.getPoolState().getHadToWaitCount());
+      c2.close();
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldWakeUpWaitersWhenConnectionIsDiscardedFromConnectionBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      ds.setPoolConnectionBagEnabled(true);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolTimeToWait(20000);
+      ds.setPoolMaximumLifetime(200);
+      Connection c1 = ds.getConnection();
+      CountDownLatch started = new CountDownLatch(1);
+      Future<Connection> waiter = executor.submit(() -> {
+        started.countDown();
+        return ds.getConnection();
+      });
+      started.await();
+      Thread.sleep(300);
+      assertFalse(waiter.isDone());
+      Connection real = PooledDataSource.unwrapConnection(c1);
+      // the expired connection is closed, its slot goes to the waiting thread
+      c1.close();
+      assertTrue(real.isClosed());
+      Connection c2 = waiter.get(5, TimeUnit.SECONDS);
+      assertNotSame(real, PooledDataSource.unwrapConnection(c2));
+
+      CompletableFuture<Connection> future = ds.getConnectionAsync(Duration.ofSeconds(30));
+      Thread.sleep(300);
+      assertFalse(future.isDone());
+      c2.close();
+      future.get(5, TimeUnit.SECONDS).close();
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldKeepAccurateStatisticsUnderConcurrentCheckoutsInConnectionBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    int threads = 8;
+    int iterations = 200;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      ds.setPoolConnectionBagEnabled(true);
+      ds.setPoolMaximumActiveConnections(4);
+      ds.setPoolMaximumIdleConnections(4);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < iterations; j++) {
+            try (Connection c = ds.getConnection()) {
+              executeQuery(c, "SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      assertEquals(threads * iterations, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 4);
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldKeepMinimumIdleConnectionsInBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMinimumIdleConnections(3);
+      ds.setPoolHousekeepingInterval(20);
+      ds.getConnection().close();
+      waitUntil(() -> ds.getPoolState().getIdleConnectionCount() == 3);
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      ds.setPoolHousekeepingInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldKeepMinimumIdleConnectionsInBackgroundInConnectionBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConnectionBagEnabled(true);
+      ds.setPoolMinimumIdleConnections(3);
+      ds.setPoolHousekeepingInterval(20);
+      ds.getConnection().close();
+      waitUntil(() -> ds.getPoolState().getIdleConnectionCount() == 3);
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      ds.setPoolHousekeepingInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldEvictConnectionsIdleForTooLong() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumIdleTime(50);
+      ds.setPoolHousekeepingInterval(20);
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(3, ds.getPoolState().getIdleConnectionCount());
+      waitUntil(() -> ds.getPoolState().getIdleConnectionCount() == 0);
+    } finally {
+      ds.setPoolHousekeepingInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRetireConnectionsOlderThanMaximumLifetime() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConnectionBagEnabled(true);
+      ds.setPoolMaximumLifetime(50);
+      Connection c1 = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(c1);
+      Thread.sleep(100);
+      c1.close();
+      assertTrue(real.isClosed());
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldDiscardBrokenIdleConnectionsInBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+      ds.setPoolPingConnectionsNotUsedFor(10);
+      Connection c1 = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(c1);
+      c1.close();
+      real.close();
+      ds.setPoolHousekeepingInterval(20);
+      ds.getConnection().close();
+      waitUntil(() -> ds.getPoolState().getBadConnectionCount() == 1);
+    } finally {
+      ds.setPoolHousekeepingInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldHandOffConnectionsToWaitingThreadsInArrivalOrder() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      Connection c1 = ds.getConnection();
+      Future<Connection> first = executor.submit(() -> ds.getConnection());
+      Thread.sleep(100);
+      Future<Connection> second = executor.submit(() -> ds.getConnection());
+      Thread.sleep(100);
+      Connection real = PooledDataSource.unwrapConnection(c1);
+      c1.close();
+      Connection c2 = first.get(5, TimeUnit.SECONDS);
+      assertSame(real, PooledDataSource.unwrapConnection(c2));
+      Thread.sleep(100);
+      assertFalse(second.isDone());
+      c2.close();
+      Connection c3 = second.get(5, TimeUnit.SECONDS);
+      assertSame(real, PooledDataSource.unwrapConnection(c3));
+      c3.close();
+      assertEquals(2, ds.getPoolState().getHadToWaitCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCompleteAsyncRequestWhenConnectionIsReturned() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      Connection c1 = ds.getConnection();
+      CompletableFuture<Connection> future = ds.getConnectionAsync(Duration.ofSeconds(5));
+      assertFalse(future.isDone());
+      Connection real = PooledDataSource.unwrapConnection(c1);
+      c1.close();
+      Connection c2 = future.get(5, TimeUnit.SECONDS);
+      assertSame(real, PooledDataSource.unwrapConnection(c2));
+      executeQuery(c2, "SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+      c2.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCompleteAsyncRequestWhenConnectionIsReturnedToConnectionBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConnectionBagEnabled(true);
+      ds.setPoolMaximumActiveConnections(1);
+      Connection c1 = ds.getConnection();
+      CompletableFuture<Connection> future = ds.getConnectionAsync(Duration.ofSeconds(5));
+      assertFalse(future.isDone());
+      Connection real = PooledDataSource.unwrapConnection(c1);
+      c1.close();
+      Connection c2 = future.get(5, TimeUnit.SECONDS);
+      assertSame(real, PooledDataSource.unwrapConnection(c2));
+      c2.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCompleteAsyncRequestsOnAsyncExecutor() throws Exception {
+    assertCompletesAsyncRequestsOnAsyncExecutor(false);
+    assertCompletesAsyncRequestsOnAsyncExecutor(true);
+  }
+
+  private void assertCompletesAsyncRequestsOnAsyncExecutor(boolean connectionBagEnabled) throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "pool-async-test"));
+    try {
+      ds.setPoolConnectionBagEnabled(connectionBagEnabled);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolAsyncExecutor(executor);
+      Connection c1 = ds.getConnection();
+      CompletableFuture<Connection> future = ds.getConnectionAsync(Duration.ofSeconds(5));
+      CompletableFuture<String> completingThread = future.thenApply(c -> Thread.currentThread().getName());
+      c1.close();
+      assertEquals("pool-async-test", completingThread.get(5, TimeUnit.SECONDS));
+
+      CompletableFuture<String> timingOutThread = ds.getConnectionAsync(Duration.ofMillis(100))
+          .handle((c, e) -> Thread.currentThread().getName());
+      assertEquals("pool-async-test", timingOutThread.get(5, TimeUnit.SECONDS));
+      future.get().close();
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldTimeOutAsyncRequest() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      Connection c1 = ds.getConnection();
+      CompletableFuture<Connection> future = ds.getConnectionAsync(Duration.ofMillis(100));
+      ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+      assertTrue(e.getCause() instanceof SQLTimeoutException);
+      c1.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRecordLatencyHistogramsAndNotifyTracker() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    AtomicInteger waits = new AtomicInteger();
+    AtomicInteger checkouts = new AtomicInteger();
+    AtomicInteger creations = new AtomicInteger();
+    try {
+      ds.setPoolMetricsTracker(new PoolMetricsTracker() {
+        @Override
+        public void recordWaitTime(long nanos) {
+          waits.incrementAndGet();
+        }
+
+        @Override
+        public void recordCheckoutTime(long nanos) {
+          checkouts.incrementAndGet();
+        }
+
+        @Override
+        public void recordConnectionCreationTime(long nanos) {
+          creations.incrementAndGet();
+        }
+      });
+      for (int i = 0; i < 5; i++) {
+        Connection c = ds.getConnection();
+        Thread.sleep(2);
+        c.close();
+      }
+      PoolState state = ds.getPoolState();
+      assertEquals(5, state.getWaitTimeHistogram().getCount());
+      assertEquals(5, state.getCheckoutTimeHistogram().getCount());
+      assertEquals(1, state.getConnectionCreationTimeHistogram().getCount());
+      assertTrue(state.getCheckoutTime50thPercentile() >= 2);
+      assertTrue(state.getConnectionCreationTimeMax() > 0);
+      assertEquals(5, waits.get());
+      assertEquals(5, checkouts.get());
+      assertEquals(1, creations.get());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReadGaugesWithoutWaitingForThePoolLock() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    AtomicInteger gaugeReads = new AtomicInteger();
+    try {
+      PoolState state = ds.getPoolState();
+      // reads the gauges from another thread while the tracker is notified
+      ds.setPoolMetricsTracker(new PoolMetricsTracker() {
+        @Override
+        public void recordWaitTime(long nanos) {
+          readGauges();
+        }
+
+        @Override
+        public void recordCheckoutTime(long nanos) {
+          readGauges();
+        }
+
+        private void readGauges() {
+          try {
+            executor.submit(() -> {
+              state.getActiveConnectionCount();
+              state.getIdleConnectionCount();
+              state.getPendingRequestCount();
+              state.getRequestCount();
+              state.getHadToWaitCount();
+            }).get(5, TimeUnit.SECONDS);
+            gaugeReads.incrementAndGet();
+          } catch (Exception e) {
+            fail(e);
+          }
+        }
+      });
+      Connection c = ds.getConnection();
+      c.close();
+      assertEquals(2, gaugeReads.get());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldValidateWithIsValidAndTrustRecentlyValidatedConnections() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    AtomicInteger validations = new AtomicInteger();
+    try {
+      // the default ping query is not valid SQL, so the connection would be discarded if it were executed
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingUseIsValid(true);
+      ds.setPoolPingTimeout(1);
+      ds.setPoolPingSkipWindow(60000);
+      ds.setPoolMetricsTracker(new PoolMetricsTracker() {
+        @Override
+        public void recordValidationTime(long nanos) {
+          validations.incrementAndGet();
+        }
+      });
+      Connection c = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(c);
+      for (int i = 0; i < 3; i++) {
+        Thread.sleep(2);
+        c.close();
+        c = ds.getConnection();
+      }
+      assertSame(real, PooledDataSource.unwrapConnection(c));
+      c.close();
+      PoolState state = ds.getPoolState();
+      assertEquals(1, state.getValidationTimeHistogram().getCount());
+      assertEquals(1, validations.get());
+      assertEquals(0, state.getBadConnectionCount());
+
+      ds.setPoolPingSkipWindow(0);
+      for (int i = 0; i < 3; i++) {
+        c = ds.getConnection();
+        Thread.sleep(2);
+        c.close();
+      }
+      assertTrue(state.getValidationTimeHistogram().getCount() > 3);
+      assertEquals(0, state.getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldExposePoolStateThroughJmx() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=\"jpetstore\"");
+    try {
+      ds.setPoolJmxName("jpetstore");
+      Connection c = ds.getConnection();
+      assertEquals(1, server.getAttribute(name, "ActiveConnectionCount"));
+      assertEquals(0, server.getAttribute(name, "PendingRequestCount"));
+      c.close();
+      assertEquals(1, server.getAttribute(name, "IdleConnectionCount"));
+      assertEquals(1L, server.getAttribute(name, "RequestCount"));
+      assertTrue((Double) server.getAttribute(name, "WaitTime99thPercentile") >= 0);
+    } finally {
+      ds.setPoolJmxName(null);
+      ds.forceCloseAll();
+    }
+    assertFalse(server.isRegistered(name));
+  }
+
+  @Test
+  void shouldReusePreparedStatementsAcrossCheckouts() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolPreparedStatementCacheSize(2);
+      ds.setPoolMaximumActiveConnections(1);
+      String sql = "SELECT * FROM PRODUCT WHERE PRODUCTID = ?";
+      Connection c1 = ds.getConnection();
+      PreparedStatement ps1 = c1.prepareStatement(sql);
+      PreparedStatement real = ps1.unwrap(PreparedStatement.class);
+      ps1.setMaxRows(1);
+      ps1.close();
+      assertThrows(SQLException.class, () -> ps1.setString(1, "FI-SW-01"));
+      c1.close();
+
+      Connection c2 = ds.getConnection();
+      PreparedStatement ps2 = c2.prepareStatement(sql);
+      assertSame(real, ps2.unwrap(PreparedStatement.class));
+      assertEquals(0, ps2.getMaxRows());
+      // a statement that is still in use is not handed out twice
+      PreparedStatement ps3 = c2.prepareStatement(sql);
+      assertNotSame(real, ps3.unwrap(PreparedStatement.class));
+      ps3.close();
+      ps2.setString(1, "FI-SW-01");
+      ps2.executeQuery().close();
+      c2.close();
+
+      PoolState state = ds.getPoolState();
+      assertEquals(1, state.getStatementCacheHitCount());
+      assertEquals(2, state.getStatementCacheMissCount());
+      assertEquals(0, state.getStatementCacheEvictionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedPreparedStatement() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConnectionBagEnabled(true);
+      ds.setPoolPreparedStatementCacheSize(2);
+      Connection c = ds.getConnection();
+      PreparedStatement first = c.prepareStatement("SELECT * FROM PRODUCT");
+      PreparedStatement real = first.unwrap(PreparedStatement.class);
+      first.close();
+      c.prepareStatement("SELECT * FROM CATEGORY").close();
+      c.prepareStatement("SELECT * FROM ITEM").close();
+      assertTrue(real.isClosed());
+      c.close();
+
+      c = ds.getConnection();
+      c.prepareStatement("SELECT * FROM ITEM").close();
+      c.close();
+      PoolState state = ds.getPoolState();
+      assertEquals(1, state.getStatementCacheHitCount());
+      assertEquals(3, state.getStatementCacheMissCount());
+      assertEquals(1, state.getStatementCacheEvictionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCloseCachedStatementsOfClaimedOverdueConnection() throws Exception {
+    assertEquals(2, countClosedStatementsOfClaimedOverdueConnection(false));
+    assertEquals(2, countClosedStatementsOfClaimedOverdueConnection(true));
+  }
+
+  private int countClosedStatementsOfClaimedOverdueConnection(boolean connectionBagEnabled) throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConnectionBagEnabled(connectionBagEnabled);
+      ds.setPoolPreparedStatementCacheSize(2);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(50);
+      Connection overdue = ds.getConnection();
+      Connection realConnection = overdue.unwrap(Connection.class);
+      List<PreparedStatement> statements = new ArrayList<>();
+      for (String sql : new String[] { "SELECT * FROM PRODUCT", "SELECT * FROM CATEGORY" }) {
+        PreparedStatement ps = overdue.prepareStatement(sql);
+        statements.add(ps.unwrap(PreparedStatement.class));
+        ps.close();
+      }
+      Thread.sleep(100);
+
+      Connection c = ds.getConnection();
+      assertSame(realConnection, c.unwrap(Connection.class));
+      int closed = 0;
+      for (PreparedStatement statement : statements) {
+        if (statement.isClosed()) {
+          closed++;
+        }
+      }
+      c.close();
+      return closed;
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
   @Test
   void shouldNotFailCallingToStringOverAnInvalidConnection() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
@@ -136,8 +753,20 @@ class PooledDataSourceTest extends BaseDataTest {
     con.close();
   }
 
+  private void waitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the housekeeper");
+      Thread.sleep(10);
+    }
+  }
+
   private void executeQuery(Connection con) throws SQLException {
-    try (PreparedStatement st = con.prepareStatement("select 1");
+    executeQuery(con, "select 1");
+  }
+
+  private void executeQuery(Connection con, String sql) throws SQLException {
+    try (PreparedStatement st = con.prepareStatement(sql);
          ResultSet rs = st.executeQuery()) {
       while (rs.next()) {
         assertEquals(1, rs.getInt(1));
@@ -0,0 +1,135 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BulkWriterTest extends BaseDataTest {
+
+  private static final String INSERT_AUTHOR = "org.apache.ibatis.domain.blog.mappers.AuthorMapper.insertAuthor";
+
+  private PooledDataSource dataSource;
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    createBlogDataSource();
+    dataSource = createPooledDataSource(BLOG_PROPERTIES);
+    Configuration configuration;
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/builder/MapperConfig.xml")) {
+      configuration = new XMLConfigBuilder(reader).parse();
+    }
+    configuration.setEnvironment(new Environment("bulk", new JdbcTransactionFactory(), dataSource));
+    configuration.setBatchFlushRowCount(10);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  @AfterEach
+  void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  @Test
+  void shouldWriteAndCommitAllPartitions() throws Exception {
+    BulkWriteResult result = new BulkWriter(sqlSessionFactory, 4).write(INSERT_AUTHOR, authors(1000, 100, -1));
+
+    assertEquals(4, result.getPartitions().size());
+    assertTrue(result.getFailures().isEmpty());
+    assertEquals(100, result.getCommittedCount());
+    assertEquals(100, result.getBatchResults().stream().mapToInt(r -> r.getUpdateCounts().length).sum());
+    assertEquals(100, countAuthors(1000, 1099));
+  }
+
+  @Test
+  void shouldRollBackOnlyTheFailedPartition() throws Exception {
+    BulkWriteResult result = new BulkWriter(sqlSessionFactory, 4).write(INSERT_AUTHOR, authors(1000, 100, 1050));
+
+    assertEquals(1, result.getFailures().size());
+    assertEquals(3, result.getPartitions().stream().filter(BulkWriteResult.Partition::isCommitted).count());
+    assertTrue(result.getCommittedCount() < 100);
+    assertEquals(100, result.getCommittedCount() + result.getRolledBackCount());
+    assertEquals(result.getCommittedCount(), countAuthors(1000, 1099));
+  }
+
+  @Test
+  void shouldRollBackAllPartitionsWhenTheParametersFail() throws Exception {
+    List<Author> authors = authors(1000, 100, -1);
+    Iterable<Author> parameters = () -> new Iterator<Author>() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return true;
+      }
+
+      @Override
+      public Author next() {
+        if (index == 50) {
+          throw new IllegalStateException("input failed");
+        }
+        return authors.get(index++);
+      }
+    };
+
+    IllegalStateException e = assertThrows(IllegalStateException.class,
+        () -> new BulkWriter(sqlSessionFactory, 4).write(INSERT_AUTHOR, parameters));
+    assertEquals("input failed", e.getMessage());
+    long deadline = System.currentTimeMillis() + 5000;
+    while (dataSource.getPoolState().getActiveConnectionCount() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+    assertEquals(0, countAuthors(1000, 1099));
+  }
+
+  private static List<Author> authors(int firstId, int count, int invalidId) {
+    List<Author> authors = new ArrayList<>();
+    for (int id = firstId; id < firstId + count; id++) {
+      // a null username cannot be inserted
+      authors.add(new Author(id, id == invalidId ? null : "author" + id, "******", "author@apache.org", "bio", null));
+    }
+    return authors;
+  }
+
+  private long countAuthors(int fromId, int toId) throws SQLException {
+    try (SqlSession session = sqlSessionFactory.openSession();
+        Statement statement = session.getConnection().createStatement();
+        ResultSet rs = statement.executeQuery("select count(*) from author where id between " + fromId + " and " + toId)) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+
+}
@@ -0,0 +1,156 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.datasource.pooled.PoolState;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConnectionWarmUpTest extends BaseDataTest {
+
+  private static final String SELECT_AUTHOR = "org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectAuthor";
+
+  private PooledDataSource dataSource;
+  private Configuration configuration;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    createBlogDataSource();
+    dataSource = createPooledDataSource(BLOG_PROPERTIES);
+    dataSource.setPoolPreparedStatementCacheSize(10);
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/builder/MapperConfig.xml")) {
+      configuration = new XMLConfigBuilder(reader).parse();
+    }
+    configuration.setEnvironment(new Environment("warm-up", new JdbcTransactionFactory(), dataSource));
+  }
+
+  @AfterEach
+  void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  @Test
+  void shouldOpenConnectionsAndPrepareStatements() {
+    configuration.setWarmUpConnections(3);
+    configuration.setWarmUpStatements(new HashSet<>(Collections.singletonList(SELECT_AUTHOR)));
+    SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+    WarmUpReport report = configuration.getWarmUpReport();
+    assertEquals(3, report.getConnectionCount());
+    assertEquals(3, report.getPreparedStatementCount());
+    assertTrue(report.getFailures().isEmpty());
+    PoolState state = dataSource.getPoolState();
+    assertEquals(3, state.getIdleConnectionCount());
+    assertEquals(3, state.getStatementCacheMissCount());
+
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Author author = session.selectOne(SELECT_AUTHOR, 101);
+      assertEquals(101, author.getId());
+    }
+    assertEquals(1, state.getStatementCacheHitCount());
+  }
+
+  @Test
+  void shouldPrepareAllStaticStatements() {
+    configuration.setWarmUpConnections(2);
+    configuration.setWarmUpStatements(new HashSet<>(Collections.singletonList(ConnectionWarmUp.ALL_STATIC_STATEMENTS)));
+    new SqlSessionFactoryBuilder().build(configuration);
+
+    WarmUpReport report = configuration.getWarmUpReport();
+    assertEquals(2, report.getConnectionCount());
+    assertTrue(report.getPreparedStatementCount() > 2);
+    assertEquals(0, report.getPreparedStatementCount() % 2);
+  }
+
+  @Test
+  void shouldReportFailuresAndKeepWarmingUp() {
+    configuration.setWarmUpConnections(2);
+    configuration.setWarmUpStatements(new HashSet<>(Arrays.asList(SELECT_AUTHOR, "unknownStatement")));
+    new SqlSessionFactoryBuilder().build(configuration);
+
+    WarmUpReport report = configuration.getWarmUpReport();
+    assertEquals(2, report.getConnectionCount());
+    assertEquals(2, report.getPreparedStatementCount());
+    assertEquals(1, report.getFailures().size());
+    assertTrue(report.getFailures().get(0).getMessage().contains("unknownStatement"));
+  }
+
+  @Test
+  void shouldSkipStatementsThatCannotBeCached() {
+    configuration.addMappedStatement(new MappedStatement.Builder(configuration, "insertAuthorWithGeneratedKey",
+        new StaticSqlSource(configuration, "insert into author (username) values ('warm-up')"), SqlCommandType.INSERT)
+        .keyGenerator(Jdbc3KeyGenerator.INSTANCE).build());
+    configuration.addMappedStatement(new MappedStatement.Builder(configuration, "callAuthorProcedure",
+        new StaticSqlSource(configuration, "{call author_procedure()}"), SqlCommandType.SELECT)
+        .statementType(StatementType.CALLABLE).build());
+    configuration.setWarmUpConnections(2);
+    configuration.setWarmUpStatements(
+        new HashSet<>(Arrays.asList(SELECT_AUTHOR, "insertAuthorWithGeneratedKey", "callAuthorProcedure")));
+    new SqlSessionFactoryBuilder().build(configuration);
+
+    WarmUpReport report = configuration.getWarmUpReport();
+    assertEquals(2, report.getPreparedStatementCount());
+    assertEquals(new HashSet<>(Arrays.asList("insertAuthorWithGeneratedKey", "callAuthorProcedure")),
+        new HashSet<>(report.getSkippedStatements()));
+    assertTrue(report.getFailures().isEmpty());
+    assertEquals(2, dataSource.getPoolState().getStatementCacheMissCount());
+  }
+
+  @Test
+  void shouldNotWarmUpMoreConnectionsThanThePoolAllows() {
+    dataSource.setPoolMaximumActiveConnections(2);
+    dataSource.setPoolTimeToWait(60000);
+    configuration.setWarmUpConnections(5);
+    configuration.setWarmUpStatements(new HashSet<>(Collections.singletonList(SELECT_AUTHOR)));
+    long start = System.currentTimeMillis();
+    new SqlSessionFactoryBuilder().build(configuration);
+
+    assertTrue(System.currentTimeMillis() - start < 30000);
+    WarmUpReport report = configuration.getWarmUpReport();
+    assertEquals(2, report.getConnectionCount());
+    assertTrue(report.getFailures().isEmpty());
+    assertEquals(2, dataSource.getPoolState().getIdleConnectionCount());
+  }
+
+  @Test
+  void shouldNotWarmUpByDefault() {
+    new SqlSessionFactoryBuilder().build(configuration);
+
+    assertNull(configuration.getWarmUpReport());
+    assertEquals(0, dataSource.getPoolState().getIdleConnectionCount());
+  }
+
+}
@@ -0,0 +1,114 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.adaptive_fetch_size;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveFetchSizeTest {
+
+  private static final String GET_ITEMS = "org.apache.ibatis.submitted.adaptive_fetch_size.Mapper.getItems";
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/adaptive_fetch_size/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/adaptive_fetch_size/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void forgetFetchSizes() {
+    sqlSessionFactory.getConfiguration().getFetchSizeStatistics().clear();
+  }
+
+  @Test
+  void shouldLearnFetchSizeFromRowCounts() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(20, mapper.getItems(20).size());
+      assertEquals(500, FetchSizeRecorder.lastFetchSize);
+
+      sqlSession.clearCache();
+      mapper.getItems(20);
+      assertEquals(21, FetchSizeRecorder.lastFetchSize);
+    }
+    assertEquals(21, sqlSessionFactory.getConfiguration().getAdaptiveFetchSize(GET_ITEMS));
+  }
+
+  @Test
+  void shouldApplyMinimumFetchSize() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getItems(1);
+      sqlSession.clearCache();
+      mapper.getItems(1);
+      assertEquals(5, FetchSizeRecorder.lastFetchSize);
+    }
+  }
+
+  @Test
+  void shouldCountRowsRatherThanNestedResultObjects() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Category> categories = mapper.getCategories();
+      assertEquals(4, categories.size());
+      assertEquals(10, categories.get(0).getItems().size());
+    }
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    assertEquals(41, configuration.getAdaptiveFetchSize("org.apache.ibatis.submitted.adaptive_fetch_size.Mapper.getCategories"));
+  }
+
+  @Test
+  void shouldPreferFetchSizeOfStatement() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getItemsWithFetchSize(30);
+      sqlSession.clearCache();
+      mapper.getItemsWithFetchSize(30);
+      assertEquals(7, FetchSizeRecorder.lastFetchSize);
+    }
+  }
+
+  @Test
+  void shouldNotLearnWhenDisabled() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setAdaptiveFetchSize(false);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getItems(20);
+      assertTrue(configuration.getAdaptiveFetchSizes().isEmpty());
+      assertNull(configuration.getAdaptiveFetchSize(GET_ITEMS));
+    } finally {
+      configuration.setAdaptiveFetchSize(true);
+    }
+  }
+
+}
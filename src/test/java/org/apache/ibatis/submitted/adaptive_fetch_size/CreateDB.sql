@@ -0,0 +1,75 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table item if exists;
+drop table category if exists;
+
+create table category (
+  id int,
+  name varchar(20)
+);
+
+create table item (
+  id int,
+  name varchar(20),
+  category_id int
+);
+
+insert into category (id, name) values(1, 'Category1');
+insert into category (id, name) values(2, 'Category2');
+insert into category (id, name) values(3, 'Category3');
+insert into category (id, name) values(4, 'Category4');
+
+insert into item (id, name, category_id) values(1, 'Item1', 1);
+insert into item (id, name, category_id) values(2, 'Item2', 2);
+insert into item (id, name, category_id) values(3, 'Item3', 3);
+insert into item (id, name, category_id) values(4, 'Item4', 4);
+insert into item (id, name, category_id) values(5, 'Item5', 1);
+insert into item (id, name, category_id) values(6, 'Item6', 2);
+insert into item (id, name, category_id) values(7, 'Item7', 3);
+insert into item (id, name, category_id) values(8, 'Item8', 4);
+insert into item (id, name, category_id) values(9, 'Item9', 1);
+insert into item (id, name, category_id) values(10, 'Item10', 2);
+insert into item (id, name, category_id) values(11, 'Item11', 3);
+insert into item (id, name, category_id) values(12, 'Item12', 4);
+insert into item (id, name, category_id) values(13, 'Item13', 1);
+insert into item (id, name, category_id) values(14, 'Item14', 2);
+insert into item (id, name, category_id) values(15, 'Item15', 3);
+insert into item (id, name, category_id) values(16, 'Item16', 4);
+insert into item (id, name, category_id) values(17, 'Item17', 1);
+insert into item (id, name, category_id) values(18, 'Item18', 2);
+insert into item (id, name, category_id) values(19, 'Item19', 3);
+insert into item (id, name, category_id) values(20, 'Item20', 4);
+insert into item (id, name, category_id) values(21, 'Item21', 1);
+insert into item (id, name, category_id) values(22, 'Item22', 2);
+insert into item (id, name, category_id) values(23, 'Item23', 3);
+insert into item (id, name, category_id) values(24, 'Item24', 4);
+insert into item (id, name, category_id) values(25, 'Item25', 1);
+insert into item (id, name, category_id) values(26, 'Item26', 2);
+insert into item (id, name, category_id) values(27, 'Item27', 3);
+insert into item (id, name, category_id) values(28, 'Item28', 4);
+insert into item (id, name, category_id) values(29, 'Item29', 1);
+insert into item (id, name, category_id) values(30, 'Item30', 2);
+insert into item (id, name, category_id) values(31, 'Item31', 3);
+insert into item (id, name, category_id) values(32, 'Item32', 4);
+insert into item (id, name, category_id) values(33, 'Item33', 1);
+insert into item (id, name, category_id) values(34, 'Item34', 2);
+insert into item (id, name, category_id) values(35, 'Item35', 3);
+insert into item (id, name, category_id) values(36, 'Item36', 4);
+insert into item (id, name, category_id) values(37, 'Item37', 1);
+insert into item (id, name, category_id) values(38, 'Item38', 2);
+insert into item (id, name, category_id) values(39, 'Item39', 3);
+insert into item (id, name, category_id) values(40, 'Item40', 4);
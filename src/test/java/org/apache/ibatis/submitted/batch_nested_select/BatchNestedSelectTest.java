@@ -0,0 +1,141 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_nested_select;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchNestedSelectTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_nested_select/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_nested_select/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void resetCounter() {
+    QueryCounter.count.set(0);
+  }
+
+  @Test
+  void shouldLoadNestedSelectsInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).getOrders();
+      assertOrders(orders);
+      // 1 for the orders, 2 for the 3 distinct customers and 3 for the 5 orders
+      assertEquals(6, QueryCounter.count.get());
+    }
+  }
+
+  @Test
+  void shouldLoadOneByOneWithResultHandler() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = new ArrayList<>();
+      sqlSession.getMapper(Mapper.class).getOrders(context -> orders.add(context.getResultObject()));
+      assertOrders(orders);
+      // the third order hits the local cache for its customer
+      assertEquals(9, QueryCounter.count.get());
+    }
+  }
+
+  @Test
+  void shouldLoadLazilyForAllOrdersAtOnce() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).getLazyOrders();
+      assertEquals(1, QueryCounter.count.get());
+      assertEquals("Customer1", orders.get(0).getCustomer().getName());
+      assertEquals(3, QueryCounter.count.get());
+      assertEquals("Item1,Item2", names(orders.get(0).getItems()));
+      assertEquals(6, QueryCounter.count.get());
+      assertOrders(orders);
+      assertEquals(6, QueryCounter.count.get());
+    }
+  }
+
+  @Test
+  void shouldLoadLazilyForAllOrdersAfterSessionIsClosed() {
+    List<Order> orders;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      orders = sqlSession.getMapper(Mapper.class).getLazyOrders();
+    }
+    assertOrders(orders);
+    assertEquals(6, QueryCounter.count.get());
+  }
+
+  @Test
+  void shouldNotShareLazyLoadsBetweenStatements() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Order first = mapper.getLazyOrders().get(0);
+      sqlSession.clearCache();
+      List<Order> orders = mapper.getLazyOrders();
+      assertEquals("Item1,Item2", names(first.getItems()));
+      assertEquals(5, QueryCounter.count.get());
+      sqlSession.clearCache();
+      assertOrders(orders);
+      assertEquals(10, QueryCounter.count.get());
+    }
+  }
+
+  @Test
+  void shouldRejectBatchSizeWithoutNestedSelect() {
+    Configuration configuration = new Configuration();
+    ResultMapping.Builder builder = new ResultMapping.Builder(configuration, "customer", "customer_id", Object.class)
+        .batchSize(10);
+    IllegalStateException e = assertThrows(IllegalStateException.class, builder::build);
+    assertTrue(e.getMessage().contains("batchSize"));
+  }
+
+  private void assertOrders(List<Order> orders) {
+    assertEquals(5, orders.size());
+    assertEquals("Customer1", orders.get(0).getCustomer().getName());
+    assertEquals("Customer2", orders.get(1).getCustomer().getName());
+    assertSame(orders.get(0).getCustomer(), orders.get(2).getCustomer());
+    assertEquals("Customer3", orders.get(3).getCustomer().getName());
+    assertNull(orders.get(4).getCustomer());
+    assertEquals("Item1,Item2", names(orders.get(0).getItems()));
+    assertEquals("Item3", names(orders.get(1).getItems()));
+    assertTrue(orders.get(2).getItems().isEmpty());
+    assertEquals("Item4", names(orders.get(3).getItems()));
+    assertEquals("Item5", names(orders.get(4).getItems()));
+  }
+
+  private String names(List<Item> items) {
+    return items.stream().map(Item::getName).collect(Collectors.joining(","));
+  }
+
+}
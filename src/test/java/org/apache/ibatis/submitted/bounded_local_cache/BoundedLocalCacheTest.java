@@ -0,0 +1,119 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.bounded_local_cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.LocalCacheStatistics;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BoundedLocalCacheTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/bounded_local_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/bounded_local_cache/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void resetBounds() {
+    sqlSessionFactory.getConfiguration().setLocalCacheMaxEntries(4);
+    sqlSessionFactory.getConfiguration().setLocalCacheMaxRows(0);
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedResults() {
+    LocalCacheStatistics statistics = sqlSessionFactory.getConfiguration().getLocalCacheStatistics();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      // every father takes two entries, one for itself and one for its children
+      Father father1 = mapper.getFather(1);
+      Father father2 = mapper.getFather(2);
+      assertSame(father1, mapper.getFather(1));
+      long evictions = statistics.getEvictionCount();
+      long evictedRows = statistics.getEvictedRowCount();
+
+      mapper.getFather(3);
+      // the children, cached before their fathers, of father 1 and father 2 were used least recently
+      assertEquals(evictions + 2, statistics.getEvictionCount());
+      assertEquals(evictedRows + 3, statistics.getEvictedRowCount());
+      assertSame(father1, mapper.getFather(1));
+      assertSame(father2, mapper.getFather(2));
+      assertNotSame(father1.getChildren(), mapper.getChildren(1));
+    }
+  }
+
+  @Test
+  void shouldResolveCircularReferencesBeforeEvicting() {
+    sqlSessionFactory.getConfiguration().setLocalCacheMaxEntries(1);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Father father = sqlSession.getMapper(Mapper.class).getFather(1);
+      assertEquals(2, father.getChildren().size());
+      assertSame(father, father.getChildren().get(0).getFather());
+      assertSame(father, father.getChildren().get(1).getFather());
+    }
+  }
+
+  @Test
+  void shouldEvictByNumberOfRows() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setLocalCacheMaxEntries(0);
+    configuration.setLocalCacheMaxRows(3);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      // 1 father and 2 children
+      Father father1 = mapper.getFather(1);
+      assertSame(father1, mapper.getFather(1));
+      // 1 father and 1 child more, which evicts the 2 children of father 1
+      Father father2 = mapper.getFather(2);
+      assertSame(father1, mapper.getFather(1));
+      // 2 children more, which evicts the child of father 2 and then father 2
+      assertNotSame(father1.getChildren(), mapper.getChildren(1));
+      assertNotSame(father2, mapper.getFather(2));
+    }
+  }
+
+  @Test
+  void shouldNotEvictWithoutBounds() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setLocalCacheMaxEntries(0);
+    long evictions = configuration.getLocalCacheStatistics().getEvictionCount();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Father father1 = mapper.getFather(1);
+      mapper.getFather(2);
+      mapper.getFather(3);
+      assertSame(father1, mapper.getFather(1));
+    }
+    assertEquals(evictions, configuration.getLocalCacheStatistics().getEvictionCount());
+  }
+
+}
@@ -0,0 +1,37 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table child if exists;
+drop table father if exists;
+
+create table father (
+  id int,
+  name varchar(20)
+);
+
+create table child (
+  id int,
+  name varchar(20),
+  father_id int
+);
+
+insert into father (id, name) values(1, 'Father1');
+insert into father (id, name) values(2, 'Father2');
+insert into father (id, name) values(3, 'Father3');
+
+insert into child (id, name, father_id) values(1, 'Child1', 1);
+insert into child (id, name, father_id) values(2, 'Child2', 1);
+insert into child (id, name, father_id) values(3, 'Child3', 2);
@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.column_index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ColumnIndexTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/column_index/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/column_index/CreateDB.sql");
+  }
+
+  @Test
+  void shouldMapExplicitAutomaticAndPrefixedColumns() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Employee> employees = sqlSession.getMapper(Mapper.class).getEmployees(50);
+      assertEquals(50, employees.size());
+      Employee employee = employees.get(49);
+      assertEquals(50, employee.getId());
+      assertEquals("First50", employee.getName());
+      assertEquals("Last50", employee.getLastName());
+      assertEquals("e50@example.com", employee.getEmail());
+      assertEquals("555-0050", employee.getPhone());
+      assertEquals("City0", employee.getCity());
+      assertEquals(1050, employee.getSalary());
+      assertEquals(1, employee.getManager().getId());
+      assertEquals("First1", employee.getManager().getName());
+      assertEquals("Last1", employee.getManager().getLastName());
+      assertNull(employees.get(0).getManager());
+    }
+  }
+
+  @Test
+  void shouldLookUpColumnsOncePerResultSet() {
+    int fewRowsLookups = countLookups(2);
+    int manyRowsLookups = countLookups(50);
+
+    assertTrue(fewRowsLookups > 0);
+    assertEquals(fewRowsLookups, manyRowsLookups);
+    assertEquals(0, ColumnLookupCounter.readByLabelCount.get());
+  }
+
+  @Test
+  void shouldReadColumnsOfCustomHandlersByLabel() {
+    ColumnLookupCounter.reset();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Employee> employees = sqlSession.getMapper(Mapper.class).getEmployeesWithCustomHandler(2);
+      assertEquals("CITY1", employees.get(0).getCity());
+      assertEquals("CITY2", employees.get(1).getCity());
+    }
+    assertEquals(2, ColumnLookupCounter.readByLabelCount.get());
+  }
+
+  private int countLookups(int maxId) {
+    ColumnLookupCounter.reset();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(maxId, sqlSession.getMapper(Mapper.class).getEmployees(maxId).size());
+    }
+    return ColumnLookupCounter.findColumnCount.get();
+  }
+
+}
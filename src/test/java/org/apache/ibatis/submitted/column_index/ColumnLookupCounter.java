@@ -0,0 +1,84 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.column_index;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * Counts the columns the driver is asked to find by label, either explicitly or by reading them by label.
+ */
+@Intercepts({ @Signature(type = StatementHandler.class, method = "query", args = { Statement.class, ResultHandler.class }) })
+public class ColumnLookupCounter implements Interceptor {
+
+  static final AtomicInteger findColumnCount = new AtomicInteger();
+  static final AtomicInteger readByLabelCount = new AtomicInteger();
+
+  static void reset() {
+    findColumnCount.set(0);
+    readByLabelCount.set(0);
+  }
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    Statement statement = (Statement) invocation.getArgs()[0];
+    invocation.getArgs()[0] = Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class },
+        (proxy, method, args) -> {
+          Object result = invoke(statement, method, args);
+          return result instanceof ResultSet ? countingResultSet((ResultSet) result) : result;
+        });
+    return invocation.proceed();
+  }
+
+  private static ResultSet countingResultSet(ResultSet resultSet) {
+    return (ResultSet) Proxy.newProxyInstance(ColumnLookupCounter.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+        (proxy, method, args) -> {
+          if (method.getName().equals("findColumn")) {
+            findColumnCount.incrementAndGet();
+          } else if (method.getName().startsWith("get") && args != null && args[0] instanceof String) {
+            readByLabelCount.incrementAndGet();
+          }
+          return invoke(resultSet, method, args);
+        });
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    // no properties
+  }
+}
@@ -0,0 +1,79 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table employee if exists;
+
+create table employee (
+  id int,
+  first_name varchar(20),
+  last_name varchar(20),
+  email varchar(40),
+  phone varchar(20),
+  city varchar(20),
+  salary int,
+  manager_id int
+);
+
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(1, 'First1', 'Last1', 'e1@example.com', '555-0001', 'City1', 1001, null);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(2, 'First2', 'Last2', 'e2@example.com', '555-0002', 'City2', 1002, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(3, 'First3', 'Last3', 'e3@example.com', '555-0003', 'City3', 1003, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(4, 'First4', 'Last4', 'e4@example.com', '555-0004', 'City4', 1004, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(5, 'First5', 'Last5', 'e5@example.com', '555-0005', 'City0', 1005, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(6, 'First6', 'Last6', 'e6@example.com', '555-0006', 'City1', 1006, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(7, 'First7', 'Last7', 'e7@example.com', '555-0007', 'City2', 1007, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(8, 'First8', 'Last8', 'e8@example.com', '555-0008', 'City3', 1008, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(9, 'First9', 'Last9', 'e9@example.com', '555-0009', 'City4', 1009, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(10, 'First10', 'Last10', 'e10@example.com', '555-0010', 'City0', 1010, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(11, 'First11', 'Last11', 'e11@example.com', '555-0011', 'City1', 1011, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(12, 'First12', 'Last12', 'e12@example.com', '555-0012', 'City2', 1012, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(13, 'First13', 'Last13', 'e13@example.com', '555-0013', 'City3', 1013, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(14, 'First14', 'Last14', 'e14@example.com', '555-0014', 'City4', 1014, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(15, 'First15', 'Last15', 'e15@example.com', '555-0015', 'City0', 1015, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(16, 'First16', 'Last16', 'e16@example.com', '555-0016', 'City1', 1016, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(17, 'First17', 'Last17', 'e17@example.com', '555-0017', 'City2', 1017, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(18, 'First18', 'Last18', 'e18@example.com', '555-0018', 'City3', 1018, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(19, 'First19', 'Last19', 'e19@example.com', '555-0019', 'City4', 1019, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(20, 'First20', 'Last20', 'e20@example.com', '555-0020', 'City0', 1020, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(21, 'First21', 'Last21', 'e21@example.com', '555-0021', 'City1', 1021, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(22, 'First22', 'Last22', 'e22@example.com', '555-0022', 'City2', 1022, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(23, 'First23', 'Last23', 'e23@example.com', '555-0023', 'City3', 1023, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(24, 'First24', 'Last24', 'e24@example.com', '555-0024', 'City4', 1024, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(25, 'First25', 'Last25', 'e25@example.com', '555-0025', 'City0', 1025, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(26, 'First26', 'Last26', 'e26@example.com', '555-0026', 'City1', 1026, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(27, 'First27', 'Last27', 'e27@example.com', '555-0027', 'City2', 1027, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(28, 'First28', 'Last28', 'e28@example.com', '555-0028', 'City3', 1028, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(29, 'First29', 'Last29', 'e29@example.com', '555-0029', 'City4', 1029, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(30, 'First30', 'Last30', 'e30@example.com', '555-0030', 'City0', 1030, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(31, 'First31', 'Last31', 'e31@example.com', '555-0031', 'City1', 1031, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(32, 'First32', 'Last32', 'e32@example.com', '555-0032', 'City2', 1032, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(33, 'First33', 'Last33', 'e33@example.com', '555-0033', 'City3', 1033, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(34, 'First34', 'Last34', 'e34@example.com', '555-0034', 'City4', 1034, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(35, 'First35', 'Last35', 'e35@example.com', '555-0035', 'City0', 1035, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(36, 'First36', 'Last36', 'e36@example.com', '555-0036', 'City1', 1036, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(37, 'First37', 'Last37', 'e37@example.com', '555-0037', 'City2', 1037, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(38, 'First38', 'Last38', 'e38@example.com', '555-0038', 'City3', 1038, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(39, 'First39', 'Last39', 'e39@example.com', '555-0039', 'City4', 1039, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(40, 'First40', 'Last40', 'e40@example.com', '555-0040', 'City0', 1040, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(41, 'First41', 'Last41', 'e41@example.com', '555-0041', 'City1', 1041, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(42, 'First42', 'Last42', 'e42@example.com', '555-0042', 'City2', 1042, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(43, 'First43', 'Last43', 'e43@example.com', '555-0043', 'City3', 1043, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(44, 'First44', 'Last44', 'e44@example.com', '555-0044', 'City4', 1044, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(45, 'First45', 'Last45', 'e45@example.com', '555-0045', 'City0', 1045, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(46, 'First46', 'Last46', 'e46@example.com', '555-0046', 'City1', 1046, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(47, 'First47', 'Last47', 'e47@example.com', '555-0047', 'City2', 1047, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(48, 'First48', 'Last48', 'e48@example.com', '555-0048', 'City3', 1048, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(49, 'First49', 'Last49', 'e49@example.com', '555-0049', 'City4', 1049, 1);
+insert into employee (id, first_name, last_name, email, phone, city, salary, manager_id) values(50, 'First50', 'Last50', 'e50@example.com', '555-0050', 'City0', 1050, 1);
@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.resultset.RowMapperCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CompiledRowMapperTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/compiled_row_mapper/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/compiled_row_mapper/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void clearRowMappers() {
+    sqlSessionFactory.getConfiguration().getRowMapperCache().clear();
+  }
+
+  @Test
+  void shouldMapPropertiesAndFallBackForNestedOnes() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Person person = sqlSession.getMapper(Mapper.class).getPerson(2);
+      assertEquals(2, person.getId());
+      assertEquals("Jane", person.getName());
+      assertEquals("Doe", person.getLastName());
+      assertEquals(30, person.getAge());
+      assertEquals("Paris", person.getAddress().getCity());
+      assertEquals("John", person.getManager().getName());
+    }
+  }
+
+  @Test
+  void shouldCompileRowMapperPerColumnShape() {
+    RowMapperCache rowMapperCache = sqlSessionFactory.getConfiguration().getRowMapperCache();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Person> persons = mapper.getPersons(false);
+      assertEquals(1, rowMapperCache.size());
+      List<Person> reversed = mapper.getPersons(true);
+      assertEquals(2, rowMapperCache.size());
+
+      for (List<Person> list : Arrays.asList(persons, reversed)) {
+        assertEquals(2, list.size());
+        assertEquals("John", list.get(0).getName());
+        assertEquals("Smith", list.get(0).getLastName());
+        assertEquals(50, list.get(0).getAge());
+        assertEquals("Doe", list.get(1).getLastName());
+      }
+
+      sqlSession.clearCache();
+      mapper.getPersons(true);
+      assertEquals(2, rowMapperCache.size());
+    }
+  }
+
+  @Test
+  void shouldBoundRowMappersPerResultMap() {
+    RowMapperCache rowMapperCache = sqlSessionFactory.getConfiguration().getRowMapperCache();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < RowMapperCache.MAX_ROW_MAPPERS_PER_RESULT_MAP + 5; i++) {
+        List<Person> persons = mapper.getPersonsWithExtraColumn("extra" + i);
+        assertEquals(2, persons.size());
+        assertEquals("Doe", persons.get(1).getLastName());
+      }
+      assertEquals(RowMapperCache.MAX_ROW_MAPPERS_PER_RESULT_MAP, rowMapperCache.size());
+    }
+  }
+
+  @Test
+  void shouldAutoMapToSettersAndFields() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Person> persons = sqlSession.getMapper(Mapper.class).getAutoMappedPersons();
+      assertEquals(2, persons.size());
+      assertEquals("John", persons.get(0).getName());
+      assertEquals("Smith", persons.get(0).getLastName());
+      assertEquals("Boss", persons.get(0).getNickname());
+      assertNull(persons.get(1).getNickname());
+      assertEquals(30, persons.get(1).getAge());
+    }
+  }
+
+  @Test
+  void shouldReportSetterFailures() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      PersistenceException e = assertThrows(PersistenceException.class,
+          () -> sqlSession.getMapper(Mapper.class).getPerson(3));
+      assertTrue(e.getCause() instanceof ReflectionException);
+      assertTrue(e.getCause().getMessage().contains("Could not set property 'name'"));
+      assertTrue(e.getCause().getMessage().contains("Bad name"));
+    }
+  }
+
+}
@@ -0,0 +1,31 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table person if exists;
+
+create table person (
+  id int,
+  first_name varchar(20),
+  last_name varchar(20),
+  age int,
+  city varchar(20),
+  nickname varchar(20),
+  manager_id int
+);
+
+insert into person (id, first_name, last_name, age, city, nickname, manager_id) values(1, 'John', 'Smith', 50, 'Tokyo', 'Boss', null);
+insert into person (id, first_name, last_name, age, city, nickname, manager_id) values(2, 'Jane', 'Doe', 30, 'Paris', null, 1);
+insert into person (id, first_name, last_name, age, city, nickname, manager_id) values(3, 'Bad', 'Setter', 40, 'Rome', null, 1);
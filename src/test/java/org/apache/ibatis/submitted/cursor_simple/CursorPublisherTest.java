@@ -0,0 +1,219 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cursor_simple;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.CursorPublisher;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CursorPublisherTest {
+
+  private static final String GET_ALL_USERS = "org.apache.ibatis.submitted.cursor_simple.Mapper.getAllUsers";
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cursor_simple/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/cursor_simple/CreateDB.sql");
+  }
+
+  @Test
+  void shouldPublishAsManyUsersAsRequested() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new CursorPublisher<User>(sqlSession, GET_ALL_USERS, null, RowBounds.DEFAULT, Runnable::run).subscribe(subscriber);
+
+    assertTrue(subscriber.users.isEmpty());
+    subscriber.subscription.request(2);
+    assertEquals(2, subscriber.users.size());
+    assertFalse(subscriber.completed);
+
+    subscriber.subscription.request(10);
+    assertEquals(5, subscriber.users.size());
+    assertTrue(subscriber.completed);
+    assertNull(subscriber.error);
+    assertSessionClosed(sqlSession);
+  }
+
+  @Test
+  void shouldHonorRequestsMadeFromOnNext() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onNext(User item) {
+        super.onNext(item);
+        subscription.request(1);
+      }
+    };
+    new CursorPublisher<User>(sqlSession, GET_ALL_USERS, null, RowBounds.DEFAULT, Runnable::run).subscribe(subscriber);
+    subscriber.subscription.request(1);
+
+    assertEquals("User1,User2,User3,User4,User5", subscriber.names());
+    assertTrue(subscriber.completed);
+  }
+
+  @Test
+  void shouldCloseSessionOnCancel() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new CursorPublisher<User>(sqlSession, GET_ALL_USERS, null, RowBounds.DEFAULT, Runnable::run).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(1);
+
+    assertEquals("User1", subscriber.names());
+    assertFalse(subscriber.completed);
+    assertNull(subscriber.error);
+    assertSessionClosed(sqlSession);
+  }
+
+  @Test
+  void shouldSignalErrorOnInvalidRequest() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new CursorPublisher<User>(sqlSession, GET_ALL_USERS, null, RowBounds.DEFAULT, Runnable::run).subscribe(subscriber);
+    subscriber.subscription.request(0);
+
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+    assertSessionClosed(sqlSession);
+  }
+
+  @Test
+  void shouldSignalErrorOnSecondSubscription() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    CursorPublisher<User> publisher = new CursorPublisher<>(sqlSession, GET_ALL_USERS, null, RowBounds.DEFAULT,
+        Runnable::run);
+    RecordingSubscriber first = new RecordingSubscriber();
+    RecordingSubscriber second = new RecordingSubscriber();
+    publisher.subscribe(first);
+    publisher.subscribe(second);
+
+    assertTrue(second.error instanceof IllegalStateException);
+    first.subscription.request(Long.MAX_VALUE);
+    assertEquals(5, first.users.size());
+    assertTrue(first.completed);
+  }
+
+  @Test
+  void shouldPublishOnAsyncExecutor() throws Exception {
+    CountDownLatch done = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onNext(User item) {
+        super.onNext(item);
+        threads.add(Thread.currentThread());
+      }
+
+      @Override
+      public void onComplete() {
+        super.onComplete();
+        done.countDown();
+      }
+    };
+    sqlSessionFactory.openSession().<User>selectPublisher(GET_ALL_USERS, null, new RowBounds(1, 2))
+        .subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals("User2,User3", subscriber.names());
+    assertFalse(threads.contains(Thread.currentThread()));
+  }
+
+  @Test
+  void shouldPublishFromSessionsUsingDefaultMethods() throws Exception {
+    SqlSession delegate = sqlSessionFactory.openSession();
+    // a session implementing only the abstract methods, like those of other libraries
+    SqlSession sqlSession = mock(SessionWithoutPublisher.class, invocation -> invocation.getMethod().isDefault()
+        ? invocation.callRealMethod() : invocation.getMethod().invoke(delegate, invocation.getArguments()));
+    CountDownLatch done = new CountDownLatch(1);
+    RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onComplete() {
+        super.onComplete();
+        done.countDown();
+      }
+    };
+    CursorPublisher<User> publisher = sqlSession.selectPublisher(GET_ALL_USERS);
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals("User1,User2,User3,User4,User5", subscriber.names());
+    assertSessionClosed(delegate);
+  }
+
+  private void assertSessionClosed(SqlSession sqlSession) {
+    assertThrows(PersistenceException.class, () -> sqlSession.selectList(GET_ALL_USERS));
+  }
+
+  private abstract static class SessionWithoutPublisher implements SqlSession {
+  }
+
+  private static class RecordingSubscriber implements CursorPublisher.Subscriber<User> {
+
+    final List<User> users = new ArrayList<>();
+    CursorPublisher.Subscription subscription;
+    volatile boolean completed;
+    volatile Throwable error;
+
+    @Override
+    public void onSubscribe(CursorPublisher.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(User item) {
+      users.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+
+    String names() {
+      return users.stream().map(User::getName).collect(Collectors.joining(","));
+    }
+  }
+
+}
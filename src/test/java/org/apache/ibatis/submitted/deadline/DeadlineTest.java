@@ -0,0 +1,124 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.deadline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.exceptions.DeadlineExceededException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Deadline;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class DeadlineTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/deadline/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/deadline/CreateDB.sql");
+  }
+
+  @AfterEach
+  void resetPool() {
+    PooledDataSource dataSource = (PooledDataSource) sqlSessionFactory.getConfiguration().getEnvironment().getDataSource();
+    dataSource.setPoolConnectionBagEnabled(false);
+  }
+
+  @Test
+  void shouldFailFastOncePassed() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Deadline.Scope scope = Deadline.after(-1, TimeUnit.MILLISECONDS).bind()) {
+      assertThrows(DeadlineExceededException.class, () -> sqlSession.getMapper(Mapper.class).getUser(1));
+    }
+  }
+
+  @Test
+  void shouldRunWithinDeadline() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Deadline.Scope scope = Deadline.after(1, TimeUnit.MINUTES).bind()) {
+      assertEquals("User1", sqlSession.getMapper(Mapper.class).getUser(1).getName());
+    }
+  }
+
+  @Test
+  void shouldStopWaitingForConnectionAtDeadline() {
+    assertStopsWaitingForConnection();
+  }
+
+  @Test
+  void shouldStopWaitingForConnectionFromBagAtDeadline() {
+    PooledDataSource dataSource = (PooledDataSource) sqlSessionFactory.getConfiguration().getEnvironment().getDataSource();
+    dataSource.setPoolConnectionBagEnabled(true);
+    assertStopsWaitingForConnection();
+  }
+
+  private void assertStopsWaitingForConnection() {
+    try (SqlSession holder = sqlSessionFactory.openSession()) {
+      // takes the only connection of the pool
+      holder.getMapper(Mapper.class).getUser(1);
+      long start = System.nanoTime();
+      try (SqlSession sqlSession = sqlSessionFactory.openSession();
+          Deadline.Scope scope = Deadline.after(200, TimeUnit.MILLISECONDS).bind()) {
+        assertThrows(DeadlineExceededException.class, () -> sqlSession.getMapper(Mapper.class).getUser(2));
+      }
+      // instead of the 20 seconds of poolTimeToWait
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    }
+  }
+
+  @Test
+  void shouldLazyLoadWithinDeadlineOfRequest() throws Exception {
+    User user;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Deadline.Scope scope = Deadline.after(100, TimeUnit.MILLISECONDS).bind()) {
+      user = sqlSession.getMapper(Mapper.class).getUser(2);
+    }
+    assertNull(Deadline.current());
+    Thread.sleep(200);
+    assertThrows(DeadlineExceededException.class, user::getManager);
+  }
+
+  @Test
+  void shouldKeepEarlierDeadline() {
+    Deadline earlier = Deadline.after(1, TimeUnit.SECONDS);
+    try (Deadline.Scope outer = earlier.bind()) {
+      try (Deadline.Scope inner = Deadline.after(1, TimeUnit.MINUTES).bind()) {
+        assertSame(earlier, Deadline.current());
+      }
+      Deadline later = Deadline.after(10, TimeUnit.MILLISECONDS);
+      try (Deadline.Scope inner = later.bind()) {
+        assertSame(later, Deadline.current());
+      }
+      assertSame(earlier, Deadline.current());
+    }
+    assertNull(Deadline.current());
+  }
+
+}
@@ -0,0 +1,28 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table employee if exists;
+
+create table employee (
+  id int,
+  name varchar(20),
+  manager_id int,
+  mentor_id int
+);
+
+insert into employee (id, name, manager_id, mentor_id) values(1, 'Boss', null, null);
+insert into employee (id, name, manager_id, mentor_id) values(2, 'Jane', 1, 1);
+insert into employee (id, name, manager_id, mentor_id) values(3, 'John', 1, 2);
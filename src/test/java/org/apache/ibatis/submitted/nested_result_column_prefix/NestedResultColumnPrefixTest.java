@@ -0,0 +1,59 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.nested_result_column_prefix;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class NestedResultColumnPrefixTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/nested_result_column_prefix/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/nested_result_column_prefix/CreateDB.sql");
+  }
+
+  @Test
+  void shouldMapAssociationsSharingResultMapWithDifferentPrefixes() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Employee> employees = sqlSession.getMapper(Mapper.class).getEmployees();
+      assertEquals(3, employees.size());
+      assertNull(employees.get(0).getManager());
+      assertNull(employees.get(0).getMentor());
+      // the manager and the mentor of Jane are the same employee
+      assertEquals("Boss", employees.get(1).getManager().getName());
+      assertEquals("Boss", employees.get(1).getMentor().getName());
+      assertEquals("Boss", employees.get(2).getManager().getName());
+      assertEquals("Jane", employees.get(2).getMentor().getName());
+    }
+  }
+
+}
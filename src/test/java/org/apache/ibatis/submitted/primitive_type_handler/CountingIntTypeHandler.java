@@ -0,0 +1,54 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.primitive_type_handler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.type.IntegerTypeHandler;
+
+public class CountingIntTypeHandler extends IntegerTypeHandler {
+
+  static int boxedReads;
+  static int primitiveReads;
+  static int primitiveBinds;
+
+  static void reset() {
+    boxedReads = 0;
+    primitiveReads = 0;
+    primitiveBinds = 0;
+  }
+
+  @Override
+  public Integer getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+    boxedReads++;
+    return super.getNullableResult(rs, columnIndex);
+  }
+
+  @Override
+  public int getInt(ResultSet rs, int columnIndex) throws SQLException {
+    primitiveReads++;
+    return super.getInt(rs, columnIndex);
+  }
+
+  @Override
+  public void setInt(PreparedStatement ps, int i, int parameter) throws SQLException {
+    primitiveBinds++;
+    super.setInt(ps, i, parameter);
+  }
+
+}
@@ -0,0 +1,32 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table measurement if exists;
+
+create table measurement (
+  id int,
+  sample_count int,
+  total bigint,
+  offset_value bigint,
+  ratio double,
+  score real,
+  level smallint,
+  flags tinyint,
+  active boolean
+);
+
+insert into measurement (id, sample_count, total, offset_value, ratio, score, level, flags, active) values(1, 42, 10000000000, 7, 0.25, 1.5, 3, 8, true);
+insert into measurement (id, sample_count, total, offset_value, ratio, score, level, flags, active) values(2, null, null, null, null, null, null, null, null);
@@ -0,0 +1,98 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.primitive_type_handler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PrimitiveTypeHandlerTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/primitive_type_handler/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/primitive_type_handler/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void resetCounters() {
+    CountingIntTypeHandler.reset();
+  }
+
+  @Test
+  void shouldMapPrimitivesWithoutBoxing() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Measurement measurement = sqlSession.getMapper(Mapper.class).getMeasurement(1);
+      assertEquals(1, measurement.getId());
+      assertEquals(42, measurement.getCount());
+      assertEquals(10000000000L, measurement.getTotal());
+      assertEquals(0.25, measurement.getRatio());
+      assertEquals(1.5f, measurement.getScore());
+      assertEquals(3, measurement.getLevel());
+      assertEquals(8, measurement.getFlags());
+      assertTrue(measurement.isActive());
+      assertEquals(2, CountingIntTypeHandler.primitiveReads);
+      assertEquals(0, CountingIntTypeHandler.boxedReads);
+    }
+  }
+
+  @Test
+  void shouldLeavePrimitivesUntouchedForNulls() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Measurement measurement = sqlSession.getMapper(Mapper.class).getMeasurement(2);
+      assertEquals(2, measurement.getId());
+      assertEquals(-1, measurement.getCount());
+      assertEquals(-1, measurement.getTotal());
+      assertEquals(0, measurement.getOffset());
+      assertEquals(-1, measurement.getRatio());
+      assertEquals(-1, measurement.getScore());
+      assertEquals(-1, measurement.getLevel());
+      assertEquals(-1, measurement.getFlags());
+      assertFalse(measurement.isActive());
+    }
+  }
+
+  @Test
+  void shouldReadThroughCustomizedBoxedGetter() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(70, sqlSession.getMapper(Mapper.class).getMeasurement(1).getOffset());
+    }
+  }
+
+  @Test
+  void shouldBindPrimitiveParameters() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Measurement measurement = sqlSession.getMapper(Mapper.class).getMeasurementByCount(42);
+      assertEquals(1, measurement.getId());
+      assertEquals(1, CountingIntTypeHandler.primitiveBinds);
+    }
+  }
+
+}
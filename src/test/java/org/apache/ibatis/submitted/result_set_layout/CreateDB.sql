@@ -0,0 +1,28 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table product if exists;
+
+create table product (
+  id int,
+  name varchar(20),
+  price decimal(10, 2),
+  category varchar(20)
+);
+
+insert into product (id, name, price, category) values(1, 'Pen', 1.50, 'Office');
+insert into product (id, name, price, category) values(2, 'Desk', 120.00, 'Furniture');
+insert into product (id, name, price, category) values(3, 'Lamp', 35.00, 'Furniture');
@@ -0,0 +1,94 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.result_set_layout;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * Counts the column classes read from the result set metadata and the columns the driver is asked to find by label.
+ */
+@Intercepts({ @Signature(type = StatementHandler.class, method = "query", args = { Statement.class, ResultHandler.class }) })
+public class MetaDataCounter implements Interceptor {
+
+  static final AtomicInteger columnClassNameCount = new AtomicInteger();
+  static final AtomicInteger findColumnCount = new AtomicInteger();
+
+  static void reset() {
+    columnClassNameCount.set(0);
+    findColumnCount.set(0);
+  }
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    Statement statement = (Statement) invocation.getArgs()[0];
+    invocation.getArgs()[0] = Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class },
+        (proxy, method, args) -> {
+          Object result = invoke(statement, method, args);
+          return result instanceof ResultSet ? countingResultSet((ResultSet) result) : result;
+        });
+    return invocation.proceed();
+  }
+
+  private static ResultSet countingResultSet(ResultSet resultSet) {
+    return (ResultSet) Proxy.newProxyInstance(MetaDataCounter.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+        (proxy, method, args) -> {
+          if (method.getName().equals("findColumn")) {
+            findColumnCount.incrementAndGet();
+          }
+          Object result = invoke(resultSet, method, args);
+          return result instanceof ResultSetMetaData ? countingMetaData((ResultSetMetaData) result) : result;
+        });
+  }
+
+  private static ResultSetMetaData countingMetaData(ResultSetMetaData metaData) {
+    return (ResultSetMetaData) Proxy.newProxyInstance(MetaDataCounter.class.getClassLoader(),
+        new Class<?>[] { ResultSetMetaData.class }, (proxy, method, args) -> {
+          if (method.getName().equals("getColumnClassName")) {
+            columnClassNameCount.incrementAndGet();
+          }
+          return invoke(metaData, method, args);
+        });
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    // no properties
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.result_set_layout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.resultset.ResultSetLayoutCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ResultSetLayoutTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/result_set_layout/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/result_set_layout/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void clearLayouts() {
+    sqlSessionFactory.getConfiguration().getResultSetLayoutCache().clear();
+    MetaDataCounter.reset();
+  }
+
+  @Test
+  void shouldResolveLayoutOnce() {
+    ResultSetLayoutCache layoutCache = sqlSessionFactory.getConfiguration().getResultSetLayoutCache();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertProducts(mapper.getProducts(false));
+      assertEquals(1, layoutCache.size());
+      assertEquals(4, MetaDataCounter.columnClassNameCount.get());
+      assertEquals(4, MetaDataCounter.findColumnCount.get());
+
+      MetaDataCounter.reset();
+      assertProducts(mapper.getProducts(false));
+      assertEquals(1, layoutCache.size());
+      assertEquals(0, MetaDataCounter.columnClassNameCount.get());
+      assertEquals(0, MetaDataCounter.findColumnCount.get());
+    }
+  }
+
+  @Test
+  void shouldKeepLayoutsPerColumnShape() {
+    ResultSetLayoutCache layoutCache = sqlSessionFactory.getConfiguration().getResultSetLayoutCache();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertProducts(mapper.getProducts(false));
+      assertProducts(mapper.getProducts(true));
+      assertEquals(2, layoutCache.size());
+      assertProducts(mapper.getProducts(true));
+      assertProducts(mapper.getProducts(false));
+      assertEquals(2, layoutCache.size());
+    }
+  }
+
+  @Test
+  void shouldKeepLayoutsPerStatement() {
+    ResultSetLayoutCache layoutCache = sqlSessionFactory.getConfiguration().getResultSetLayoutCache();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getProducts(false);
+      List<Product> products = mapper.getProductsByCategory("Furniture");
+      assertEquals(2, layoutCache.size());
+      assertEquals(2, products.size());
+      assertEquals("Lamp", products.get(1).getName());
+      assertEquals(new BigDecimal("35.00"), products.get(1).getPrice());
+    }
+  }
+
+  @Test
+  void shouldBoundLayoutsPerStatement() {
+    ResultSetLayoutCache layoutCache = sqlSessionFactory.getConfiguration().getResultSetLayoutCache();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < ResultSetLayoutCache.MAX_LAYOUTS_PER_STATEMENT + 5; i++) {
+        assertProducts(mapper.getProductsWithExtraColumn("extra" + i));
+      }
+      assertEquals(ResultSetLayoutCache.MAX_LAYOUTS_PER_STATEMENT, layoutCache.size());
+    }
+  }
+
+  @Test
+  void shouldNotCacheLayoutsByDefault() {
+    boolean cacheResultSetLayouts = sqlSessionFactory.getConfiguration().isCacheResultSetLayouts();
+    sqlSessionFactory.getConfiguration().setCacheResultSetLayouts(false);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertProducts(mapper.getProducts(false));
+      assertProducts(mapper.getProducts(false));
+      assertEquals(0, sqlSessionFactory.getConfiguration().getResultSetLayoutCache().size());
+      assertEquals(8, MetaDataCounter.columnClassNameCount.get());
+    } finally {
+      sqlSessionFactory.getConfiguration().setCacheResultSetLayouts(cacheResultSetLayouts);
+    }
+  }
+
+  private void assertProducts(List<Product> products) {
+    assertEquals(3, products.size());
+    assertEquals(Integer.valueOf(1), products.get(0).getId());
+    assertEquals("Pen", products.get(0).getName());
+    assertEquals(new BigDecimal("1.50"), products.get(0).getPrice());
+    assertEquals("Office", products.get(0).getCategory());
+    assertEquals("Furniture", products.get(2).getCategory());
+  }
+
+}
@@ -0,0 +1,145 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.virtual_threads;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.lang.UsesJava8;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs thousands of virtual threads through sessions that share a pooled data source, a second level cache and lazy
+ * loading, and checks with Java Flight Recorder that no virtual thread was pinned to its carrier while MyBatis held
+ * a monitor. The {@link SlowDriver} makes JDBC calls block, so that a call made inside a monitor is recorded. Skipped
+ * before Java 21.
+ */
+@UsesJava8
+class VirtualThreadsTest {
+
+  private static final int TASKS = 1000;
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/virtual_threads/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/virtual_threads/CreateDB.sql");
+  }
+
+  @Test
+  void shouldNotPinCarrierThreads() throws Exception {
+    ExecutorService executor = newVirtualThreadPerTaskExecutor();
+    assumeTrue(executor != null, "Virtual threads are not available");
+    Path file = Files.createTempFile("virtual-threads", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+      recording.start();
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < TASKS; i++) {
+        final int id = i % 5 + 1;
+        futures.add(executor.submit(() -> {
+          User user;
+          try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            Mapper mapper = sqlSession.getMapper(Mapper.class);
+            user = mapper.getUser(id);
+            mapper.insertVisit(id);
+            sqlSession.commit();
+          }
+          // users served by the second level cache load lazily through a connection of their own, so this is done
+          // once the session has given its connection back to the pool
+          assertEquals("User" + id, user.getName());
+          if (id > 1) {
+            assertNotNull(user.getManager().getName());
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(1, TimeUnit.MINUTES);
+      }
+      recording.stop();
+      recording.dump(file);
+    } finally {
+      executor.shutdown();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(TASKS, sqlSession.getMapper(Mapper.class).countVisits());
+    }
+    List<String> pinned = RecordingFile.readAllEvents(file).stream()
+        .filter(VirtualThreadsTest::isPinnedByMyBatis)
+        .map(event -> event.getStackTrace().getFrames().stream()
+            .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+            .collect(Collectors.joining("\n  ")))
+        .collect(Collectors.toList());
+    Files.delete(file);
+    assertTrue(pinned.isEmpty(), () -> pinned.size() + " pinned virtual threads, e.g.\n  " + pinned.get(0));
+  }
+
+  /**
+   * Drivers may block inside their own monitors, only pinning by MyBatis code is of interest.
+   */
+  private static boolean isPinnedByMyBatis(RecordedEvent event) {
+    if (event.getStackTrace() == null) {
+      return false;
+    }
+    boolean myBatis = false;
+    for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+      String type = frame.getMethod().getType().getName();
+      if (type.startsWith("org.hsqldb.")) {
+        return false;
+      }
+      myBatis |= type.startsWith("org.apache.ibatis.");
+    }
+    return myBatis;
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
+}
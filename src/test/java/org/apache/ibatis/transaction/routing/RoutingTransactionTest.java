@@ -0,0 +1,169 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.transaction.routing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.routing.RoutingDataSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RoutingTransactionTest {
+
+  private PooledDataSource primary;
+  private PooledDataSource replica1;
+  private PooledDataSource replica2;
+  private RoutingDataSource routingDataSource;
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    primary = createDatabase("routing_primary");
+    replica1 = createDatabase("routing_replica1");
+    replica2 = createDatabase("routing_replica2");
+    routingDataSource = new RoutingDataSource(primary);
+    Configuration configuration = new Configuration(new Environment("routing", new RoutingTransactionFactory(), routingDataSource));
+    configuration.addMapper(NodeMapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  @AfterEach
+  void tearDown() {
+    primary.forceCloseAll();
+    replica1.forceCloseAll();
+    replica2.forceCloseAll();
+  }
+
+  private static PooledDataSource createDatabase(String name) throws SQLException {
+    PooledDataSource ds = new PooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:" + name, "sa", "");
+    try (Connection con = ds.getConnection(); Statement st = con.createStatement()) {
+      st.execute("drop table node if exists");
+      st.execute("create table node (name varchar(32))");
+      st.execute("insert into node (name) values ('" + name + "')");
+    }
+    return ds;
+  }
+
+  @Test
+  void shouldReadFromReplicaAndWriteToPrimary() {
+    routingDataSource.addReplica(replica1, 1);
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      NodeMapper mapper = session.getMapper(NodeMapper.class);
+      assertEquals("routing_replica1", mapper.selectName());
+      mapper.insert("written");
+      // the session reads its own writes from the primary from now on
+      assertEquals(2, mapper.selectNames().size());
+      assertEquals("routing_primary", mapper.selectNames().get(0));
+      session.commit();
+    }
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      assertEquals("routing_replica1", session.getMapper(NodeMapper.class).selectName());
+    }
+  }
+
+  @Test
+  void shouldNotReuseReplicaStatementAfterWrite() {
+    routingDataSource.addReplica(replica1, 1);
+    try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.REUSE)) {
+      NodeMapper mapper = session.getMapper(NodeMapper.class);
+      assertEquals(1, mapper.selectNames().size());
+      mapper.insert("written");
+      assertEquals(2, mapper.selectNames().size());
+      session.rollback();
+    }
+  }
+
+  @Test
+  void shouldReadFromPrimaryWithoutReplicas() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      assertEquals("routing_primary", session.getMapper(NodeMapper.class).selectName());
+    }
+  }
+
+  @Test
+  void shouldSkipUnavailableReplica() {
+    DataSource broken = new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:hsql://localhost:1/none", "sa", "");
+    routingDataSource.addReplica(broken, 1000);
+    routingDataSource.addReplica(replica2, 1);
+    for (int i = 0; i < 5; i++) {
+      try (SqlSession session = sqlSessionFactory.openSession()) {
+        assertEquals("routing_replica2", session.getMapper(NodeMapper.class).selectName());
+      }
+    }
+    assertEquals(0, routingDataSource.getReplicaLatency(broken));
+    assertTrue(routingDataSource.getReplicaLatency(replica2) > 0);
+  }
+
+  @Test
+  void shouldFallBackToPrimaryWhenAllReplicasAreDown() {
+    routingDataSource.addReplica(new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:hsql://localhost:1/none", "sa", ""), 1);
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      assertEquals("routing_primary", session.getMapper(NodeMapper.class).selectName());
+    }
+  }
+
+  @Test
+  void shouldBalanceReadsOverReplicas() {
+    routingDataSource.addReplica(replica1, 1);
+    routingDataSource.addReplica(replica2, 1);
+    boolean readFromReplica1 = false;
+    boolean readFromReplica2 = false;
+    for (int i = 0; i < 200 && !(readFromReplica1 && readFromReplica2); i++) {
+      try (SqlSession session = sqlSessionFactory.openSession()) {
+        String name = session.getMapper(NodeMapper.class).selectName();
+        readFromReplica1 |= "routing_replica1".equals(name);
+        readFromReplica2 |= "routing_replica2".equals(name);
+      }
+    }
+    assertTrue(readFromReplica1);
+    assertTrue(readFromReplica2);
+  }
+
+  @Test
+  void shouldRejectNonPositiveWeight() {
+    assertThrows(IllegalArgumentException.class, () -> routingDataSource.addReplica(replica1, 0));
+  }
+
+  interface NodeMapper {
+    @Select("select name from node")
+    String selectName();
+
+    @Select("select name from node order by name")
+    List<String> selectNames();
+
+    @Insert("insert into node (name) values (#{name})")
+    int insert(String name);
+  }
+
+}
@@ -81,4 +81,16 @@ class DoubleTypeHandlerTest extends BaseTypeHandlerTest {
     assertNull(TYPE_HANDLER.getResult(cs, 1));
   }
 
+  @Test
+  void shouldGetPrimitiveResultFromResultSetByPosition() throws Exception {
+    when(rs.getDouble(1)).thenReturn(100d);
+    assertEquals(100d, new DoubleTypeHandler().getDouble(rs, 1));
+  }
+
+  @Test
+  void shouldSetPrimitiveParameter() throws Exception {
+    new DoubleTypeHandler().setDouble(ps, 1, 100d);
+    verify(ps).setDouble(1, 100d);
+  }
+
 }
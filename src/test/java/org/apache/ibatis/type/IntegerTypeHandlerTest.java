@@ -81,4 +81,16 @@ class IntegerTypeHandlerTest extends BaseTypeHandlerTest {
     assertNull(TYPE_HANDLER.getResult(cs, 1));
   }
 
+  @Test
+  void shouldGetPrimitiveResultFromResultSetByPosition() throws Exception {
+    when(rs.getInt(1)).thenReturn(100);
+    assertEquals(100, new IntegerTypeHandler().getInt(rs, 1));
+  }
+
+  @Test
+  void shouldSetPrimitiveParameter() throws Exception {
+    new IntegerTypeHandler().setInt(ps, 1, 100);
+    verify(ps).setInt(1, 100);
+  }
+
 }
@@ -81,4 +81,16 @@ class LongTypeHandlerTest extends BaseTypeHandlerTest {
     assertNull(TYPE_HANDLER.getResult(cs, 1));
   }
 
+  @Test
+  void shouldGetPrimitiveResultFromResultSetByPosition() throws Exception {
+    when(rs.getLong(1)).thenReturn(100L);
+    assertEquals(100L, new LongTypeHandler().getLong(rs, 1));
+  }
+
+  @Test
+  void shouldSetPrimitiveParameter() throws Exception {
+    new LongTypeHandler().setLong(ps, 1, 100L);
+    verify(ps).setLong(1, 100L);
+  }
+
 }